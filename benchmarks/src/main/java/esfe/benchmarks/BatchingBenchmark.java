@@ -0,0 +1,82 @@
+package esfe.benchmarks;
+
+import esfe.dominio.Pelicula;         // Filas insertadas.
+import esfe.persistencia.PeliculaDAO; // DAO medido.
+
+import java.sql.SQLException;                     // Errores de la base de datos.
+import java.util.ArrayList;                       // Filas de cada operación.
+import java.util.List;                            // Interfaz de listas.
+import java.util.concurrent.TimeUnit;             // Unidad de los resultados.
+import java.util.concurrent.atomic.AtomicInteger; // Numeración de las filas creadas.
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserción de 1000 peliculas con {@link PeliculaDAO#createAll(java.util.Collection, int)} según el
+ * tamaño del lote ("-p batchSize=..."), comparada con 1000 llamadas a create().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchingBenchmark {
+
+    private static final String PREFIX = "benchbatch ";
+    private static final int ROWS = 1_000;
+
+    @Param({"1", "50", "500", "1000"})
+    public int batchSize;
+
+    private PeliculaDAO dao;
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset.configure();
+        dao = new PeliculaDAO();
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeCreated() throws SQLException {
+        Dataset.deletePeliculas(PREFIX);
+    }
+
+    @Benchmark
+    public int createAll() throws SQLException {
+        return dao.createAll(newPeliculas(), batchSize);
+    }
+
+    /**
+     * Una inserción (y un commit) por fila; no depende de batchSize.
+     */
+    @Benchmark
+    public int createLoop() throws SQLException {
+        for (Pelicula pelicula : newPeliculas()) {
+            dao.create(pelicula);
+        }
+        return ROWS;
+    }
+
+    private List<Pelicula> newPeliculas() {
+        List<Pelicula> peliculas = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            int n = created.incrementAndGet();
+            peliculas.add(new Pelicula(0, PREFIX + n, "Director " + (n % 997), "Genero " + (n % 13)));
+        }
+        return peliculas;
+    }
+}
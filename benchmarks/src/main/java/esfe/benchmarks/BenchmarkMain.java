@@ -0,0 +1,68 @@
+package esfe.benchmarks;
+
+import java.io.IOException; // Errores del Main de JMH al listar.
+
+import org.openjdk.jmh.results.format.ResultFormatType; // Formato del archivo de resultados.
+import org.openjdk.jmh.runner.Runner;                   // Ejecuta las mediciones.
+import org.openjdk.jmh.runner.RunnerException;          // Errores de JMH.
+import org.openjdk.jmh.runner.options.CommandLineOptionException; // Argumentos inválidos.
+import org.openjdk.jmh.runner.options.CommandLineOptions;         // Argumentos estándar de JMH.
+import org.openjdk.jmh.runner.options.Options;                    // Opciones finales.
+import org.openjdk.jmh.runner.options.OptionsBuilder;             // Construcción de las opciones.
+
+/**
+ * Punto de entrada de las mediciones JMH de la capa de persistencia. Acepta los mismos argumentos
+ * que JMH ("-h" los lista) y, si no se indica otro, escribe los resultados en formato JSON en
+ * "jmh-result.json" para comparar corridas (por ejemplo con https://jmh.morethan.io).
+ *
+ * Uso desde la raíz del proyecto:
+ * <pre>
+ * mvn -B install -DskipTests
+ * mvn -B package -f benchmarks/pom.xml
+ * java -jar benchmarks/target/benchmarks.jar                          # Todas las mediciones.
+ * java -jar benchmarks/target/benchmarks.jar PeliculaDAOBenchmark.getById -p rows=100000
+ * java -jar benchmarks/target/benchmarks.jar -rff resultados/cache-off.json \
+ *      -jvmArgsAppend "-Desfe.cache.pelicula.maxSize=0"
+ * </pre>
+ *
+ * Las mediciones usan la base de datos en proceso (db.mode=embedded) salvo que se indique otra con
+ * "-jvmArgsAppend -Desfe.db.mode=mysql". Cualquier parámetro de {@code PersistenceConfig} se cambia
+ * igual ("-Desfe.pool.maxSize=4", "-Desfe.pool.statementCacheSize=0", "-Desfe.metrics.enabled=false",
+ * ...), lo que permite comparar estrategias de conexión, caché y lotes con los mismos datos.
+ */
+public final class BenchmarkMain {
+
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        CommandLineOptions commandLine;
+        try {
+            commandLine = new CommandLineOptions(args);
+        } catch (CommandLineOptionException ex) {
+            System.err.println("Argumentos inválidos: " + ex.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            // Las opciones informativas las atiende el Main de JMH.
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        // JSON por defecto; "-rf" y "-rff" en la línea de comandos tienen prioridad.
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            builder.result(DEFAULT_RESULT_FILE);
+        }
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+}
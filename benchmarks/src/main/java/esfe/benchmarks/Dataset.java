@@ -0,0 +1,173 @@
+package esfe.benchmarks;
+
+import esfe.dominio.Pelicula;                // Filas sembradas en la tabla Pelicula.
+import esfe.persistencia.ConnectionManager;  // Conexión para contar filas e insertar usuarios por lotes.
+import esfe.persistencia.PeliculaDAO;        // Inserción por lotes de las peliculas.
+import esfe.persistencia.PeliculaTitleIndex; // Índice de títulos a descartar tras borrar filas.
+import esfe.utils.PasswordHasher;            // Hash de la contraseña de los usuarios sembrados.
+
+import java.sql.PreparedStatement; // Sentencias de conteo e inserción.
+import java.sql.ResultSet;         // Resultados del conteo y de los IDs.
+import java.sql.SQLException;      // Errores de la base de datos.
+import java.util.ArrayList;        // Bloques de peliculas a insertar.
+import java.util.Arrays;           // Recorte del arreglo de IDs.
+import java.util.List;             // Interfaz de listas.
+
+/**
+ * Datos sembrados para las mediciones. Todas las filas llevan el prefijo "bench " (peliculas) o el
+ * dominio "@bench.esfe" (usuarios), de modo que sembrar es idempotente: solo se insertan las filas que
+ * faltan para llegar al tamaño pedido.
+ *
+ * - Peliculas: titulo "bench &lt;palabra&gt; &lt;palabra&gt; &lt;n&gt;" con {@link #WORDS}; cada par de
+ *   palabras aparece en 1 de cada WORDS.length² filas, por lo que search() con un par es selectiva.
+ * - Usuarios: "user&lt;n&gt;@bench.esfe" con la contraseña {@link #PASSWORD} y status 1.
+ *
+ * Con la base de datos en proceso cada fork de JMH parte vacío. Con MySQL los datos se conservan entre
+ * corridas; para medir un tamaño menor que el ya sembrado conviene usar otra base de datos.
+ */
+final class Dataset {
+
+    /**
+     * Palabras de los titulos.
+     */
+    static final String[] WORDS = {
+            "alba", "bosque", "cielo", "duna", "eco", "faro", "gris", "hielo",
+            "isla", "jade", "lago", "luna", "mar", "niebla", "ocaso", "piedra",
+            "rio", "sal", "sol", "tierra", "trueno", "valle", "viento", "zafiro",
+            "acero", "brasa", "cobre", "delta", "espejo", "fuego", "granito", "humo"
+    };
+
+    /**
+     * Contraseña de todos los usuarios sembrados.
+     */
+    static final String PASSWORD = "bench-password";
+
+    private static final String PELICULA_PREFIX = "bench ";
+    private static final String USER_DOMAIN = "@bench.esfe";
+    private static final int BATCH_SIZE = 5_000; // Filas por transacción al sembrar.
+
+    private Dataset() {
+    }
+
+    /**
+     * Usa la base de datos en proceso si no se indicó otra con -Desfe.db.mode, y desactiva el límite de
+     * intentos de inicio de sesión (todas las mediciones vienen del mismo origen) salvo que se indique
+     * -Desfe.login.limit.enabled. Debe llamarse antes del primer uso de {@link ConnectionManager}.
+     */
+    static void configure() {
+        if (System.getProperty("esfe.db.mode") == null) {
+            System.setProperty("esfe.db.mode", "embedded");
+        }
+        if (System.getProperty("esfe.login.limit.enabled") == null) {
+            System.setProperty("esfe.login.limit.enabled", "false");
+        }
+    }
+
+    static String titulo(int n) {
+        return PELICULA_PREFIX + WORDS[n % WORDS.length] + " " + WORDS[(n / WORDS.length) % WORDS.length] + " " + n;
+    }
+
+    static String email(int n) {
+        return "user" + n + USER_DOMAIN;
+    }
+
+    /**
+     * Siembra peliculas hasta tener al menos {@code rows} y retorna sus IDs (a lo sumo {@code rows}).
+     */
+    static int[] seedPeliculas(int rows) throws SQLException {
+        configure();
+        int existing = count("SELECT COUNT(*) FROM Pelicula WHERE titulo LIKE 'bench %'");
+        PeliculaDAO dao = new PeliculaDAO();
+        List<Pelicula> chunk = new ArrayList<>(BATCH_SIZE);
+        for (int n = existing; n < rows; n++) {
+            chunk.add(new Pelicula(0, titulo(n), "Director " + (n % 997), "Genero " + (n % 13)));
+            if (chunk.size() == BATCH_SIZE || n == rows - 1) {
+                dao.createAll(chunk, BATCH_SIZE);
+                chunk.clear();
+            }
+        }
+        return ids("SELECT id FROM Pelicula WHERE titulo LIKE 'bench %' ORDER BY id LIMIT ?", rows);
+    }
+
+    /**
+     * Siembra usuarios hasta tener al menos {@code rows} y retorna sus IDs (a lo sumo {@code rows}).
+     * UserDAO no tiene inserción por lotes, por lo que se insertan directamente con JDBC.
+     */
+    static int[] seedUsers(int rows) throws SQLException {
+        configure();
+        int existing = count("SELECT COUNT(*) FROM Users WHERE email LIKE '%" + USER_DOMAIN + "'");
+        String hash = PasswordHasher.hashPassword(PASSWORD);
+        ConnectionManager manager = ConnectionManager.getInstance();
+        for (int from = existing; from < rows; from += BATCH_SIZE) {
+            int start = from;
+            int end = Math.min(from + BATCH_SIZE, rows);
+            manager.inTransaction(() -> {
+                try {
+                    PreparedStatement ps = manager.prepareStatement(
+                            "INSERT INTO Users (name, passwordHash, email, status) VALUES (?, ?, ?, ?)");
+                    for (int n = start; n < end; n++) {
+                        ps.setString(1, "Bench User " + n);
+                        ps.setString(2, hash);
+                        ps.setString(3, email(n));
+                        ps.setByte(4, (byte) 1);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    return null;
+                } finally {
+                    manager.disconnect(); // Libera la llamada de prepareStatement.
+                }
+            });
+        }
+        return ids("SELECT id FROM Users WHERE email LIKE '%" + USER_DOMAIN + "' ORDER BY id LIMIT ?", rows);
+    }
+
+    /**
+     * Elimina las peliculas cuyo titulo comienza con el prefijo indicado (filas creadas por una medición).
+     */
+    static void deletePeliculas(String prefix) throws SQLException {
+        ConnectionManager manager = ConnectionManager.getInstance();
+        try {
+            PreparedStatement ps = manager.prepareStatement("DELETE FROM Pelicula WHERE titulo LIKE ?");
+            ps.setString(1, prefix + "%");
+            ps.executeUpdate();
+        } finally {
+            manager.disconnect();
+        }
+        // Las filas se borraron sin pasar por el DAO: se descartan los datos guardados en memoria.
+        PeliculaDAO.getCache().clear();
+        PeliculaDAO.getSearchCache().clear();
+        PeliculaTitleIndex.getInstance().clear();
+    }
+
+    private static int count(String sql) throws SQLException {
+        ConnectionManager manager = ConnectionManager.getInstance();
+        try {
+            PreparedStatement ps = manager.prepareStatement(sql);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } finally {
+            manager.disconnect();
+        }
+    }
+
+    private static int[] ids(String sql, int limit) throws SQLException {
+        ConnectionManager manager = ConnectionManager.getInstance();
+        try {
+            PreparedStatement ps = manager.prepareStatement(sql);
+            ps.setInt(1, limit);
+            int[] ids = new int[limit];
+            int size = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids[size++] = rs.getInt(1);
+                }
+            }
+            return size == limit ? ids : Arrays.copyOf(ids, size);
+        } finally {
+            manager.disconnect();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package esfe.benchmarks;
+
+import esfe.dominio.Pelicula;            // Peliculas buscadas y modificadas.
+import esfe.dominio.User;                // Credenciales de cada sesión.
+import esfe.persistencia.ConnectionManager; // Estado del pool al final.
+import esfe.persistencia.DaoMetrics;     // Espera por conexiones medida por la capa de persistencia.
+import esfe.persistencia.LatencyHistogram; // Percentiles de latencia por operación.
+import esfe.persistencia.MethodMetrics;  // Métricas de la adquisición de conexiones.
+import esfe.persistencia.PeliculaDAO;    // Búsqueda, lectura y modificación de peliculas.
+import esfe.persistencia.PersistenceConfig; // Espera de la búsqueda mientras se escribe.
+import esfe.persistencia.UserDAO;        // Autenticación.
+
+import java.sql.SQLException;                      // Errores de la base de datos.
+import java.util.List;                             // Resultados de búsqueda.
+import java.util.LinkedHashMap;                    // Estadísticas en el orden del flujo.
+import java.util.Map;                              // Interfaz de mapas.
+import java.util.concurrent.ExecutorService;       // Ejecutor de las sesiones.
+import java.util.concurrent.Executors;             // Hilos virtuales.
+import java.util.concurrent.ThreadLocalRandom;     // Tiempos y datos al azar sin contención.
+import java.util.concurrent.TimeUnit;              // Conversión de tiempos.
+import java.util.concurrent.atomic.LongAdder;      // Contadores compartidos por las sesiones.
+import java.util.concurrent.locks.LockSupport;     // Espera del generador de llegadas.
+
+/**
+ * Generador de carga sin interfaz gráfica que simula usuarios concurrentes usando directamente
+ * {@link UserDAO} y {@link PeliculaDAO}. Cada sesión recorre el flujo real de la aplicación:
+ *
+ * 1. authenticate con un usuario sembrado.
+ * 2. Búsqueda mientras se escribe: teclea un texto letra por letra y, como el formulario de lectura,
+ *    solo busca cuando pasa "ui.search.debounceMs" sin teclear (o al terminar). Cada búsqueda pide la
+ *    primera página de "ui.table.pageSize" filas con searchPage(), la misma llamada que hace la tabla.
+ * 3. getById de una de las peliculas encontradas.
+ * 4. update de esa pelicula.
+ *
+ * Entre pasos espera un tiempo de reflexión exponencial de media --think-ms. Cada sesión corre en su
+ * propio hilo virtual. Dos modos:
+ * - closed (por defecto): --sessions sesiones simultáneas; cada una empieza otra al terminar, por lo
+ *   que la carga se adapta a la velocidad del sistema.
+ * - open: llegan --rate sesiones por segundo (llegadas de Poisson) sin importar cuántas estén en curso,
+ *   como usuarios independientes; si el sistema se satura las sesiones se acumulan.
+ *
+ * Al terminar muestra por operación la cantidad, los errores, el rendimiento (operaciones por segundo)
+ * y los percentiles de latencia, además de la espera por conexiones del pool.
+ *
+ * Uso (después de mvn -B package -f benchmarks/pom.xml):
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar esfe.benchmarks.LoadSimulator --mode=closed --sessions=200
+ * java -cp benchmarks/target/benchmarks.jar -Desfe.db.mode=mysql -Desfe.pool.maxSize=20 \
+ *      esfe.benchmarks.LoadSimulator --mode=open --rate=50 --duration=120
+ * </pre>
+ *
+ * Opciones ("--nombre=valor"): mode, sessions, rate, duration (segundos), warmup (segundos),
+ * think-ms, key-ms (media entre teclas), users y peliculas (filas sembradas, ver {@link Dataset}).
+ */
+public final class LoadSimulator {
+
+    /**
+     * Estadísticas de una operación. Solo se registran las llamadas terminadas después del calentamiento.
+     */
+    private static final class OperationStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * Llamada a un DAO cuya duración se mide.
+     */
+    @FunctionalInterface
+    private interface Operation<T> {
+        T call() throws SQLException;
+    }
+
+    private final String mode;
+    private final int sessions;
+    private final double rate;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final double thinkMs;
+    private final double keyMs;
+    private final long debounceMs;
+    private final int pageSize;
+    private final int users;
+    private final int peliculas;
+
+    private final UserDAO userDAO = new UserDAO();
+    private final PeliculaDAO peliculaDAO = new PeliculaDAO();
+    private final Map<String, OperationStats> stats = new LinkedHashMap<>();
+    private final LongAdder completedSessions = new LongAdder();
+    private final LatencyHistogram sessionLatency = new LatencyHistogram();
+    private int seededUsers;
+    private volatile long measureFrom; // Momento en que termina el calentamiento.
+    private volatile long deadline;    // Momento en que dejan de empezar sesiones.
+
+    private LoadSimulator(Map<String, String> options) {
+        mode = options.getOrDefault("mode", "closed");
+        sessions = Integer.parseInt(options.getOrDefault("sessions", "50"));
+        rate = Double.parseDouble(options.getOrDefault("rate", "20"));
+        durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "60")));
+        warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "10")));
+        thinkMs = Double.parseDouble(options.getOrDefault("think-ms", "500"));
+        keyMs = Double.parseDouble(options.getOrDefault("key-ms", "180"));
+        debounceMs = PersistenceConfig.getInt("ui.search.debounceMs", 250);
+        pageSize = PersistenceConfig.getInt("ui.table.pageSize", 200);
+        users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        peliculas = Integer.parseInt(options.getOrDefault("peliculas", "100000"));
+        if (!mode.equals("closed") && !mode.equals("open")) {
+            throw new IllegalArgumentException("--mode debe ser closed u open: " + mode);
+        }
+        for (String operation : new String[] {"authenticate", "searchPage", "getById", "update"}) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Opción inválida (se espera --nombre=valor): " + arg);
+            }
+            int equals = arg.indexOf('=');
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        Dataset.configure();
+        new LoadSimulator(options).run();
+        ConnectionManager.getInstance().shutdown();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Sembrando %d usuarios y %d peliculas...%n", users, peliculas);
+        seededUsers = Dataset.seedUsers(users).length;
+        Dataset.seedPeliculas(peliculas);
+
+        long start = System.nanoTime();
+        measureFrom = start + warmupNanos;
+        deadline = measureFrom + durationNanos;
+        System.out.printf("Modo %s: %s durante %d s (+%d s de calentamiento)...%n", mode,
+                mode.equals("closed") ? sessions + " sesiones simultáneas" : rate + " sesiones por segundo",
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos), TimeUnit.NANOSECONDS.toSeconds(warmupNanos));
+
+        MethodMetrics acquire = DaoMetrics.get("ConnectionManager", "connect");
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (acquire != null) {
+                // La espera por conexiones se mide desde el fin del calentamiento.
+                executor.submit(() -> {
+                    LockSupport.parkNanos(measureFrom - System.nanoTime());
+                    acquire.reset();
+                });
+            }
+            if (mode.equals("closed")) {
+                for (int i = 0; i < sessions; i++) {
+                    executor.submit(() -> {
+                        while (System.nanoTime() < deadline) {
+                            session(System.nanoTime());
+                        }
+                    });
+                }
+            } else {
+                // Llegadas de Poisson: los intervalos entre sesiones son exponenciales de media 1/rate.
+                long next = System.nanoTime();
+                while (next < deadline) {
+                    long scheduled = next;
+                    executor.submit(() -> session(scheduled));
+                    next += (long) (exponential(1_000.0 / rate) * 1_000_000);
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+            }
+        } // close() espera a que terminen las sesiones en curso.
+        report(System.nanoTime() - measureFrom, acquire);
+    }
+
+    /**
+     * Una sesión completa. En modo abierto {@code scheduled} es el momento en que debía empezar, por lo
+     * que la duración de la sesión incluye la demora por saturación del generador.
+     */
+    private void session(long scheduled) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            String email = Dataset.email(random.nextInt(seededUsers));
+            User user = measure("authenticate", () ->
+                    userDAO.authenticate(new User(0, null, Dataset.PASSWORD, email, (byte) 0)));
+            if (user == null) {
+                return;
+            }
+            think(thinkMs);
+
+            // Teclea "<palabra> <palabra>" y busca en cada pausa mayor que la espera del formulario.
+            String[] words = Dataset.WORDS;
+            String text = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            List<Pelicula> results = null;
+            for (int length = 1; length <= text.length(); length++) {
+                double pause = exponential(keyMs);
+                if (pause >= debounceMs || length == text.length()) {
+                    String typed = text.substring(0, length);
+                    results = measure("searchPage", () -> peliculaDAO.searchPage(typed, 0, pageSize)).getItems();
+                }
+                sleep(pause);
+            }
+            if (results == null || results.isEmpty()) {
+                return;
+            }
+            think(thinkMs);
+
+            int id = results.get(random.nextInt(results.size())).getId();
+            Pelicula pelicula = measure("getById", () -> peliculaDAO.getById(id));
+            if (pelicula == null) {
+                return;
+            }
+            think(thinkMs);
+
+            pelicula.setDirector("Director " + random.nextInt(1_000));
+            measure("update", () -> peliculaDAO.update(pelicula));
+            long end = System.nanoTime();
+            if (end >= measureFrom) {
+                sessionLatency.record(end - scheduled);
+                completedSessions.increment();
+            }
+        } catch (SQLException ex) {
+            // El error ya quedó contado en la operación que falló; la sesión termina.
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> T measure(String operation, Operation<T> work) throws SQLException {
+        OperationStats operationStats = stats.get(operation);
+        long start = System.nanoTime();
+        try {
+            T result = work.call();
+            if (start >= measureFrom) {
+                operationStats.latency.record(System.nanoTime() - start);
+            }
+            return result;
+        } catch (SQLException | RuntimeException ex) {
+            if (start >= measureFrom) {
+                operationStats.errors.increment();
+            }
+            throw ex;
+        }
+    }
+
+    private void think(double meanMs) throws InterruptedException {
+        sleep(exponential(meanMs));
+    }
+
+    private static void sleep(double ms) throws InterruptedException {
+        Thread.sleep((long) ms, (int) ((ms % 1) * 1_000_000));
+    }
+
+    /**
+     * Valor al azar con distribución exponencial de la media indicada.
+     */
+    private static double exponential(double mean) {
+        return -mean * Math.log(1 - ThreadLocalRandom.current().nextDouble());
+    }
+
+    private void report(long elapsedNanos, MethodMetrics acquire) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%nResultados de %.1f s medidos (%d sesiones completas, %.1f sesiones/s)%n",
+                seconds, completedSessions.sum(), completedSessions.sum() / seconds);
+        System.out.printf("%-14s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operación", "llamadas", "errores", "op/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, OperationStats> entry : stats.entrySet()) {
+            printRow(entry.getKey(), entry.getValue().latency, entry.getValue().errors.sum(), seconds);
+        }
+        printRow("sesión", sessionLatency, 0, seconds);
+        if (acquire != null) {
+            printRow("conexión", acquire.getLatency(), acquire.getErrors(), seconds);
+        }
+        ConnectionManager manager = ConnectionManager.getInstance();
+        System.out.printf("Pool: %d conexiones abiertas, %d libres.%n",
+                manager.getTotalConnections(), manager.getIdleConnections());
+    }
+
+    private static void printRow(String name, LatencyHistogram latency, long errors, double seconds) {
+        System.out.printf("%-14s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, latency.getCount(), errors,
+                latency.getCount() / seconds,
+                latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(90) / 1e6,
+                latency.getValueAtPercentile(99) / 1e6, latency.getValueAtPercentile(99.9) / 1e6,
+                latency.getMax() / 1e6);
+    }
+}
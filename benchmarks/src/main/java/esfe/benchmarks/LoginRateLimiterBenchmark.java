@@ -0,0 +1,84 @@
+package esfe.benchmarks;
+
+import esfe.persistencia.LoginRateLimiter; // Límite medido.
+
+import java.util.concurrent.TimeUnit; // Unidad de los resultados.
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de {@link LoginRateLimiter#tryAcquire(String, String)} con 1 y con 64 hilos ("-t" cambia la
+ * cantidad): cada hilo con sus propios correos y origen (celdas repartidas en los sketches), y todos
+ * sobre el mismo origen (una sola celda por fila, máxima contención en el CAS).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginRateLimiterBenchmark {
+
+    private static final int EMAILS = 1024; // Correos por hilo.
+
+    @State(Scope.Benchmark)
+    public static class Limiter {
+        LoginRateLimiter limiter;
+
+        @Setup(Level.Iteration)
+        public void create() {
+            // Buckets que no se vacían durante una iteración: se mide el camino completo de un
+            // intento aceptado.
+            limiter = new LoginRateLimiter(4, 4096, Integer.MAX_VALUE, 1, Integer.MAX_VALUE, 1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        String[] emails;
+        String source;
+        int next;
+
+        @Setup(Level.Trial)
+        public void create() {
+            long thread = Thread.currentThread().threadId();
+            emails = new String[EMAILS];
+            for (int i = 0; i < EMAILS; i++) {
+                emails[i] = "t" + thread + "_" + i + "@bench.esfe";
+            }
+            source = "10.0." + (thread >>> 8 & 255) + "." + (thread & 255);
+        }
+
+        String email() {
+            return emails[next++ & (EMAILS - 1)];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long distinctKeys1(Limiter limiter, Caller caller) {
+        return limiter.limiter.tryAcquire(caller.email(), caller.source);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long distinctKeys64(Limiter limiter, Caller caller) {
+        return limiter.limiter.tryAcquire(caller.email(), caller.source);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long sharedSource64(Limiter limiter, Caller caller) {
+        return limiter.limiter.tryAcquire(caller.email(), LoginRateLimiter.LOCAL_SOURCE);
+    }
+}
@@ -0,0 +1,219 @@
+package esfe.benchmarks;
+
+import esfe.dominio.Pelicula;         // Entidad medida.
+import esfe.persistencia.PeliculaDAO; // DAO medido.
+
+import java.sql.SQLException;                       // Errores de la base de datos.
+import java.util.ArrayDeque;                        // Peliculas pendientes de eliminar.
+import java.util.ArrayList;                         // Lote de peliculas a eliminar.
+import java.util.List;                              // Interfaz de listas.
+import java.util.Map;                               // Resultado de getByIds.
+import java.util.concurrent.ThreadLocalRandom;      // IDs y textos al azar sin contención.
+import java.util.concurrent.TimeUnit;               // Unidad de los resultados.
+import java.util.concurrent.atomic.AtomicInteger;   // Numeración de las filas creadas.
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mediciones de {@link PeliculaDAO} sobre tablas de 1 mil, 100 mil y 1 millón de peliculas
+ * ("-p rows=..." elige un tamaño). Los IDs y los textos buscados se eligen al azar entre las filas
+ * sembradas, por lo que las cachés del DAO actúan como lo harían con esa cantidad de datos; para
+ * medirlo sin ellas se desactivan con "-Desfe.cache.pelicula.maxSize=0" y
+ * "-Desfe.cache.pelicula.search.maxBytes=0".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PeliculaDAOBenchmark {
+
+    /**
+     * Prefijo de las filas creadas por create() y delete(); se eliminan al final de cada iteración.
+     */
+    private static final String CREATED_PREFIX = "benchnew ";
+
+    /**
+     * Tabla sembrada, compartida por todos los hilos de la medición.
+     */
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"1000", "100000", "1000000"})
+        public int rows;
+
+        PeliculaDAO dao;
+        int[] ids;
+        final AtomicInteger created = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void seed() throws SQLException {
+            ids = Dataset.seedPeliculas(rows);
+            dao = new PeliculaDAO();
+        }
+
+        @TearDown(Level.Iteration)
+        public void removeCreated() throws SQLException {
+            Dataset.deletePeliculas(CREATED_PREFIX);
+        }
+
+        int randomIndex() {
+            return ThreadLocalRandom.current().nextInt(ids.length);
+        }
+    }
+
+    /**
+     * Peliculas creadas antes de cada iteración para que delete() tenga filas que eliminar.
+     */
+    @State(Scope.Thread)
+    public static class Deletable {
+        static final int PER_ITERATION = 1_000;
+
+        final ArrayDeque<Pelicula> pending = new ArrayDeque<>();
+
+        @Setup(Level.Iteration)
+        public void create(Data data) throws SQLException {
+            List<Pelicula> peliculas = new ArrayList<>(PER_ITERATION);
+            for (int i = 0; i < PER_ITERATION; i++) {
+                peliculas.add(new Pelicula(0, CREATED_PREFIX + "delete " + data.created.incrementAndGet(), "Director", "Genero"));
+            }
+            data.dao.createAll(peliculas);
+            pending.clear();
+            pending.addAll(peliculas);
+        }
+    }
+
+    @Benchmark
+    public Pelicula create(Data data) throws SQLException {
+        int n = data.created.incrementAndGet();
+        return data.dao.create(new Pelicula(0, CREATED_PREFIX + n, "Director " + (n % 997), "Genero " + (n % 13)));
+    }
+
+    @Benchmark
+    public Pelicula getById(Data data) throws SQLException {
+        return data.dao.getById(data.ids[data.randomIndex()]);
+    }
+
+    /**
+     * Busca un par de palabras de los titulos, que aparece en 1 de cada 1024 filas.
+     */
+    @Benchmark
+    public List<Pelicula> search(Data data) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] words = Dataset.WORDS;
+        return data.dao.search(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+    }
+
+    /**
+     * Reescribe una fila al azar conservando su titulo, de modo que los datos no cambian entre iteraciones.
+     */
+    @Benchmark
+    public boolean update(Data data) throws SQLException {
+        int index = data.randomIndex();
+        int version = ThreadLocalRandom.current().nextInt(1_000);
+        return data.dao.update(new Pelicula(data.ids[index], Dataset.titulo(index), "Director " + version, "Genero " + (index % 13)));
+    }
+
+    /**
+     * Elimina una de las {@link Deletable#PER_ITERATION} peliculas creadas para la iteración. Cada
+     * iteración ejecuta exactamente esa cantidad de llamadas y reporta el tiempo total del lote.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = Deletable.PER_ITERATION)
+    @Measurement(iterations = 10, batchSize = Deletable.PER_ITERATION)
+    public boolean delete(Data data, Deletable deletable) throws SQLException {
+        return data.dao.delete(deletable.pending.poll());
+    }
+
+    /**
+     * 100 IDs al azar con una sola llamada a getByIds (consultas IN por bloques)...
+     */
+    @Benchmark
+    public Map<Integer, Pelicula> getByIds100(Data data) throws SQLException {
+        return data.dao.getByIds(randomIds(data, 100));
+    }
+
+    /**
+     * ...y los mismos 100 IDs con una llamada a getById por cada uno.
+     */
+    @Benchmark
+    public int getById100Loop(Data data) throws SQLException {
+        int found = 0;
+        for (int id : randomIds(data, 100)) {
+            if (data.dao.getById(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Caché por id vacía al comenzar cada iteración, para que las lecturas de todas las filas lleguen
+     * a la base de datos.
+     */
+    @State(Scope.Thread)
+    public static class Cold {
+        List<Integer> all;
+
+        @Setup(Level.Trial)
+        public void collect(Data data) {
+            all = new ArrayList<>(data.ids.length);
+            for (int id : data.ids) {
+                all.add(id);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            PeliculaDAO.getCache().clear();
+        }
+    }
+
+    /**
+     * Todas las filas sembradas con getByIds (un IN por bloque)...
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int getByIdsAll(Data data, Cold cold) throws SQLException {
+        return data.dao.getByIds(cold.all).size();
+    }
+
+    /**
+     * ...y las mismas filas con un getById por cada una. Cada ID se lee una sola vez por iteración,
+     * así que ninguna llamada se resuelve en memoria.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int getByIdAllLoop(Data data, Cold cold) throws SQLException {
+        int found = 0;
+        for (Integer id : cold.all) {
+            if (data.dao.getById(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static List<Integer> randomIds(Data data, int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(data.ids[data.randomIndex()]);
+        }
+        return ids;
+    }
+}
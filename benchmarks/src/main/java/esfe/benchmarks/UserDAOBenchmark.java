@@ -0,0 +1,68 @@
+package esfe.benchmarks;
+
+import esfe.dominio.User;         // Credenciales de la autenticación.
+import esfe.persistencia.UserDAO; // DAO medido.
+
+import java.sql.SQLException;                  // Errores de la base de datos.
+import java.util.concurrent.ThreadLocalRandom; // Usuarios al azar sin contención.
+import java.util.concurrent.TimeUnit;          // Unidad de los resultados.
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mediciones de {@link UserDAO#authenticate(User)} sobre tablas de 1 mil, 100 mil y 1 millón de
+ * usuarios: credenciales correctas, contraseña incorrecta y un correo que no existe.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDAOBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Data {
+        @Param({"1000", "100000", "1000000"})
+        public int rows;
+
+        UserDAO dao;
+        int seeded;
+
+        @Setup(Level.Trial)
+        public void seed() throws SQLException {
+            seeded = Dataset.seedUsers(rows).length;
+            dao = new UserDAO();
+        }
+
+        String randomEmail() {
+            return Dataset.email(ThreadLocalRandom.current().nextInt(seeded));
+        }
+    }
+
+    @Benchmark
+    public User authenticate(Data data) throws SQLException {
+        return data.dao.authenticate(new User(0, null, Dataset.PASSWORD, data.randomEmail(), (byte) 0));
+    }
+
+    @Benchmark
+    public User authenticateWrongPassword(Data data) throws SQLException {
+        return data.dao.authenticate(new User(0, null, "wrong-password", data.randomEmail(), (byte) 0));
+    }
+
+    @Benchmark
+    public User authenticateUnknownEmail(Data data) throws SQLException {
+        String email = "unknown" + ThreadLocalRandom.current().nextInt() + "@bench.esfe";
+        return data.dao.authenticate(new User(0, null, Dataset.PASSWORD, email, (byte) 0));
+    }
+}
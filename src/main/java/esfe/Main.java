@@ -1,11 +1,30 @@
 package esfe;
 
+import esfe.persistencia.PeliculaDAO;
+import esfe.persistencia.PeliculaTitleIndex;
+import esfe.persistencia.UserDAO;
+import esfe.persistencia.UserEmailFilter;
 import esfe.presentacion.LoginForm;
 import esfe.presentacion.MainForm;
 import javax.swing.*;
 
 public class Main {
     public static void main(String[] args) {
+        // Si está activado, el índice de titulos se construye en segundo plano; mientras tanto
+        // las búsquedas de peliculas consultan la base de datos.
+        if (PeliculaTitleIndex.isEnabled()) {
+            PeliculaTitleIndex.getInstance().buildAsync(new PeliculaDAO()).exceptionally(ex -> {
+                warn("No se pudo construir el índice de titulos; las búsquedas consultarán la base de datos.", ex);
+                return null;
+            });
+        }
+        // Igual con el filtro de correos: mientras se construye, authenticate consulta siempre.
+        if (UserEmailFilter.isEnabled()) {
+            UserEmailFilter.getInstance().buildAsync(new UserDAO()).exceptionally(ex -> {
+                warn("No se pudo construir el filtro de correos; el inicio de sesión consultará la base de datos.", ex);
+                return null;
+            });
+        }
 
         SwingUtilities.invokeLater(() -> {
             // Utiliza el hilo de despacho de eventos (Event Dispatch Thread - EDT) para asegurar
@@ -17,4 +36,11 @@ public class Main {
             loginForm.setVisible(true); // Hace visible la ventana de inicio de sesión, solicitando al usuario que ingrese sus credenciales.
         });
     }
+
+    // Muestra en el hilo de eventos el error de una tarea de inicio que corre en segundo plano.
+    private static void warn(String message, Throwable ex) {
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null,
+                message + "\n" + ex.getMessage(),
+                "Sistema", JOptionPane.WARNING_MESSAGE));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package esfe.persistencia;
+
+/**
+ * Medición de una llamada a un método de un DAO. El método la obtiene al comenzar con
+ * {@link MethodMetrics#start()}, indica su resultado con {@link #success(long)} y la cierra en su
+ * bloque finally con {@link #end()}; si no llegó a llamar a success(), la llamada se cuenta como error:
+ *
+ * <pre>
+ * CallTrace call = SEARCH_METRICS.start();
+ * try {
+ *     PreparedStatement ps = conn.prepareStatement(sql);
+ *     call.query(sql, param);  // Para el registro de consultas lentas.
+ *     call.acquired();         // Conexión y sentencia obtenidas.
+ *     ResultSet rs = ps.executeQuery();
+ *     call.executed();         // Consulta ejecutada.
+ *     ...                      // Conversión de las filas en objetos.
+ *     call.mapped();
+ *     call.success(records.size());
+ * } finally {
+ *     conn.disconnect();
+ *     call.end();
+ * }
+ * </pre>
+ *
+ * Las marcas acquired/executed/mapped acumulan el tiempo transcurrido desde la marca anterior en cada
+ * fase, por lo que un método que ejecuta varias consultas (por ejemplo por bloques) suma sus tiempos.
+ * Si la llamada supera el umbral de {@link SlowQueryLog}, se registra con su SQL y sus parámetros, y si
+ * una grabación de Java Flight Recorder lo pide se emite un {@link DaoCallEvent}.
+ *
+ * Cada llamada usa su propia instancia, que no debe compartirse entre hilos.
+ */
+final class CallTrace {
+
+    /**
+     * Valor que se registra en lugar de un parámetro que no debe quedar en los registros (por
+     * ejemplo el hash de una contraseña).
+     */
+    static final Object REDACTED = new Object() {
+        @Override
+        public String toString() {
+            return "****";
+        }
+    };
+
+    /**
+     * Medición vacía que se usa cuando las métricas, el registro de consultas lentas y el evento de JFR
+     * están desactivados.
+     */
+    static final CallTrace DISABLED = new CallTrace(null);
+
+    private final MethodMetrics metrics;
+    private final long start;
+    private final DaoCallEvent event; // null si ninguna grabación de JFR lo tenía activado al comenzar.
+    private long mark;          // Momento de la última marca de fase.
+    private long acquireNanos;  // Obtención de la conexión y de la sentencia.
+    private long executeNanos;  // Ejecución en la base de datos.
+    private long mapNanos;      // Lectura de las filas y conversión en objetos.
+    private String sql;
+    private Object[] params;
+    private long rows;
+    private boolean succeeded;
+
+    CallTrace(MethodMetrics metrics) {
+        this.metrics = metrics;
+        this.start = metrics == null ? 0 : System.nanoTime();
+        this.mark = start;
+        if (metrics != null && DaoCallEvent.isRecording()) {
+            event = new DaoCallEvent();
+            event.begin();
+        } else {
+            event = null;
+        }
+    }
+
+    /**
+     * Guarda la consulta ejecutada y sus parámetros para el registro de consultas lentas.
+     * Los parámetros sensibles deben pasarse como {@link #REDACTED}.
+     */
+    void query(String sql, Object... params) {
+        if (metrics != null) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Marca el fin de la obtención de la conexión y la sentencia.
+     */
+    void acquired() {
+        if (metrics != null) {
+            acquireNanos += lap();
+        }
+    }
+
+    /**
+     * Marca el fin de la ejecución de la consulta.
+     */
+    void executed() {
+        if (metrics != null) {
+            executeNanos += lap();
+        }
+    }
+
+    /**
+     * Marca el fin de la lectura de las filas.
+     */
+    void mapped() {
+        if (metrics != null) {
+            mapNanos += lap();
+        }
+    }
+
+    /**
+     * Indica que la llamada terminó bien.
+     *
+     * @param rowCount Filas retornadas o afectadas.
+     */
+    void success(long rowCount) {
+        if (metrics != null) {
+            this.rows = rowCount;
+            this.succeeded = true;
+        }
+    }
+
+    /**
+     * Registra la llamada en las métricas de su método, si fue lenta en el registro de consultas lentas
+     * y, si corresponde, como evento de JFR.
+     */
+    void end() {
+        if (metrics == null) {
+            return;
+        }
+        long total = System.nanoTime() - start;
+        if (DaoMetrics.isEnabled()) {
+            metrics.record(total, rows, !succeeded);
+        }
+        SlowQueryLog log = SlowQueryLog.getInstance();
+        if (metrics.isSlowLogged() && log.isSlow(total)) {
+            log.offer(new SlowQueryLog.Entry(System.currentTimeMillis(), metrics.getDao(), metrics.getMethod(),
+                    total, acquireNanos, executeNanos, mapNanos, sql, params, rows, !succeeded));
+        }
+        if (event != null) {
+            event.end();
+            // Los campos solo se completan si el evento supera el umbral de la grabación.
+            if (event.shouldCommit()) {
+                event.dao = metrics.getDao();
+                event.method = metrics.getMethod();
+                event.sqlId = DaoCallEvent.sqlId(sql);
+                event.sql = sql;
+                event.rows = rows;
+                event.connectionWait = acquireNanos;
+                event.executeTime = executeNanos;
+                event.mapTime = mapNanos;
+                event.failed = !succeeded;
+                event.commit();
+            }
+        }
+    }
+
+    private long lap() {
+        long now = System.nanoTime();
+        long elapsed = now - mark;
+        mark = now;
+        return elapsed;
+    }
+}
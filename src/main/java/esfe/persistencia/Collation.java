@@ -0,0 +1,58 @@
+package esfe.persistencia;
+
+import java.text.Normalizer; // Separa las letras de sus acentos.
+import java.util.Locale;     // Conversión a minúsculas independiente del idioma del sistema.
+
+/**
+ * Comparación de textos en memoria equivalente a la intercalación por defecto de MySQL 8
+ * (utf8mb4_0900_ai_ci), que no distingue mayúsculas ni acentos: "Acción" y "accion" son iguales
+ * para un LIKE o un índice UNIQUE. Las estructuras que responden en lugar de la base de datos
+ * (filtro de correos, índice de títulos, cache de búsquedas) comparan las claves plegadas con
+ * {@link #fold(String)} para no dar una respuesta distinta a la que daría la consulta.
+ */
+final class Collation {
+
+    private Collation() {
+    }
+
+    /**
+     * Pasa el texto a minúsculas y le quita los acentos y demás marcas diacríticas. También expande
+     * las letras que la intercalación trata como dos ("ß" como "ss", "æ" como "ae") y reduce a su
+     * letra base las que tienen un trazo en lugar de un acento ("ø", "ł", "đ").
+     */
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (isAscii(text)) {
+            return text.toLowerCase(Locale.ROOT); // Caso común: no hay acentos que quitar.
+        }
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFKD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue; // Acento separado de su letra por la descomposición.
+            }
+            switch (c) {
+                case 'ß' -> folded.append("ss");
+                case 'æ' -> folded.append("ae");
+                case 'œ' -> folded.append("oe");
+                case 'ø' -> folded.append('o');
+                case 'ł' -> folded.append('l');
+                case 'đ' -> folded.append('d');
+                default -> folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
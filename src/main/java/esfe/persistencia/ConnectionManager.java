@@ -2,125 +2,427 @@ package esfe.persistencia;
 
 
 import java.sql.Connection; // Representa una conexión a la base de datos.
-import java.sql.DriverManager; // Gestiona los drivers JDBC y establece conexiones.
+import java.sql.PreparedStatement; // Sentencias preparadas reutilizadas desde la caché de cada conexión.
 import java.sql.SQLException; // Representa errores específicos de la base de datos.
+import java.util.ArrayList; // Acciones pendientes de la transacción.
+import java.util.List; // Interfaz de listas.
+import javax.sql.DataSource; // Origen configurable de las conexiones físicas (MySQL, en proceso, etc.).
 
 /**
- * Esta clase se encarga de gestionar la conexión a la base de datos MySQL utilizando JDBC.
+ * Esta clase se encarga de gestionar la conexión a la base de datos utilizando JDBC.
+ * Las conexiones físicas se obtienen de un {@link DataSource} elegido por configuración
+ * (ver {@link DataSourceFactory}): MySQL por defecto o una base de datos en proceso.
  * Implementa el patrón Singleton para asegurar que solo exista una única instancia
- * de la clase y, por lo tanto, una única conexión a la base de datos compartida.
+ * de la clase, la cual administra un pool acotado de conexiones ({@link ConnectionPool}).
+ *
+ * Cada hilo que llama a {@link #connect()} recibe una conexión del pool que queda asociada
+ * a ese hilo hasta que llama a {@link #disconnect()} el mismo número de veces; en ese momento
+ * la conexión se devuelve al pool en lugar de cerrarse. De esta forma los DAO mantienen su
+ * patrón connect/disconnect sin pagar una conexión TCP nueva en cada operación.
  */
 public class ConnectionManager {
 
 
     /**
-     * Define la cadena de conexión a la base de datos MySQL. Contiene la información
-     * necesaria para establecer la comunicación con el servidor de base de datos.
-     *
-     * - jdbc:mysql://... : Indica el tipo de conexión (JDBC para MySQL).
-     * - localhost:3306 : Dirección del servidor MySQL y puerto. El puerto por defecto es 3306.
-     * - SecurityDB2025 : Especifica la base de datos a la que se quiere conectar.
-     * - user=java2025 : Nombre de usuario para la autenticación en MySQL.
-     * - password=12345 : Contraseña para la autenticación en MySQL.
-     * - useSSL=false : Deshabilita el uso de SSL. Puedes cambiarlo a 'true' si tu servidor MySQL lo requiere.
-     * - allowPublicKeyRetrieval=true : Permite la recuperación de la clave pública del servidor.
-     * Esto es a menudo necesario para versiones de MySQL Connector/J 8.x.
+     * Pool de conexiones físicas reutilizables. Se reemplaza si se cambia el DataSource.
+     */
+    private volatile ConnectionPool pool;
+
+    /**
+     * Conexión prestada al hilo actual junto con el número de llamadas a connect() pendientes
+     * de su correspondiente disconnect(). Permite que un DAO llame a otro método del mismo
+     * DAO (por ejemplo create() que llama a getById()) reutilizando la misma conexión.
      */
-    private static final String STR_CONNECTION = "jdbc:mysql://127.0.0.1:3306/SecurityDB2025?" +
-            "user=root&" + // Aquí el ? y el &
-            "password= caceresju_20";
+    private final ThreadLocal<Binding> binding = new ThreadLocal<>();
 
     /**
-     * Representa la conexión activa a la base de datos. Inicialmente es nula.
+     * Último error de una acción registrada con {@link #afterCommit(Runnable)} o
+     * {@link #afterRollback(Runnable)}. No se lanza a quien llamó: los cambios ya se confirmaron.
      */
-    private Connection connection;
+    private volatile RuntimeException lastActionError;
 
     /**
-     * Única instancia de la clase ConnectionManager (para el patrón Singleton).
-     * Se inicializa a null y se crea solo cuando se necesita por primera vez.
+     * Métricas de la adquisición de conexiones del pool (solo cuando el hilo no tenía una).
      */
-    private static ConnectionManager instance;
+    private static final MethodMetrics ACQUIRE_METRICS = DaoMetrics.forMethod("ConnectionManager", "connect").withoutSlowLog();
+
+    /**
+     * Conexión prestada a un hilo y la profundidad de llamadas anidadas a connect().
+     */
+    private static final class Binding {
+        private final ConnectionPool pool;       // Pool al que debe devolverse la conexión.
+        private final PooledConnection pooled;
+        private int depth;
+        private Transaction transaction; // Transacción abierta con inTransaction(), o null.
+
+        private Binding(ConnectionPool pool, PooledConnection pooled) {
+            this.pool = pool;
+            this.pooled = pooled;
+            this.depth = 1;
+        }
+    }
+
+    /**
+     * Acciones registradas durante la transacción más externa del hilo, que se ejecutan cuando
+     * termina: las de commit solo si se confirmó, las de rollback solo si se deshizo.
+     */
+    private static final class Transaction {
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private final List<Runnable> afterRollback = new ArrayList<>();
+
+        /**
+         * Ejecuta todas las acciones aunque alguna falle: una acción que lanza una excepción no debe
+         * dejar sin actualizar las cachés que dependían de las siguientes.
+         *
+         * @return El error de la primera acción que falló (los demás como suprimidos), o null.
+         */
+        private RuntimeException finish(boolean committed) {
+            RuntimeException error = null;
+            for (Runnable action : committed ? afterCommit : afterRollback) {
+                try {
+                    action.run();
+                } catch (RuntimeException ex) {
+                    if (error == null) {
+                        error = ex;
+                    } else {
+                        error.addSuppressed(ex);
+                    }
+                }
+            }
+            return error;
+        }
+    }
+
+    /**
+     * Contenedor de la única instancia de ConnectionManager (para el patrón Singleton).
+     * La JVM inicializa la clase Holder la primera vez que se accede a ella, de forma
+     * perezosa y segura entre hilos, sin necesidad de sincronizar getInstance().
+     */
+    private static final class Holder {
+        private static final ConnectionManager INSTANCE = new ConnectionManager();
+    }
 
     /**
      * Constructor privado para evitar la creación de instancias directamente desde fuera de la clase.
      * Esto es fundamental para el patrón Singleton.
      */
     private ConnectionManager() {
-        this.connection = null;
-        try {
-            // Carga el driver JDBC de MySQL. Esto es necesario para que Java pueda
-            // comunicarse con la base de datos MySQL.
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            // Si el driver no se encuentra, se lanza una excepción indicando el error.
-            throw new RuntimeException("Error al cargar el driver JDBC de MySQL. Asegúrate de que el conector MySQL esté en el classpath.", e);
-        }
+        // El pool abre las conexiones físicas con el DataSource indicado por la configuración.
+        this.pool = createPool(DataSourceFactory.create());
+    }
+
+    private static ConnectionPool createPool(DataSource dataSource) {
+        return new ConnectionPool(dataSource::getConnection);
+    }
+
+    /**
+     * Reemplaza el DataSource del que se obtienen las conexiones. El pool anterior se cierra:
+     * sus conexiones libres se cierran de inmediato y las prestadas al ser liberadas.
+     * Útil para pruebas o herramientas que necesitan apuntar a otra base de datos.
+     *
+     * @param dataSource Nuevo origen de conexiones.
+     */
+    public void setDataSource(DataSource dataSource) {
+        ConnectionPool previous = this.pool;
+        this.pool = createPool(dataSource);
+        previous.close();
     }
 
     /**
-     * Este método se encarga de establecer la conexión con la base de datos.
-     * Es sincronizado (`synchronized`) para asegurar que solo un hilo a la vez pueda
-     * intentar establecer la conexión, lo cual es importante en entornos multihilo.
+     * Este método se encarga de obtener una conexión con la base de datos.
+     * Si el hilo actual ya tiene una conexión prestada, se retorna la misma; en caso contrario
+     * se toma una del pool. No necesita ser sincronizado porque la conexión queda asociada
+     * únicamente al hilo que la solicitó y el pool espera con un semáforo en lugar de un monitor,
+     * de modo que un hilo virtual que espera una conexión no fija su hilo portador.
      *
      * @return La instancia de la conexión a la base de datos.
      * @throws SQLException Si ocurre un error al intentar conectar a la base de datos.
      */
-    public synchronized Connection connect() throws SQLException {
-        // Verifica si la conexión ya existe y si no está cerrada.
-        if (this.connection == null || this.connection.isClosed()) {
-            try {
-                // Intenta establecer la conexión utilizando la cadena de conexión.
-                this.connection = DriverManager.getConnection(STR_CONNECTION);
-            } catch (SQLException exception) {
-                // Si ocurre un error durante la conexión, se lanza una excepción SQLException
-                // con un mensaje más descriptivo que incluye el mensaje original de la excepción.
-                throw new SQLException("Error al conectar a la base de datos MySQL: " + exception.getMessage(), exception);
-            }
+    public Connection connect() throws SQLException {
+        Binding current = binding.get();
+        // Verifica si el hilo ya tiene una conexión prestada (llamadas anidadas).
+        if (current != null) {
+            current.depth++;
+            return current.pooled.getConnection();
+        }
+        CallTrace call = ACQUIRE_METRICS.start(); // Mide la espera por la conexión (ver DaoMetrics).
+        try {
+            // Toma una conexión del pool (reutilizada o recién abierta).
+            ConnectionPool currentPool = this.pool;
+            PooledConnection pooled = currentPool.borrow();
+            binding.set(new Binding(currentPool, pooled));
+            call.success(0);
+            return pooled.getConnection();
+        } catch (SQLException exception) {
+            // Si ocurre un error durante la conexión, se lanza una excepción SQLException
+            // con un mensaje más descriptivo que incluye el mensaje original de la excepción.
+            throw new SQLException("Error al conectar a la base de datos: " + exception.getMessage(), exception);
+        } finally {
+            call.end();
         }
-        // Retorna la conexión (ya sea la existente o la recién creada).
-        return this.connection;
     }
 
     /**
-     * Este método se encarga de cerrar la conexión a la base de datos.
-     * También lanza una SQLException si ocurre un error al intentar cerrar la conexión.
+     * Este método se encarga de liberar la conexión del hilo actual.
+     * La conexión no se cierra: cuando se libera la última llamada anidada a connect()
+     * se devuelve al pool para que otro hilo la reutilice. Si el hilo no tiene conexión
+     * prestada (por ejemplo, porque connect() falló) no se hace nada.
      *
-     * @throws SQLException Si ocurre un error al intentar cerrar la conexión.
+     * @throws SQLException Si ocurre un error al intentar liberar la conexión.
      */
     public void disconnect() throws SQLException {
-        // Verifica si la conexión existe (no es nula).
-        if (this.connection != null) {
+        Binding current = binding.get();
+        // Verifica si el hilo tiene una conexión prestada.
+        if (current == null) {
+            return;
+        }
+        if (--current.depth == 0) {
+            // Se libera la asociación con el hilo y la conexión vuelve al pool.
+            binding.remove();
+            current.pool.release(current.pooled);
+        }
+    }
+
+    /**
+     * Conexión prestada en exclusiva que no queda asociada al hilo actual. Se usa para cursores
+     * que permanecen abiertos más allá de una llamada (por ejemplo los Stream de streamSearch),
+     * de modo que las demás operaciones del hilo no compartan la conexión con el cursor abierto.
+     */
+    static final class Lease implements AutoCloseable {
+        private final ConnectionPool pool;
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        private Lease(ConnectionPool pool, PooledConnection pooled) {
+            this.pool = pool;
+            this.pooled = pooled;
+        }
+
+        Connection getConnection() {
+            return pooled.getConnection();
+        }
+
+        /**
+         * Devuelve la conexión al pool. Llamarlo más de una vez no tiene efecto.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                pool.release(pooled);
+            }
+        }
+    }
+
+    /**
+     * Presta una conexión exclusiva del pool que debe devolverse con {@link Lease#close()}.
+     *
+     * @throws SQLException Si no se puede obtener una conexión del pool.
+     */
+    Lease lease() throws SQLException {
+        ConnectionPool currentPool = this.pool;
+        CallTrace call = ACQUIRE_METRICS.start();
+        try {
+            Lease lease = new Lease(currentPool, currentPool.borrow());
+            call.success(0);
+            return lease;
+        } catch (SQLException exception) {
+            throw new SQLException("Error al conectar a la base de datos: " + exception.getMessage(), exception);
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Ejecuta un trabajo como una unidad: la conexión del hilo actual queda fija durante todo el
+     * trabajo, por lo que cada llamada a un DAO dentro de él reutiliza esa conexión, y los cambios
+     * se confirman con un único commit al final. Si el trabajo lanza una excepción, se deshacen.
+     *
+     * Si ya existe una transacción abierta en el hilo, el trabajo se une a ella y el commit
+     * (o rollback) lo realiza la transacción externa. Las acciones registradas con
+     * {@link #afterCommit(Runnable)} y {@link #afterRollback(Runnable)} se ejecutan al terminar la
+     * transacción más externa.
+     *
+     * Ejemplo: {@code conn.inTransaction(() -> { dao.create(a); dao.create(b); return null; });}
+     *
+     * @param work Trabajo a ejecutar.
+     * @return El resultado retornado por el trabajo.
+     * @throws SQLException Si el trabajo falla o no se puede confirmar la transacción.
+     */
+    public <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        Connection connection = connect();
+        Binding current = binding.get();
+        // Solo la transacción más externa controla el commit y el rollback.
+        Transaction transaction = null;
+        boolean committed = false;
+        Throwable failure = null; // Error del trabajo o del commit, que se relanza tras el rollback.
+        try {
+            if (current.transaction == null) {
+                transaction = new Transaction();
+                current.transaction = transaction;
+                connection.setAutoCommit(false);
+            }
+            T result = work.execute();
+            if (transaction != null) {
+                connection.commit();
+                committed = true;
+            }
+            return result;
+        } catch (Throwable ex) {
+            failure = ex;
+            // También ante un Error (AssertionError, OutOfMemoryError...): sin el rollback, restaurar
+            // el autocommit en el finally confirmaría el trabajo a medias.
+            if (transaction != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackEx) {
+                    ex.addSuppressed(rollbackEx);
+                }
+            }
+            throw ex;
+        } finally {
+            if (transaction != null) {
+                current.transaction = null;
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException ignored) {
+                    // Si no se puede restaurar, el pool la restaura o descarta al devolverla.
+                }
+            }
+            disconnect();
+            if (transaction != null) {
+                // Fuera de la transacción: las acciones ven los cambios ya confirmados (o deshechos).
+                RuntimeException actionError = transaction.finish(committed);
+                if (actionError != null) {
+                    // Tras un commit exitoso no se reporta un fallo por datos que sí se guardaron; tras
+                    // un rollback se conserva el error original del trabajo.
+                    lastActionError = actionError;
+                    if (failure != null) {
+                        failure.addSuppressed(actionError);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si el hilo actual está dentro de {@link #inTransaction(TransactionWork)}. Sus lecturas
+     * pueden ver cambios aún no confirmados, por lo que los DAO no las guardan en sus cachés.
+     */
+    public boolean isInTransaction() {
+        Binding current = binding.get();
+        return current != null && current.transaction != null;
+    }
+
+    /**
+     * Ejecuta una acción cuando se confirme la transacción del hilo actual, por ejemplo publicar en
+     * una caché una fila recién insertada. Fuera de una transacción (autocommit) se ejecuta de inmediato.
+     * Si la acción lanza una excepción, no se propaga: queda en {@link #getLastActionError()}.
+     */
+    public void afterCommit(Runnable action) {
+        Binding current = binding.get();
+        if (current == null || current.transaction == null) {
             try {
-                // Intenta cerrar la conexión.
-                this.connection.close();
-            } catch (SQLException exception) {
-                // Si ocurre un error al cerrar la conexión, se lanza una excepción SQLException
-                // con un mensaje más descriptivo.
-                throw new SQLException("Error al cerrar la conexión MySQL: " + exception.getMessage(), exception);
-            } finally {
-                // El bloque finally se ejecuta siempre, independientemente de si hubo una excepción o no.
-                // Aquí se asegura que la referencia a la conexión se establezca a null,
-                // indicando que ya no hay una conexión activa gestionada por esta instancia.
-                this.connection = null;
+                action.run();
+            } catch (RuntimeException ex) {
+                lastActionError = ex; // El cambio ya se confirmó con el autocommit.
             }
+        } else {
+            current.transaction.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Ejecuta una acción si se deshace la transacción del hilo actual, por ejemplo para descartar
+     * los IDs asignados a filas que no llegaron a existir. Fuera de una transacción no hace nada.
+     * Si la acción lanza una excepción, se agrega como suprimida al error que deshizo la transacción.
+     */
+    public void afterRollback(Runnable action) {
+        Binding current = binding.get();
+        if (current != null && current.transaction != null) {
+            current.transaction.afterRollback.add(action);
         }
     }
 
     /**
-     * Este método estático y sincronizado (`synchronized`) implementa el patrón Singleton.
-     * Devuelve la única instancia de ConnectionManager. Si la instancia aún no existe,
-     * la crea antes de devolverla. La sincronización asegura que la creación de la instancia
-     * sea segura en entornos multihilo (que varios hilos no intenten crear la instancia al mismo tiempo).
+     * Último error lanzado por una acción de {@link #afterCommit(Runnable)} o
+     * {@link #afterRollback(Runnable)}, o null si no hubo ninguno.
+     */
+    public RuntimeException getLastActionError() {
+        return lastActionError;
+    }
+
+    /**
+     * Obtiene una sentencia preparada sobre la conexión del hilo actual, reutilizándola desde la
+     * caché de sentencias de esa conexión si ya fue preparada antes. Equivale a
+     * {@code connect().prepareStatement(sql)}: cuenta como una llamada a {@link #connect()}, por lo
+     * que debe liberarse con {@link #disconnect()}. La sentencia retornada no debe cerrarse.
+     *
+     * @param sql Texto SQL de la sentencia.
+     * @return La sentencia preparada con sus parámetros limpios.
+     * @throws SQLException Si ocurre un error al conectar o al preparar la sentencia.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return prepareStatement(sql, java.sql.Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Igual que {@link #prepareStatement(String)} pero indicando si deben retornarse las claves generadas.
+     *
+     * @param sql Texto SQL de la sentencia.
+     * @param autoGeneratedKeys {@link java.sql.Statement#RETURN_GENERATED_KEYS} o {@link java.sql.Statement#NO_GENERATED_KEYS}.
+     */
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        // Igual que con connect(), quien llama es responsable de invocar disconnect() aunque falle la preparación.
+        connect();
+        return binding.get().pooled.getStatementCache().prepare(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Cantidad de sentencias preparadas que se reutilizaron desde la caché.
+     */
+    public long getStatementCacheHits() {
+        return StatementCache.getHits();
+    }
+
+    /**
+     * Cantidad de sentencias preparadas que no estaban en caché y tuvieron que prepararse.
+     */
+    public long getStatementCacheMisses() {
+        return StatementCache.getMisses();
+    }
+
+    /**
+     * Cierra el pool y todas sus conexiones físicas. Se utiliza al terminar la aplicación
+     * o en pruebas que necesitan liberar los recursos del servidor.
+     */
+    public void shutdown() {
+        pool.close();
+    }
+
+    /**
+     * Cantidad de conexiones físicas abiertas por el pool (libres y prestadas).
+     */
+    public int getTotalConnections() {
+        return pool.getTotalConnections();
+    }
+
+    /**
+     * Cantidad de conexiones libres en el pool.
+     */
+    public int getIdleConnections() {
+        return pool.getIdleConnections();
+    }
+
+    /**
+     * Este método estático implementa el patrón Singleton.
+     * Devuelve la única instancia de ConnectionManager, que se crea la primera vez que se solicita.
+     * No está sincronizado: la inicialización perezosa de la clase Holder ya es segura entre hilos,
+     * por lo que los hilos (incluidos los hilos virtuales) no compiten por un monitor en cada llamada.
      *
      * @return La única instancia de ConnectionManager.
      */
-    public static synchronized ConnectionManager getInstance() {
-        // Verifica si la instancia ya ha sido creada.
-        if (instance == null) {
-            // Si no existe, crea una nueva instancia de ConnectionManager.
-            instance = new ConnectionManager();
-        }
-        // Retorna la instancia existente (o la recién creada).
-        return instance;
+    public static ConnectionManager getInstance() {
+        return Holder.INSTANCE;
     }
 }
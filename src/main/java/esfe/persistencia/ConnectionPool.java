@@ -0,0 +1,275 @@
+package esfe.persistencia;
+
+import java.sql.Connection;   // Representa una conexión a la base de datos.
+import java.sql.SQLException; // Representa errores específicos de la base de datos.
+import java.util.Iterator;    // Recorrido de la cola de conexiones inactivas.
+import java.util.concurrent.ConcurrentLinkedDeque;  // Cola sin bloqueos para las conexiones inactivas.
+import java.util.concurrent.Executors;              // Fábrica del hilo de mantenimiento.
+import java.util.concurrent.ScheduledExecutorService; // Ejecuta periódicamente la limpieza del pool.
+import java.util.concurrent.Semaphore;              // Limita la cantidad de conexiones prestadas a la vez.
+import java.util.concurrent.TimeUnit;               // Unidades de tiempo para esperas y programación.
+import java.util.concurrent.atomic.AtomicInteger;   // Contador de conexiones físicas sin bloqueos.
+
+/**
+ * Pool acotado de conexiones JDBC. Mantiene entre {@code minSize} y {@code maxSize}
+ * conexiones físicas abiertas para que cada operación de los DAO no tenga que pagar
+ * el costo de abrir una conexión TCP y autenticarse contra MySQL.
+ *
+ * Características:
+ * - Validación de la conexión al prestarla (si lleva inactiva más que la ventana de validación).
+ * - Expulsión de conexiones que permanecen inactivas más de {@code idleTimeoutMs}.
+ * - Retiro de conexiones que superan {@code maxLifetimeMs} desde que fueron abiertas.
+ * - Tiempo máximo de espera ({@code borrowTimeoutMs}) cuando todas las conexiones están en uso.
+ *
+ * El pool no usa {@code synchronized} ni {@code Object.wait()}: la espera se hace con un
+ * {@link Semaphore} (que estaciona el hilo sin fijar el hilo portador de un hilo virtual) y
+ * las conexiones inactivas se entregan desde una cola sin bloqueos. La apertura de conexiones
+ * (red + autenticación) nunca ocurre mientras se retiene un bloqueo.
+ */
+class ConnectionPool {
+
+    /**
+     * Abre una nueva conexión física. Permite que el pool no dependa de cómo se obtiene la conexión.
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int minSize;             // Cantidad mínima de conexiones que se mantienen abiertas.
+    private final int maxSize;             // Cantidad máxima de conexiones físicas simultáneas.
+    private final long borrowTimeoutNanos; // Tiempo máximo de espera por una conexión libre.
+    private final long idleTimeoutNanos;   // Tiempo de inactividad tras el cual se cierra una conexión.
+    private final long maxLifetimeNanos;   // Tiempo máximo de vida de una conexión física.
+    private final long validationWindowNanos; // Si la conexión se usó hace menos que esto, no se valida.
+    private final int validationTimeoutSeconds; // Tiempo máximo para Connection.isValid().
+    private final int statementCacheSize; // Sentencias preparadas que se mantienen por conexión.
+
+    /**
+     * Un permiso por cada conexión que puede estar prestada o abriéndose. Como toda conexión
+     * física se abre con un permiso tomado, el total de conexiones nunca supera {@code maxSize}.
+     */
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>(); // Conexiones libres (la más reciente al inicio).
+    private final AtomicInteger total = new AtomicInteger(); // Conexiones físicas abiertas.
+    private volatile boolean closed; // Indica si el pool ya fue cerrado.
+
+    private final ScheduledExecutorService housekeeper; // Hilo que expulsa conexiones inactivas y repone el mínimo.
+
+    /**
+     * Crea el pool leyendo sus parámetros desde {@link PersistenceConfig}.
+     *
+     * @param factory Fábrica que abre las conexiones físicas.
+     */
+    ConnectionPool(ConnectionFactory factory) {
+        this(factory,
+                PersistenceConfig.getInt("pool.minSize", 2),
+                PersistenceConfig.getInt("pool.maxSize", 10),
+                PersistenceConfig.getLong("pool.borrowTimeoutMs", 30_000),
+                PersistenceConfig.getLong("pool.idleTimeoutMs", 600_000),
+                PersistenceConfig.getLong("pool.maxLifetimeMs", 1_800_000),
+                PersistenceConfig.getLong("pool.validationWindowMs", 500),
+                PersistenceConfig.getInt("pool.validationTimeoutSec", 5),
+                PersistenceConfig.getLong("pool.housekeepingIntervalMs", 30_000),
+                PersistenceConfig.getInt("pool.statementCacheSize", 64));
+    }
+
+    ConnectionPool(ConnectionFactory factory, int minSize, int maxSize, long borrowTimeoutMs,
+                   long idleTimeoutMs, long maxLifetimeMs, long validationWindowMs,
+                   int validationTimeoutSeconds, long housekeepingIntervalMs, int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Tamaño de pool inválido: min=" + minSize + ", max=" + maxSize);
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(maxLifetimeMs);
+        this.validationWindowNanos = TimeUnit.MILLISECONDS.toNanos(validationWindowMs);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize);
+
+        // El hilo de mantenimiento es daemon para no impedir que la aplicación termine.
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "esfe-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep,
+                housekeepingIntervalMs, housekeepingIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión del pool. Si no hay conexiones libres y aún no se alcanzó el máximo,
+     * abre una nueva; si se alcanzó, espera hasta que otra sea devuelta o venza el tiempo de espera.
+     *
+     * @return Una conexión válida y lista para usarse.
+     * @throws SQLException Si vence el tiempo de espera o no se puede abrir la conexión.
+     */
+    PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("El pool de conexiones está cerrado.");
+        }
+        try {
+            // Camino rápido: tryAcquire() no espera; solo si no hay permisos se estaciona el hilo.
+            if (!permits.tryAcquire() && !permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLException("Tiempo de espera agotado al obtener una conexión del pool ("
+                        + TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos) + " ms, máximo " + maxSize + " conexiones).");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión del pool.", ex);
+        }
+
+        try {
+            PooledConnection candidate;
+            // Se toma la conexión inactiva usada más recientemente; las inválidas se descartan.
+            while ((candidate = idle.pollFirst()) != null) {
+                if (isUsable(candidate)) {
+                    return candidate;
+                }
+                discard(candidate);
+            }
+            // No hay conexiones libres: el permiso tomado autoriza a abrir una nueva.
+            return open();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    /**
+     * Devuelve una conexión al pool. Si la conexión está cerrada o superó su tiempo de vida, se descarta.
+     *
+     * @param pooled La conexión prestada previamente con {@link #borrow()}.
+     */
+    void release(PooledConnection pooled) {
+        try {
+            addIdle(pooled);
+        } finally {
+            // La conexión ya está en la cola antes de liberar el permiso, así quien lo reciba la encuentra.
+            permits.release();
+        }
+    }
+
+    /**
+     * Cierra el pool y todas las conexiones inactivas. Las conexiones prestadas se cierran al ser devueltas.
+     */
+    void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Cantidad de conexiones físicas abiertas (libres y prestadas).
+     */
+    int getTotalConnections() {
+        return total.get();
+    }
+
+    /**
+     * Cantidad de conexiones libres en el pool.
+     */
+    int getIdleConnections() {
+        return idle.size();
+    }
+
+    private void addIdle(PooledConnection pooled) {
+        boolean reusable;
+        try {
+            reusable = !closed && !pooled.getConnection().isClosed() && !isExpired(pooled, System.nanoTime());
+            if (reusable && !pooled.getConnection().getAutoCommit()) {
+                // Una transacción que no se confirmó no debe filtrarse al siguiente usuario de la conexión.
+                pooled.getConnection().rollback();
+                pooled.getConnection().setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            reusable = false;
+        }
+
+        if (!reusable) {
+            discard(pooled);
+            return;
+        }
+        pooled.touch();
+        idle.addFirst(pooled);
+        // Si el pool se cerró mientras tanto, la conexión no debe quedar abierta en la cola.
+        if (closed && idle.removeFirstOccurrence(pooled)) {
+            discard(pooled);
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        PooledConnection pooled = new PooledConnection(factory.create(), statementCacheSize);
+        total.incrementAndGet();
+        return pooled;
+    }
+
+    private void discard(PooledConnection pooled) {
+        pooled.closeQuietly();
+        total.decrementAndGet();
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeNanos > 0 && now - pooled.getCreatedAt() >= maxLifetimeNanos;
+    }
+
+    /**
+     * Verifica si una conexión inactiva puede entregarse. Las conexiones usadas hace muy poco
+     * no se validan contra el servidor para evitar un viaje de red en cada préstamo.
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.nanoTime();
+        if (isExpired(pooled, now)) {
+            return false;
+        }
+        try {
+            if (now - pooled.getLastUsedAt() < validationWindowNanos) {
+                return !pooled.getConnection().isClosed();
+            }
+            return pooled.getConnection().isValid(validationTimeoutSeconds);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Tarea periódica: cierra las conexiones inactivas o vencidas y repone el mínimo configurado.
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.nanoTime();
+        // Se recorre desde la conexión usada hace más tiempo (final de la cola).
+        for (Iterator<PooledConnection> it = idle.descendingIterator(); it.hasNext(); ) {
+            PooledConnection pooled = it.next();
+            boolean idleTooLong = idleTimeoutNanos > 0 && now - pooled.getLastUsedAt() >= idleTimeoutNanos;
+            if (isExpired(pooled, now) || (idleTooLong && total.get() > minSize)) {
+                // Solo se descarta si ningún hilo la tomó mientras tanto.
+                if (idle.removeLastOccurrence(pooled)) {
+                    discard(pooled);
+                }
+            }
+        }
+
+        // Repone el mínimo. Cada conexión nueva se abre con un permiso para no superar maxSize.
+        while (!closed && total.get() < minSize && permits.tryAcquire()) {
+            try {
+                addIdle(open());
+            } catch (SQLException | RuntimeException ex) {
+                // Si el servidor no está disponible se reintentará en la próxima ejecución.
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
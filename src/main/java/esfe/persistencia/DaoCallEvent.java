@@ -0,0 +1,76 @@
+package esfe.persistencia;
+
+import jdk.jfr.Category;    // Agrupación del evento en JDK Mission Control.
+import jdk.jfr.Description; // Descripción del evento y sus campos.
+import jdk.jfr.Event;       // Clase base de los eventos de Java Flight Recorder.
+import jdk.jfr.Label;       // Nombre legible del evento y sus campos.
+import jdk.jfr.Name;        // Nombre del evento en las grabaciones y configuraciones.
+import jdk.jfr.Timespan;    // Campos que son duraciones.
+
+/**
+ * Evento de Java Flight Recorder por cada llamada a un método de un DAO (y por cada obtención de
+ * conexión del pool), emitido por {@link CallTrace#end()}. Su duración es la de la llamada completa y
+ * se desglosa en la espera por la conexión, la ejecución y la lectura de filas.
+ *
+ * Se activa y se filtra con la configuración de JFR, por ejemplo:
+ * {@code -XX:StartFlightRecording:esfe.DaoCall#enabled=true,esfe.DaoCall#threshold=5ms}. Si ninguna
+ * grabación lo tiene activado, las llamadas no lo crean.
+ */
+@Name("esfe.DaoCall")
+@Label("DAO Call")
+@Category({"esfe", "Persistencia"})
+@Description("Llamada a un método de un DAO de la capa de persistencia")
+final class DaoCallEvent extends Event {
+
+    /**
+     * Instancia usada solo para consultar si alguna grabación tiene activado el evento.
+     */
+    private static final DaoCallEvent PROBE = new DaoCallEvent();
+
+    @Label("DAO")
+    String dao;
+
+    @Label("Method")
+    String method;
+
+    @Label("SQL Id")
+    @Description("Identificador del texto SQL (hash en hexadecimal), igual en todas las ejecuciones de la misma sentencia")
+    String sqlId;
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Rows")
+    @Description("Filas retornadas o afectadas")
+    long rows;
+
+    @Label("Connection Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long connectionWait;
+
+    @Label("Execute Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long executeTime;
+
+    @Label("Map Time")
+    @Description("Lectura de las filas y conversión en objetos")
+    @Timespan(Timespan.NANOSECONDS)
+    long mapTime;
+
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * Indica si alguna grabación en curso tiene activado el evento.
+     */
+    static boolean isRecording() {
+        return PROBE.isEnabled();
+    }
+
+    /**
+     * Identificador estable de una sentencia SQL, o "-" si la llamada no ejecutó ninguna.
+     */
+    static String sqlId(String sql) {
+        return sql == null ? "-" : Integer.toHexString(sql.hashCode());
+    }
+}
@@ -0,0 +1,154 @@
+package esfe.persistencia;
+
+import java.sql.SQLException; // Errores específicos de la base de datos.
+import java.util.concurrent.CompletableFuture;  // Resultado asíncrono de una operación.
+import java.util.concurrent.ExecutorService;    // Ejecutor de las operaciones.
+import java.util.concurrent.Executors;          // Fábrica de ejecutores (hilos virtuales o pool fijo).
+import java.util.concurrent.Future;             // Tarea en ejecución, para poder interrumpirla.
+import java.util.concurrent.Semaphore;          // Limita las operaciones simultáneas.
+import java.util.concurrent.TimeUnit;           // Unidades del tiempo máximo.
+import java.util.concurrent.TimeoutException;   // Error con el que se completa una operación que venció.
+
+/**
+ * Ejecuta operaciones de los DAO de forma asíncrona para los métodos *Async (por ejemplo
+ * {@link PeliculaDAO#getByIdAsync(int)}), de modo que la interfaz gráfica no quede bloqueada
+ * esperando a la base de datos.
+ *
+ * - Ejecutor configurable con "async.executor": "virtual" (por defecto, un hilo virtual por operación)
+ *   o "platform" (pool fijo de "async.threads" hilos, 4 por defecto).
+ * - Concurrencia acotada: como máximo "async.maxConcurrency" operaciones (por defecto "pool.maxSize")
+ *   usan la base de datos a la vez; las demás esperan su turno sin ocupar conexiones del pool.
+ * - Tiempo máximo "async.timeoutMs" (30 segundos por defecto, 0 sin límite): al vencer, el
+ *   CompletableFuture se completa con {@link TimeoutException} y la operación se cancela.
+ * - Cancelación: {@code future.cancel(true)} interrumpe la espera y cancela la consulta en curso
+ *   mediante su {@link QueryHandle}, en los métodos que lo admiten.
+ * - Escrituras ({@link #submitWrite(DaoCall)}): sin tiempo máximo ni interrupción. Una escritura
+ *   cortada a la mitad pudo haberse confirmado igual, y reportarla como vencida invitaría a
+ *   repetirla; solo se descarta si se cancela antes de empezar.
+ *
+ * Los errores de la base de datos completan el CompletableFuture con la SQLException original.
+ */
+public final class DaoExecutor {
+
+    /**
+     * Operación de un DAO. Recibe el handle con el que puede cancelarse su consulta.
+     */
+    @FunctionalInterface
+    public interface DaoCall<T> {
+        T call(QueryHandle handle) throws SQLException;
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore permits;  // Un permiso por operación que puede usar la base de datos a la vez.
+    private final long timeoutMs;     // Tiempo máximo por defecto de cada operación.
+
+    /**
+     * Contenedor de la instancia compartida (inicialización perezosa, ver {@link ConnectionManager}).
+     */
+    private static final class Holder {
+        private static final DaoExecutor INSTANCE = new DaoExecutor();
+    }
+
+    private DaoExecutor() {
+        this(createExecutor(),
+                PersistenceConfig.getInt("async.maxConcurrency", PersistenceConfig.getInt("pool.maxSize", 10)),
+                PersistenceConfig.getLong("async.timeoutMs", 30_000));
+    }
+
+    DaoExecutor(ExecutorService executor, int maxConcurrency, long timeoutMs) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("La concurrencia máxima debe ser mayor que cero: " + maxConcurrency);
+        }
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrency);
+        this.timeoutMs = timeoutMs;
+    }
+
+    public static DaoExecutor getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static ExecutorService createExecutor() {
+        String type = PersistenceConfig.getString("async.executor", "virtual");
+        switch (type) {
+            case "virtual":
+                return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("esfe-dao-", 0).factory());
+            case "platform":
+                return Executors.newFixedThreadPool(PersistenceConfig.getInt("async.threads", 4), r -> {
+                    Thread t = new Thread(r, "esfe-dao");
+                    t.setDaemon(true); // No impide que la aplicación termine.
+                    return t;
+                });
+            default:
+                throw new IllegalStateException("Valor de async.executor no soportado: " + type);
+        }
+    }
+
+    /**
+     * Ejecuta la operación con el tiempo máximo configurado.
+     */
+    public <T> CompletableFuture<T> submit(DaoCall<T> call) {
+        return submit(call, timeoutMs);
+    }
+
+    /**
+     * Ejecuta la operación en segundo plano.
+     *
+     * @param call Operación a ejecutar.
+     * @param timeoutMs Tiempo máximo en milisegundos (0 sin límite).
+     * @return Un CompletableFuture que se completa con el resultado, con la excepción de la operación
+     * o con {@link TimeoutException} si vence el tiempo máximo.
+     */
+    public <T> CompletableFuture<T> submit(DaoCall<T> call, long timeoutMs) {
+        return submit(call, timeoutMs, true);
+    }
+
+    /**
+     * Ejecuta una escritura (create, update, delete) en segundo plano, sin tiempo máximo. Cancelar el
+     * CompletableFuture evita la escritura si todavía espera su turno, pero no interrumpe una que ya
+     * empezó: su resultado no se conocería y podría haberse confirmado.
+     */
+    public <T> CompletableFuture<T> submitWrite(DaoCall<T> call) {
+        return submit(call, 0, false);
+    }
+
+    private <T> CompletableFuture<T> submit(DaoCall<T> call, long timeoutMs, boolean interruptible) {
+        QueryHandle handle = new QueryHandle();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            boolean acquired = false;
+            try {
+                // Espera su turno; si mientras tanto se canceló o venció, no llega a usar la base de datos.
+                permits.acquire();
+                acquired = true;
+                if (!future.isDone()) {
+                    future.complete(call.call(handle));
+                }
+            } catch (InterruptedException ex) {
+                future.completeExceptionally(new SQLException("Operación interrumpida.", ex));
+            } catch (SQLException | RuntimeException ex) {
+                future.completeExceptionally(ex);
+            } finally {
+                if (acquired) {
+                    permits.release();
+                }
+            }
+        });
+
+        if (timeoutMs > 0) {
+            future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        future.whenComplete((result, ex) -> {
+            if (future.isCancelled() && !interruptible) {
+                // La escritura que todavía espera su turno no llega a ejecutarse (ve el futuro
+                // cancelado); la que ya empezó termina sin interrupciones.
+                task.cancel(false);
+            } else if (interruptible && (future.isCancelled() || ex instanceof TimeoutException)) {
+                task.cancel(true); // Interrumpe la espera de un permiso o de una conexión.
+                // Cancelar la consulta puede requerir un viaje al servidor: no se hace en el hilo que canceló.
+                executor.execute(handle::cancel);
+            }
+        });
+        return future;
+    }
+}
@@ -0,0 +1,96 @@
+package esfe.persistencia;
+
+import java.lang.management.ManagementFactory; // Servidor de MBeans de la plataforma.
+import java.util.ArrayList;                    // Copia de las métricas registradas.
+import java.util.List;                         // Interfaz de listas.
+import java.util.concurrent.ConcurrentHashMap; // Métricas por método.
+import javax.management.JMException;           // Errores al registrar un MBean.
+import javax.management.MBeanServer;           // Registro de los MBeans.
+import javax.management.ObjectName;            // Nombre JMX de cada método.
+
+/**
+ * Registro de las métricas de la capa de persistencia: una {@link MethodMetrics} por método de cada
+ * DAO (create, update, delete, search, getById, authenticate, updatePassword, ...) y otra para la
+ * adquisición de conexiones ("ConnectionManager.connect").
+ *
+ * - "metrics.enabled" (true por defecto) activa la medición; desactivada, medir una llamada no
+ *   hace nada.
+ * - "metrics.jmx" (true por defecto) publica cada método como un MBean con el nombre
+ *   "esfe.persistencia:type=DaoMetrics,dao=&lt;DAO&gt;,method=&lt;método&gt;", visible con JConsole o VisualVM.
+ */
+public final class DaoMetrics {
+
+    private static final boolean ENABLED = PersistenceConfig.getBoolean("metrics.enabled", true);
+    private static final boolean JMX = PersistenceConfig.getBoolean("metrics.jmx", true);
+
+    private static final ConcurrentHashMap<String, MethodMetrics> METHODS = new ConcurrentHashMap<>();
+    private static volatile Exception jmxError; // Último error al publicar un método por JMX, o null.
+
+    private DaoMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Obtiene (o crea y publica por JMX) las métricas de un método. Los DAO las guardan en
+     * constantes al cargarse la clase.
+     */
+    static MethodMetrics forMethod(String dao, String method) {
+        return METHODS.computeIfAbsent(dao + "." + method, key -> {
+            MethodMetrics metrics = new MethodMetrics(dao, method);
+            if (ENABLED && JMX) {
+                register(metrics);
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * Métricas de un método, o null si el método aún no se registró.
+     *
+     * @param dao Clase del DAO, por ejemplo "PeliculaDAO".
+     * @param method Nombre del método, por ejemplo "search".
+     */
+    public static MethodMetrics get(String dao, String method) {
+        return METHODS.get(dao + "." + method);
+    }
+
+    /**
+     * Todas las métricas registradas.
+     */
+    public static List<MethodMetrics> getAll() {
+        return new ArrayList<>(METHODS.values());
+    }
+
+    /**
+     * Último error al publicar las métricas de un método por JMX, o null si todas se publicaron.
+     * Aunque falle JMX, las métricas siguen disponibles con {@link #get(String, String)}.
+     */
+    public static Exception getJmxError() {
+        return jmxError;
+    }
+
+    /**
+     * Borra los valores de todas las métricas.
+     */
+    public static void resetAll() {
+        METHODS.values().forEach(MethodMetrics::reset);
+    }
+
+    private static void register(MethodMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("esfe.persistencia:type=DaoMetrics,dao="
+                    + metrics.getDao() + ",method=" + metrics.getMethod());
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (JMException | RuntimeException ex) {
+            // Sin JMX las métricas siguen disponibles con DaoMetrics.get(); el error se conserva
+            // para getJmxError() en lugar de impedir que el DAO se cargue.
+            jmxError = ex;
+        }
+    }
+}
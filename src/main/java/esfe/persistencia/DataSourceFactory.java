@@ -0,0 +1,149 @@
+package esfe.persistencia;
+
+import java.io.IOException;        // Errores al leer el script de esquema.
+import java.io.InputStream;        // Lectura del script de esquema desde el classpath.
+import java.nio.charset.StandardCharsets; // Codificación del script de esquema.
+import java.sql.Connection;        // Conexión usada para ejecutar el script de esquema.
+import java.sql.SQLException;      // Errores específicos de la base de datos.
+import java.sql.Statement;         // Ejecución de las sentencias DDL del esquema.
+import javax.sql.DataSource;       // Origen de conexiones configurable.
+
+import com.mysql.cj.jdbc.MysqlDataSource; // DataSource del conector MySQL.
+import org.h2.jdbcx.JdbcDataSource;       // DataSource de la base de datos en proceso H2.
+
+/**
+ * Crea el {@link DataSource} que usa {@link ConnectionManager} según el parámetro "db.mode":
+ * - mysql (por defecto): servidor MySQL indicado en "db.url", "db.user" y "db.password".
+ * - embedded: base de datos H2 en memoria dentro del mismo proceso, con el esquema de
+ *   Users y Pelicula creado al iniciar. Permite ejecutar pruebas y mediciones sin un servidor MySQL.
+ * - custom: instancia la clase indicada en "db.dataSourceClass" (debe tener constructor sin parámetros).
+ */
+public final class DataSourceFactory {
+
+    /**
+     * Cadena de conexión por defecto al servidor MySQL.
+     *
+     * - jdbc:mysql://... : Indica el tipo de conexión (JDBC para MySQL).
+     * - 127.0.0.1:3306 : Dirección del servidor MySQL y puerto. El puerto por defecto es 3306.
+     * - SecurityDB2025 : Especifica la base de datos a la que se quiere conectar.
+     * - user / password : Credenciales para la autenticación en MySQL (pueden sobrescribirse con db.user y db.password).
+     * - useServerPrepStmts=true : Prepara las sentencias en el servidor, para que las sentencias
+     * reutilizadas desde {@link StatementCache} no se vuelvan a analizar en cada ejecución.
+     * - rewriteBatchedStatements=true : Envía los lotes de inserciones (executeBatch) como un único
+     * INSERT de varias filas, ver {@link PeliculaDAO#createAll(java.util.Collection)}.
+     * - useCursorFetch=true : Con setFetchSize() las consultas de streamSearch leen las filas por
+     * bloques desde un cursor del servidor en lugar de traer todo el resultado a memoria.
+     */
+    private static final String DEFAULT_MYSQL_URL = "jdbc:mysql://127.0.0.1:3306/SecurityDB2025?" +
+            "user=root&" +
+            "password= caceresju_20&" +
+            "useServerPrepStmts=true&" +
+            "rewriteBatchedStatements=true&" +
+            "useCursorFetch=true";
+
+    /**
+     * Cadena de conexión por defecto de la base de datos en proceso.
+     * MODE=MySQL acepta la sintaxis de MySQL, IGNORECASE=TRUE y COLLATION=... STRENGTH PRIMARY imitan
+     * la collation por defecto de MySQL (utf8mb4_0900_ai_ci: LIKE y UNIQUE sin distinguir mayúsculas
+     * ni acentos) y DB_CLOSE_DELAY=-1 mantiene los datos mientras viva la JVM aunque se cierren todas
+     * las conexiones.
+     */
+    private static final String DEFAULT_EMBEDDED_URL =
+            "jdbc:h2:mem:SecurityDB2025;MODE=MySQL;IGNORECASE=TRUE;COLLATION=ENGLISH STRENGTH PRIMARY;DB_CLOSE_DELAY=-1";
+
+    /**
+     * Script con el esquema de la base de datos en proceso.
+     */
+    private static final String EMBEDDED_SCHEMA = "esfe/persistencia/schema-embedded.sql";
+
+    private DataSourceFactory() {
+    }
+
+    /**
+     * Crea el DataSource indicado por la configuración.
+     *
+     * @return El DataSource listo para que el pool abra conexiones.
+     * @throws IllegalStateException Si el modo no es válido o no se puede preparar la base de datos.
+     */
+    public static DataSource create() {
+        String mode = PersistenceConfig.getString("db.mode", "mysql");
+        switch (mode) {
+            case "mysql":
+                return createMysql();
+            case "embedded":
+                return createEmbedded();
+            case "custom":
+                return createCustom();
+            default:
+                throw new IllegalStateException("Valor de db.mode no soportado: " + mode);
+        }
+    }
+
+    private static DataSource createMysql() {
+        MysqlDataSource dataSource = new MysqlDataSource();
+        dataSource.setURL(PersistenceConfig.getString("db.url", DEFAULT_MYSQL_URL));
+        String user = PersistenceConfig.getString("db.user", null);
+        if (user != null) {
+            dataSource.setUser(user);
+            dataSource.setPassword(PersistenceConfig.getString("db.password", ""));
+        }
+        return dataSource;
+    }
+
+    private static DataSource createEmbedded() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(PersistenceConfig.getString("db.url", DEFAULT_EMBEDDED_URL));
+        dataSource.setUser(PersistenceConfig.getString("db.user", "sa"));
+        dataSource.setPassword(PersistenceConfig.getString("db.password", ""));
+        try {
+            bootstrapSchema(dataSource, EMBEDDED_SCHEMA);
+        } catch (SQLException | IOException ex) {
+            throw new IllegalStateException("Error al crear el esquema de la base de datos en proceso: " + ex.getMessage(), ex);
+        }
+        return dataSource;
+    }
+
+    private static DataSource createCustom() {
+        String className = PersistenceConfig.getString("db.dataSourceClass", null);
+        if (className == null) {
+            throw new IllegalStateException("db.mode=custom requiere el parámetro db.dataSourceClass.");
+        }
+        try {
+            return (DataSource) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException ex) {
+            throw new IllegalStateException("No se pudo crear el DataSource " + className + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Ejecuta un script SQL del classpath. Las sentencias se separan por ';' y las líneas
+     * que comienzan con "--" se consideran comentarios.
+     *
+     * @param dataSource Base de datos sobre la que se ejecuta el script.
+     * @param resource Ruta del script dentro del classpath.
+     */
+    static void bootstrapSchema(DataSource dataSource, String resource) throws SQLException, IOException {
+        String script;
+        try (InputStream in = DataSourceFactory.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("No se encontró el script " + resource);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            StringBuilder sql = new StringBuilder();
+            for (String line : script.split("\\R")) {
+                if (!line.trim().startsWith("--")) {
+                    sql.append(line).append('\n');
+                }
+            }
+            for (String ddl : sql.toString().split(";")) {
+                if (!ddl.isBlank()) {
+                    statement.execute(ddl);
+                }
+            }
+        }
+    }
+}
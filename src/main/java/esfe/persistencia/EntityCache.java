@@ -0,0 +1,314 @@
+package esfe.persistencia;
+
+import java.util.Iterator;      // Recorrido de las entradas para expulsar las más antiguas.
+import java.util.LinkedHashMap; // Mapa en orden de acceso (LRU).
+import java.util.Map;           // Interfaz de mapas.
+import java.util.concurrent.TimeUnit;              // Conversión del tiempo de vida.
+import java.util.concurrent.atomic.LongAdder;      // Contadores de estadísticas sin contención.
+import java.util.concurrent.locks.ReentrantLock;   // Bloqueo que no fija el hilo portador de un hilo virtual.
+import java.util.function.UnaryOperator;           // Función que copia una entidad.
+
+/**
+ * Caché acotada de entidades por ID que usan los DAO delante de getById (lectura a través de la caché).
+ * Evita volver a consultar la base de datos por filas que el usuario ya está viendo, por ejemplo
+ * al seleccionar una fila de la tabla en los formularios de lectura.
+ *
+ * - Tamaño máximo ("cache.&lt;nombre&gt;.maxSize", 1000 por defecto; 0 la desactiva) con expulsión LRU.
+ * - Admisión TinyLFU: cuando la caché está llena, una entidad nueva solo reemplaza a la menos reciente
+ *   si se ha pedido con más frecuencia que ella, de modo que un recorrido de IDs usados una sola vez
+ *   no expulsa a los que se consultan seguido. Las frecuencias se estiman con un sketch de 4 filas
+ *   de contadores de 4 bits que se reducen a la mitad periódicamente.
+ * - Tiempo de vida ("cache.&lt;nombre&gt;.ttlMs", 60 segundos por defecto) para acotar cuánto tiempo se
+ *   pueden ver cambios hechos por otras aplicaciones.
+ * - Invalidación exacta: update y delete quitan la entrada del ID modificado.
+ *
+ * Las entidades se guardan y se entregan como copias, así los cambios que haga quien llama sobre el
+ * objeto retornado no alteran la caché.
+ *
+ * @param <T> Tipo de la entidad.
+ */
+public final class EntityCache<T> {
+
+    /**
+     * Entidad guardada junto con el momento en que vence.
+     */
+    private static final class Entry<T> {
+        private final T value;
+        private final long expiresAt;
+
+        private Entry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize;           // Cantidad máxima de entidades.
+    private final long ttlNanos;         // Tiempo de vida de cada entrada.
+    private final UnaryOperator<T> copier; // Copia las entidades al guardarlas y al entregarlas.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Integer, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true); // Orden de acceso: la primera es la menos reciente.
+    private final FrequencySketch sketch;
+
+    /**
+     * Se incrementa en cada invalidación. Una lectura de la base de datos que comenzó antes de una
+     * invalidación no se guarda, porque podría contener datos anteriores a la escritura.
+     */
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Crea la caché leyendo su tamaño y tiempo de vida desde {@link PersistenceConfig}.
+     *
+     * @param name Nombre usado en los parámetros ("cache.&lt;nombre&gt;.maxSize" y "cache.&lt;nombre&gt;.ttlMs").
+     * @param copier Función que retorna una copia independiente de la entidad.
+     */
+    EntityCache(String name, UnaryOperator<T> copier) {
+        this(PersistenceConfig.getInt("cache." + name + ".maxSize", 1000),
+                PersistenceConfig.getLong("cache." + name + ".ttlMs", 60_000),
+                copier);
+    }
+
+    EntityCache(int maxSize, long ttlMs, UnaryOperator<T> copier) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Tamaño de caché inválido: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.copier = copier;
+        this.sketch = new FrequencySketch(Math.max(maxSize, 1));
+    }
+
+    /**
+     * Marca que debe obtenerse antes de leer la entidad de la base de datos y pasarse a
+     * {@link #put(int, Object, long)}.
+     */
+    long stamp() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Obtiene una copia de la entidad guardada, o null si no está o ya venció.
+     */
+    T get(int id) {
+        if (maxSize == 0) {
+            return null;
+        }
+        Entry<T> entry;
+        lock.lock();
+        try {
+            sketch.increment(id);
+            entry = entries.get(id);
+            if (entry != null && entry.expiresAt - System.nanoTime() <= 0) {
+                entries.remove(id);
+                entry = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copier.apply(entry.value);
+    }
+
+    /**
+     * Guarda una entidad leída de la base de datos, salvo que haya habido una invalidación
+     * desde que se obtuvo la marca.
+     *
+     * @param stamp Valor de {@link #stamp()} obtenido antes de la lectura.
+     */
+    void put(int id, T value, long stamp) {
+        if (maxSize == 0 || value == null) {
+            return;
+        }
+        T copy = copier.apply(value);
+        lock.lock();
+        try {
+            if (stamp == generation) {
+                admit(id, copy);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Guarda una entidad que se sabe actual (por ejemplo, la recién insertada por create).
+     */
+    void put(int id, T value) {
+        if (maxSize == 0 || value == null) {
+            return;
+        }
+        T copy = copier.apply(value);
+        lock.lock();
+        try {
+            sketch.increment(id);
+            admit(id, copy);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Quita la entidad del ID indicado (update / delete).
+     */
+    void invalidate(int id) {
+        lock.lock();
+        try {
+            generation++;
+            entries.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Vacía la caché.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cantidad de entidades guardadas.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cantidad de lecturas respondidas desde la caché.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Cantidad de lecturas que tuvieron que ir a la base de datos.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Proporción de lecturas respondidas desde la caché (entre 0 y 1).
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Cantidad de entidades expulsadas por falta de espacio.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Cantidad de entidades que no se admitieron por ser menos frecuentes que la candidata a expulsar.
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    /**
+     * Inserta o reemplaza la entrada aplicando la política de admisión. Debe llamarse con el bloqueo tomado.
+     */
+    private void admit(int id, T value) {
+        long now = System.nanoTime();
+        Entry<T> entry = new Entry<>(value, now + ttlNanos);
+        if (entries.containsKey(id) || entries.size() < maxSize) {
+            entries.put(id, entry);
+            return;
+        }
+        // Primero se quitan las entradas vencidas desde la menos reciente.
+        Iterator<Map.Entry<Integer, Entry<T>>> it = entries.entrySet().iterator();
+        while (it.hasNext() && entries.size() >= maxSize) {
+            Map.Entry<Integer, Entry<T>> eldest = it.next();
+            if (eldest.getValue().expiresAt - now > 0) {
+                // La menos reciente sigue vigente: solo se reemplaza si la nueva es más frecuente.
+                if (sketch.frequency(id) <= sketch.frequency(eldest.getKey())) {
+                    rejections.increment();
+                    return;
+                }
+                evictions.increment();
+            }
+            it.remove();
+        }
+        entries.put(id, entry);
+    }
+
+    /**
+     * Estimador aproximado de frecuencias (count-min) con contadores de 4 bits. Cada cierto número
+     * de incrementos todos los contadores se dividen a la mitad, para que las frecuencias antiguas
+     * pierdan peso. No es seguro para hilos; se usa con el bloqueo de la caché tomado.
+     */
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[] table;   // Un contador de 4 bits por byte (valor máximo 15).
+        private final int mask;
+        private final int sampleSize; // Incrementos entre cada reducción a la mitad.
+        private int additions;
+
+        private FrequencySketch(int maxSize) {
+            int width = Integer.highestOneBit(Math.max(16, maxSize) * 2 - 1) * 2; // Potencia de 2 >= 2 * maxSize.
+            this.table = new byte[width * SEEDS.length];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, maxSize);
+        }
+
+        private void increment(int key) {
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = index(key, row);
+                if (table[index] < 15) {
+                    table[index]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int frequency(int key) {
+            int min = 15;
+            for (int row = 0; row < SEEDS.length; row++) {
+                min = Math.min(min, table[index(key, row)]);
+            }
+            return min;
+        }
+
+        private int index(int key, int row) {
+            int h = key * SEEDS[row];
+            h ^= h >>> 16;
+            return row * (mask + 1) + (h & mask);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package esfe.persistencia;
+
+import java.sql.PreparedStatement; // Sentencia cuyos parámetros se asignan.
+import java.sql.SQLException;     // Errores específicos de la base de datos.
+import java.util.List;            // IDs de un bloque.
+
+/**
+ * Utilidades para las consultas {@code WHERE id IN (?, ?, ...)} de los métodos getByIds de los DAO.
+ *
+ * La cantidad de parámetros de cada consulta se redondea a la siguiente potencia de dos (sin superar
+ * el tamaño de bloque) y los lugares sobrantes se completan repitiendo el último ID. Así una consulta
+ * de cualquier tamaño usa uno de unos pocos textos SQL distintos, que se reutilizan desde la caché de
+ * sentencias de la conexión, en lugar de preparar un texto nuevo por cada cantidad de IDs.
+ */
+final class IdChunks {
+
+    private IdChunks() {
+    }
+
+    /**
+     * Cantidad de parámetros de la consulta para un bloque de 'count' IDs.
+     */
+    static int slots(int count, int chunkSize) {
+        int slots = Integer.highestOneBit(count);
+        if (slots < count) {
+            slots <<= 1; // Siguiente potencia de dos.
+        }
+        return Math.min(slots, chunkSize);
+    }
+
+    /**
+     * Lista de marcadores "?, ?, ..." para la cláusula IN.
+     */
+    static String placeholders(int slots) {
+        StringBuilder sql = new StringBuilder(slots * 3);
+        for (int i = 0; i < slots; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Asigna los IDs del bloque a los parámetros, repitiendo el último en los lugares sobrantes.
+     */
+    static void bind(PreparedStatement ps, List<Integer> chunk, int slots) throws SQLException {
+        for (int i = 0; i < slots; i++) {
+            ps.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+        }
+    }
+}
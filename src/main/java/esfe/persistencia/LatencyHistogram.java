@@ -0,0 +1,127 @@
+package esfe.persistencia;
+
+import java.util.concurrent.atomic.AtomicLong;      // Máximo registrado.
+import java.util.concurrent.atomic.AtomicLongArray; // Contadores de cada intervalo.
+import java.util.concurrent.atomic.LongAdder;       // Total y suma sin contención.
+
+/**
+ * Histograma de latencias al estilo HDR: los intervalos crecen en potencias de dos y cada potencia se
+ * divide en 64 sub-intervalos, de modo que el error relativo de los percentiles es menor al 2% en
+ * todo el rango (desde nanosegundos hasta unos 18 minutos) con un arreglo fijo de contadores.
+ *
+ * Registrar un valor no toma bloqueos ni reserva memoria: solo incrementa contadores atómicos, por lo
+ * que puede llamarse desde muchos hilos a la vez en el camino de cada consulta. Las lecturas
+ * (percentiles, media) recorren los contadores sin detener a quienes registran, por lo que reflejan
+ * un estado aproximado mientras hay llamadas en curso.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;                 // 64 sub-intervalos por potencia de dos.
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_BITS = 40;                // Valores hasta 2^40 ns (~18 minutos).
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    private static final int BUCKETS = SUB_COUNT * (MAX_BITS - SUB_BITS + 1);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Registra una latencia.
+     *
+     * @param nanos Duración en nanosegundos (los valores fuera de rango se acotan).
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(indexOf(value));
+        total.increment();
+        sum.add(value);
+        // Solo se intenta actualizar el máximo cuando se supera, para no competir en cada registro.
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Cantidad de valores registrados.
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * Latencia media en nanosegundos.
+     */
+    public double getMean() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Mayor latencia registrada en nanosegundos.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Latencia bajo la cual está el porcentaje indicado de los valores registrados.
+     *
+     * @param percentile Porcentaje entre 0 y 100 (por ejemplo 99.9).
+     * @return La latencia en nanosegundos (el límite superior de su intervalo), o 0 sin valores.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalent(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Borra los valores registrados.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Intervalo de un valor: los primeros 64 valores tienen intervalo propio; a partir de ahí,
+     * el bit más alto elige la potencia de dos y los 6 bits siguientes el sub-intervalo.
+     */
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> shift) - SUB_COUNT;
+        return SUB_COUNT * (shift + 1) + sub;
+    }
+
+    /**
+     * Mayor valor que cae en el intervalo indicado.
+     */
+    static long highestEquivalent(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_COUNT - 1;
+        long lowest = (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
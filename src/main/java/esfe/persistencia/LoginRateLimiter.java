@@ -0,0 +1,246 @@
+package esfe.persistencia;
+
+import java.security.SecureRandom;                   // Semilla secreta de las funciones hash.
+import java.util.Locale;                             // Normalización de los correos.
+import java.util.concurrent.TimeUnit;                // Conversión de los intervalos configurados.
+import java.util.concurrent.atomic.AtomicLongArray;  // Celdas de los sketches, actualizadas con CAS.
+import java.util.concurrent.atomic.LongAdder;        // Contadores de estadísticas sin contención.
+import java.util.concurrent.locks.ReentrantLock;     // Creación perezosa de la instancia compartida.
+
+/**
+ * Límite de intentos de inicio de sesión por correo y por origen, consultado por
+ * {@link UserDAO#authenticate(esfe.dominio.User, String)} antes de tocar la base de datos: un intento
+ * rechazado lanza {@link LoginThrottledException} sin ejecutar el SELECT ni calcular el hash.
+ *
+ * Cada clave tiene un "token bucket" de {@code burst} intentos que se recarga uno cada
+ * {@code intervalMs}. Los buckets no se guardan por clave sino en un sketch del tipo count-min: una
+ * matriz fija de {@code depth} filas por {@code width} celdas donde cada clave ocupa una celda por fila.
+ * La memoria es constante sin importar cuántos correos distintos se intenten, y una colisión entre
+ * claves solo puede hacer el límite más estricto, nunca más permisivo.
+ *
+ * Cada celda guarda el instante teórico en que el bucket vuelve a estar lleno (GCRA): consumir un
+ * intento es un CAS que lo adelanta un intervalo, y el intento se rechaza si ese instante queda más
+ * de {@code burst} intervalos en el futuro. No hay bloqueos; dos hilos solo compiten si sus claves
+ * caen en la misma celda.
+ *
+ * Configuración (persistencia.properties o -Desfe.&lt;clave&gt;):
+ * - login.limit.enabled (true)
+ * - login.limit.email.burst (5) y login.limit.email.intervalMs (12000): 5 intentos seguidos por
+ *   correo y luego uno cada 12 segundos.
+ * - login.limit.source.burst (30) y login.limit.source.intervalMs (1000): por origen.
+ * - login.limit.depth (4) y login.limit.width (4096): tamaño de cada sketch (128 KB cada uno).
+ */
+public final class LoginRateLimiter {
+
+    /**
+     * Origen de los intentos hechos desde esta aplicación de escritorio. Como todos vienen del mismo
+     * equipo, su límite acota el total de intentos de la instancia.
+     */
+    public static final String LOCAL_SOURCE = "local";
+
+    private static final boolean ENABLED = PersistenceConfig.getBoolean("login.limit.enabled", true);
+    private static final ReentrantLock INSTANCE_LOCK = new ReentrantLock();
+    private static volatile LoginRateLimiter instance;
+
+    /**
+     * Matriz de token buckets compartidos por hash. Las filas se guardan una tras otra en un solo
+     * arreglo.
+     */
+    private static final class Sketch {
+        private final AtomicLongArray cells;
+        private final int depth;
+        private final int mask;
+        private final long seed;
+        private final long intervalNanos;
+        private final long capacityNanos; // burst * intervalo: cuánto puede adelantarse el instante de cada celda.
+
+        private Sketch(int depth, int width, int burst, long intervalMs, long seed) {
+            if (depth < 1 || width < 1 || burst < 1 || intervalMs < 1) {
+                throw new IllegalArgumentException("Parámetros inválidos del límite de intentos de inicio de sesión.");
+            }
+            this.depth = depth;
+            int size = Integer.highestOneBit(width);
+            if (size < width) {
+                size <<= 1; // Ancho redondeado a potencia de 2 para indexar con una máscara.
+            }
+            this.mask = size - 1;
+            this.cells = new AtomicLongArray(depth * size);
+            this.seed = seed;
+            this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+            this.capacityNanos = intervalNanos * burst;
+        }
+
+        /**
+         * Consume un intento de la clave en todas sus celdas.
+         *
+         * @return 0 si se acepta; si no, nanosegundos que faltan para que se acepte.
+         */
+        private long acquire(String key, long now) {
+            long hash = hash(key, seed);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1; // Impar: las filas usan celdas distintas (doble hashing).
+            for (int row = 0; row < depth; row++) {
+                int index = row * (mask + 1) + ((h1 + row * h2) & mask);
+                while (true) {
+                    long full = cells.get(index);
+                    long next = Math.max(full, now) + intervalNanos;
+                    long excess = next - now - capacityNanos;
+                    if (excess > 0) {
+                        // Bucket vacío. Las filas anteriores ya descontaron el intento: el límite
+                        // se vuelve más estricto para esta clave, nunca más permisivo.
+                        return excess;
+                    }
+                    if (cells.compareAndSet(index, full, next)) {
+                        break;
+                    }
+                    // Otro hilo consumió de la misma celda: se vuelve a leer.
+                }
+            }
+            return 0;
+        }
+
+        private long memoryBytes() {
+            return (long) cells.length() * Long.BYTES;
+        }
+    }
+
+    private final Sketch emails;
+    private final Sketch sources;
+    private final long origin = System.nanoTime(); // Las celdas en 0 equivalen a buckets llenos.
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedByEmail = new LongAdder();
+    private final LongAdder rejectedBySource = new LongAdder();
+
+    /**
+     * @param depth Filas de cada sketch; más filas reducen el efecto de las colisiones.
+     * @param width Celdas por fila (se redondea a potencia de 2).
+     * @param emailBurst Intentos seguidos permitidos por correo.
+     * @param emailIntervalMs Milisegundos para recuperar un intento por correo.
+     * @param sourceBurst Intentos seguidos permitidos por origen.
+     * @param sourceIntervalMs Milisegundos para recuperar un intento por origen.
+     */
+    public LoginRateLimiter(int depth, int width, int emailBurst, long emailIntervalMs,
+                            int sourceBurst, long sourceIntervalMs) {
+        // Semillas secretas: sin ellas se podrían elegir correos que colisionen con el de otro usuario
+        // para bloquearlo.
+        SecureRandom random = new SecureRandom();
+        this.emails = new Sketch(depth, width, emailBurst, emailIntervalMs, random.nextLong());
+        this.sources = new Sketch(depth, width, sourceBurst, sourceIntervalMs, random.nextLong());
+    }
+
+    public static LoginRateLimiter getInstance() {
+        LoginRateLimiter current = instance;
+        if (current == null) {
+            INSTANCE_LOCK.lock();
+            try {
+                if (instance == null) {
+                    instance = new LoginRateLimiter(PersistenceConfig.getInt("login.limit.depth", 4),
+                            PersistenceConfig.getInt("login.limit.width", 4096),
+                            PersistenceConfig.getInt("login.limit.email.burst", 5),
+                            PersistenceConfig.getLong("login.limit.email.intervalMs", 12_000),
+                            PersistenceConfig.getInt("login.limit.source.burst", 30),
+                            PersistenceConfig.getLong("login.limit.source.intervalMs", 1_000));
+                }
+                current = instance;
+            } finally {
+                INSTANCE_LOCK.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reemplaza la instancia compartida (usado por las pruebas).
+     */
+    static void install(LoginRateLimiter limiter) {
+        INSTANCE_LOCK.lock();
+        try {
+            instance = limiter;
+        } finally {
+            INSTANCE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Consume un intento del origen y luego del correo. El origen se revisa primero: si un origen que
+     * superó su límite descontara antes del bucket del correo, podría agotar los intentos de una
+     * cuenta ajena sin que ninguno de ellos llegara a aceptarse.
+     *
+     * @return 0 si el intento se acepta; si no, milisegundos que faltan para que se acepte.
+     */
+    public long tryAcquire(String email, String source) {
+        if (!ENABLED) {
+            return 0;
+        }
+        long now = System.nanoTime() - origin;
+        long wait = sources.acquire(source == null ? LOCAL_SOURCE : source, now);
+        if (wait > 0) {
+            rejectedBySource.increment();
+            return toMillis(wait);
+        }
+        wait = emails.acquire(normalize(email), now);
+        if (wait > 0) {
+            rejectedByEmail.increment();
+            return toMillis(wait);
+        }
+        allowed.increment();
+        return 0;
+    }
+
+    /**
+     * Igual que {@link #tryAcquire(String, String)}, pero lanza una excepción si el intento se rechaza.
+     *
+     * @throws LoginThrottledException Si el correo o el origen superaron su límite.
+     */
+    public void check(String email, String source) throws LoginThrottledException {
+        long wait = tryAcquire(email, source);
+        if (wait > 0) {
+            throw new LoginThrottledException(wait);
+        }
+    }
+
+    public long getAllowed() {
+        return allowed.sum();
+    }
+
+    public long getRejectedByEmail() {
+        return rejectedByEmail.sum();
+    }
+
+    public long getRejectedBySource() {
+        return rejectedBySource.sum();
+    }
+
+    /**
+     * Memoria ocupada por las celdas de ambos sketches, en bytes.
+     */
+    public long getMemoryBytes() {
+        return emails.memoryBytes() + sources.memoryBytes();
+    }
+
+    private static String normalize(String email) {
+        // "Ana@Mail.com " y "ana@mail.com" comparten bucket.
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long toMillis(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /**
+     * Hash de 64 bits con semilla, con la mezcla final de MurmurHash3.
+     */
+    private static long hash(String key, long seed) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,30 @@
+package esfe.persistencia;
+
+import java.sql.SQLException; // Los DAOs reportan sus errores como SQLException.
+
+/**
+ * Intento de inicio de sesión rechazado por {@link LoginRateLimiter} antes de consultar la base de
+ * datos. Es una {@link SQLException} para que quienes ya llaman a {@link UserDAO#authenticate(esfe.dominio.User)}
+ * la reciban sin cambios, pero se puede distinguir para informar cuánto esperar.
+ */
+public class LoginThrottledException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String SQL_STATE = "08004"; // El servidor rechazó el intento de conexión.
+
+    private final long retryAfterMillis;
+
+    public LoginThrottledException(long retryAfterMillis) {
+        super("Demasiados intentos de inicio de sesión. Intente de nuevo en "
+                + Math.max(1, (retryAfterMillis + 999) / 1000) + " segundos.", SQL_STATE);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Milisegundos que faltan para que se acepte un nuevo intento.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
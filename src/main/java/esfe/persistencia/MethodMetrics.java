@@ -0,0 +1,134 @@
+package esfe.persistencia;
+
+import java.util.concurrent.atomic.LongAdder; // Contadores sin contención.
+
+/**
+ * Métricas de un método de un DAO (o de la adquisición de conexiones): llamadas, errores, filas y un
+ * {@link LatencyHistogram} de su duración. Se obtienen con {@link DaoMetrics#get(String, String)} o
+ * por JMX ({@link MethodMetricsMBean}).
+ */
+public final class MethodMetrics implements MethodMetricsMBean {
+
+    private final String dao;    // Clase del DAO, por ejemplo "PeliculaDAO".
+    private final String method; // Nombre del método, por ejemplo "search".
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private volatile boolean slowLogged = true; // false: las llamadas lentas no van a SlowQueryLog.
+
+    MethodMetrics(String dao, String method) {
+        this.dao = dao;
+        this.method = method;
+    }
+
+    /**
+     * Comienza a medir una llamada. Si las métricas y el registro de consultas lentas están
+     * desactivados y ninguna grabación de JFR pide {@link DaoCallEvent}, no mide nada.
+     */
+    CallTrace start() {
+        return DaoMetrics.isEnabled() || SlowQueryLog.isEnabled() || DaoCallEvent.isRecording()
+                ? new CallTrace(this) : CallTrace.DISABLED;
+    }
+
+    /**
+     * Excluye este método del registro de consultas lentas. Lo usa la adquisición de conexiones, cuyo
+     * tiempo ya aparece como "acquire" en la entrada del DAO que la pidió.
+     */
+    MethodMetrics withoutSlowLog() {
+        slowLogged = false;
+        return this;
+    }
+
+    boolean isSlowLogged() {
+        return slowLogged;
+    }
+
+    /**
+     * Registra una llamada terminada.
+     *
+     * @param nanos Duración de la llamada.
+     * @param rowCount Filas retornadas o afectadas.
+     * @param failed true si terminó con una excepción.
+     */
+    void record(long nanos, long rowCount, boolean failed) {
+        latency.record(nanos);
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+    }
+
+    public String getDao() {
+        return dao;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Histograma de latencias en nanosegundos.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMean() / 1_000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.getValueAtPercentile(50) / 1_000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.getValueAtPercentile(99) / 1_000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.getValueAtPercentile(99.9) / 1_000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMax() / 1_000.0;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        calls.reset();
+        errors.reset();
+        rows.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s.%s: %d llamadas, %d errores, %d filas, p50 %.1f us, p99 %.1f us, p999 %.1f us, max %.1f us",
+                dao, method, getCalls(), getErrors(), getRows(),
+                getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
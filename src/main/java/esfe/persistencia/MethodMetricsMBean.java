@@ -0,0 +1,38 @@
+package esfe.persistencia;
+
+/**
+ * Interfaz de administración (JMX) de las métricas de un método de un DAO. Los atributos pueden
+ * consultarse con JConsole o VisualVM bajo el dominio "esfe.persistencia".
+ */
+public interface MethodMetricsMBean {
+
+    /**
+     * Cantidad de llamadas terminadas (exitosas o con error).
+     */
+    long getCalls();
+
+    /**
+     * Cantidad de llamadas que terminaron con una excepción.
+     */
+    long getErrors();
+
+    /**
+     * Total de filas retornadas o afectadas.
+     */
+    long getRows();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    /**
+     * Borra los contadores y el histograma.
+     */
+    void reset();
+}
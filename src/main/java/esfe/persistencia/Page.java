@@ -0,0 +1,67 @@
+package esfe.persistencia;
+
+import java.util.ArrayList;   // Copia de las filas de la página al recortar una lista completa.
+import java.util.Collections; // Utilidades para exponer la lista como solo lectura.
+import java.util.List;        // Interfaz de listas.
+import java.util.function.ToIntFunction; // Obtiene el ID de cada elemento.
+
+/**
+ * Página de resultados de una búsqueda paginada por conjunto de claves (keyset).
+ * En lugar de un desplazamiento (OFFSET), la siguiente página se pide con el cursor
+ * {@link #getNextCursor()}, que es el ID del último elemento de esta página; así cada
+ * página cuesta lo mismo sin importar qué tan avanzada esté en el resultado.
+ *
+ * @param <T> Tipo de los elementos de la página.
+ */
+public class Page<T> {
+    private final List<T> items;     // Elementos de la página, ordenados por ID ascendente.
+    private final int nextCursor;    // ID a partir del cual se pide la siguiente página.
+    private final boolean hasNext;   // Indica si existen más elementos después de esta página.
+
+    public Page(List<T> items, int nextCursor, boolean hasNext) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * Recorta una página de un resultado completo ya en memoria (índice de titulos o caché de
+     * búsquedas), con el mismo contenido y cursor que daría la consulta paginada.
+     *
+     * @param sorted Resultado completo ordenado por ID ascendente.
+     * @param id Obtiene el ID de un elemento.
+     */
+    static <T> Page<T> slice(List<T> sorted, ToIntFunction<T> id, int afterId, int pageSize) {
+        // Búsqueda binaria del primer elemento con ID mayor que el cursor.
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (id.applyAsInt(sorted.get(mid)) <= afterId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = Math.min(sorted.size(), low + pageSize);
+        List<T> items = new ArrayList<>(sorted.subList(low, end));
+        int nextCursor = items.isEmpty() ? afterId : id.applyAsInt(items.get(items.size() - 1));
+        return new Page<>(items, nextCursor, end < sorted.size());
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * ID que debe pasarse como "afterId" para obtener la siguiente página.
+     * Solo tiene sentido cuando {@link #hasNext()} es verdadero.
+     */
+    public int getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+}
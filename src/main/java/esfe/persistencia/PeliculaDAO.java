@@ -4,19 +4,108 @@ import java.sql.PreparedStatement; // Clase para ejecutar consultas SQL preparad
 import java.sql.ResultSet;        // Interfaz para representar el resultado de una consulta SQL.
 import java.sql.SQLException;     // Clase para manejar errores relacionados con la base de datos SQL.
 import java.util.ArrayList;       // Clase para crear listas dinámicas de objetos.
+import java.util.Collection;      // Colección de peliculas a insertar en lote.
+import java.util.HashMap;         // Resultado de getByIds por ID.
+import java.util.Iterator;        // Recorrido de la colección por bloques.
+import java.util.LinkedHashSet;   // IDs de getByIds sin repetidos.
+import java.util.List;            // Interfaz de listas.
+import java.util.Map;             // Interfaz de mapas.
+import java.util.concurrent.CompletableFuture; // Resultado de las versiones asíncronas.
+import java.util.stream.Stream;   // Flujo perezoso de resultados.
 
 import esfe.dominio.Pelicula;        // Clase que representa la entidad de pelicula en el dominio de la aplicación.
 
 
+/**
+ * Acceso a datos de las peliculas. No guarda estado por operación: las sentencias y resultados son
+ * variables locales y la conexión se asocia al hilo que llama ({@link ConnectionManager}), por lo que
+ * una misma instancia puede usarse desde varios hilos a la vez.
+ */
 public class PeliculaDAO {
-    private ConnectionManager conn; // Objeto para gestionar la conexión con la base de datos.
-    private PreparedStatement ps;   // Objeto para ejecutar consultas SQL preparadas.
-    private ResultSet rs;           // Objeto para almacenar el resultado de una consulta SQL.
+    private final ConnectionManager conn; // Objeto para gestionar la conexión con la base de datos.
+    private final PeliculaTitleIndex titleIndex = PeliculaTitleIndex.getInstance(); // Índice en memoria de titulos (si está activado).
+
+    /**
+     * Caché de peliculas por ID compartida por todas las instancias del DAO (ver {@link EntityCache}).
+     */
+    private static final EntityCache<Pelicula> CACHE = new EntityCache<>("pelicula",
+            p -> new Pelicula(p.getId(), p.getTitulo(), p.getDirector(), p.getGenero()));
+
+    /**
+     * Caché de resultados de search() por titulo (ver {@link SearchCache}), vaciada en cada escritura.
+     */
+    private static final SearchCache<Pelicula> SEARCH_CACHE = new SearchCache<>("pelicula.search",
+            p -> new Pelicula(p.getId(), p.getTitulo(), p.getDirector(), p.getGenero()),
+            Pelicula::getTitulo,
+            p -> SearchCache.estimateBytes(p.getTitulo(), p.getDirector(), p.getGenero()));
+
+    /**
+     * Agrupa las lecturas simultáneas del mismo ID en una sola consulta (ver {@link SingleFlight}).
+     */
+    private static final SingleFlight<Integer, Pelicula> ID_FLIGHTS = new SingleFlight<>(
+            p -> new Pelicula(p.getId(), p.getTitulo(), p.getDirector(), p.getGenero()));
+
+    /**
+     * Agrupa las búsquedas simultáneas del mismo titulo en una sola consulta.
+     */
+    private static final SingleFlight<String, ArrayList<Pelicula>> SEARCH_FLIGHTS = new SingleFlight<>(list -> {
+        ArrayList<Pelicula> copies = new ArrayList<>(list.size());
+        for (Pelicula p : list) {
+            copies.add(new Pelicula(p.getId(), p.getTitulo(), p.getDirector(), p.getGenero()));
+        }
+        return copies;
+    });
+
+    /**
+     * Sentencia de inserción compartida por create() y createAll(); al ser el mismo texto SQL,
+     * ambas reutilizan la misma sentencia preparada de la caché de la conexión.
+     */
+    private static final String INSERT_SQL = "INSERT INTO " +
+            "Pelicula (titulo, director, genero)" +
+            "VALUES (?, ?, ?)";
+
+    // Métricas de cada método (ver DaoMetrics): llamadas, errores, filas e histograma de latencias.
+    private static final MethodMetrics CREATE_METRICS = DaoMetrics.forMethod("PeliculaDAO", "create");
+    private static final MethodMetrics CREATE_ALL_METRICS = DaoMetrics.forMethod("PeliculaDAO", "createAll");
+    private static final MethodMetrics UPDATE_METRICS = DaoMetrics.forMethod("PeliculaDAO", "update");
+    private static final MethodMetrics DELETE_METRICS = DaoMetrics.forMethod("PeliculaDAO", "delete");
+    private static final MethodMetrics SEARCH_METRICS = DaoMetrics.forMethod("PeliculaDAO", "search");
+    private static final MethodMetrics SEARCH_PAGE_METRICS = DaoMetrics.forMethod("PeliculaDAO", "searchPage");
+    private static final MethodMetrics GET_BY_ID_METRICS = DaoMetrics.forMethod("PeliculaDAO", "getById");
+    private static final MethodMetrics GET_BY_IDS_METRICS = DaoMetrics.forMethod("PeliculaDAO", "getByIds");
 
     public PeliculaDAO(){
         conn = ConnectionManager.getInstance();
     }
 
+    /**
+     * Caché de getById, para consultar sus estadísticas (aciertos, fallos, expulsiones).
+     */
+    public static EntityCache<Pelicula> getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Caché de search(), para consultar sus estadísticas (aciertos, refinamientos, fallos).
+     */
+    public static SearchCache<Pelicula> getSearchCache() {
+        return SEARCH_CACHE;
+    }
+
+    /**
+     * Agrupador de getById, para consultar cuántas lecturas se unieron a una consulta en curso.
+     */
+    public static SingleFlight<Integer, Pelicula> getIdFlights() {
+        return ID_FLIGHTS;
+    }
+
+    /**
+     * Agrupador de search(), para consultar cuántas búsquedas se unieron a una consulta en curso.
+     */
+    public static SingleFlight<String, ArrayList<Pelicula>> getSearchFlights() {
+        return SEARCH_FLIGHTS;
+    }
+
     /**
      * Crea un nueva la pelicula en la base de datos.
      *
@@ -29,16 +118,14 @@ public class PeliculaDAO {
      * durante la creación de la pelicula.
      */
     public Pelicula create(Pelicula pelicula) throws SQLException {
+        CallTrace call = CREATE_METRICS.start(); // Mide la llamada (ver DaoMetrics).
         Pelicula res = null; // Variable para almacenar el la pelicula creado que se retornará.
         try{
             // Preparar la sentencia SQL para la inserción de un nuevo la pelicula.
             // Se especifica que se retornen las claves generadas automáticamente.
-            PreparedStatement ps = conn.connect().prepareStatement(
-                    "INSERT INTO " +
-                            "Pelicula (titulo, director, genero)" +
-                            "VALUES (?, ?, ?)",
-                    java.sql.Statement.RETURN_GENERATED_KEYS
-            );
+            PreparedStatement ps = conn.prepareStatement(INSERT_SQL, java.sql.Statement.RETURN_GENERATED_KEYS);
+            call.query(INSERT_SQL, pelicula.getTitulo(), pelicula.getDirector(), pelicula.getGenero());
+            call.acquired();
             // Establecer los valores de los parámetros en la sentencia preparada.
             ps.setString(1, pelicula.getTitulo()); // Asignar el nombre del la pelicula.
             ps.setString(2, pelicula.getDirector()); // Hashear la contraseña antes de guardarla.
@@ -46,6 +133,7 @@ public class PeliculaDAO {
 
             // Ejecutar la sentencia de inserción y obtener el número de filas afectadas.
             int affectedRows = ps.executeUpdate();
+            call.executed();
 
             // Verificar si la inserción fue exitosa (al menos una fila afectada).
             if (affectedRows != 0) {
@@ -55,25 +143,147 @@ public class PeliculaDAO {
                 if (generatedKeys.next()) {
                     // Obtener el ID generado. Generalmente la primera columna contiene la clave primaria.
                     int idGenerado= generatedKeys.getInt(1);
-                    // Recuperar el la pelicula completo utilizando el ID generado.
-                    res = getById(idGenerado);
+                    // Construir la pelicula creada con el ID generado, sin volver a leerla de la base de datos,
+                    // y guardarla en la caché para las siguientes lecturas por ID.
+                    res = new Pelicula(idGenerado, pelicula.getTitulo(), pelicula.getDirector(), pelicula.getGenero());
+                    Pelicula created = new Pelicula(idGenerado, pelicula.getTitulo(), pelicula.getDirector(), pelicula.getGenero());
+                    // Dentro de una transacción la fila no existe para los demás hasta el commit.
+                    conn.afterCommit(() -> {
+                        CACHE.put(idGenerado, created);
+                        ID_FLIGHTS.forget(idGenerado);
+                        SEARCH_CACHE.clear(); // Los resultados de búsqueda guardados ya no están completos.
+                        SEARCH_FLIGHTS.forgetAll(); // Ni los de las búsquedas en curso.
+                        titleIndex.put(created); // Mantener al día el índice de titulos.
+                    });
                 } else {
                     // Lanzar una excepción si la creación de la pelicula falló y no se obtuvo un ID.
                     throw new SQLException("Creating pelicula failed, no ID obtained.");
                 }
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
+            call.success(res != null ? 1 : 0);
         }catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al crear el pelicula: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
             conn.disconnect(); // Desconectar de la base de datos.
+            call.end();
         }
         return res; // Retornar  la pelicula creado (con su ID asignado) o null si hubo un error.
     }
 
+    /**
+     * Crea muchas peliculas usando inserciones por lotes (addBatch/executeBatch) en lugar de una
+     * inserción, una lectura de clave y un getById por cada pelicula. Cada bloque de
+     * "pelicula.batchSize" peliculas (500 por defecto) se envía y confirma como una unidad.
+     *
+     * @param peliculas Las peliculas a crear. Al terminar, cada una tiene asignado su ID generado.
+     * @return La cantidad de peliculas creadas.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos. Los bloques
+     * confirmados antes del error permanecen en la base de datos.
+     */
+    public int createAll(Collection<Pelicula> peliculas) throws SQLException {
+        return createAll(peliculas, PersistenceConfig.getInt("pelicula.batchSize", 500));
+    }
+
+    /**
+     * Igual que {@link #createAll(Collection)} indicando el tamaño de cada lote.
+     *
+     * @param peliculas Las peliculas a crear. Al terminar, cada una tiene asignado su ID generado.
+     * @param batchSize Cantidad de peliculas que se envían en cada executeBatch().
+     * @return La cantidad de peliculas creadas.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public int createAll(Collection<Pelicula> peliculas, int batchSize) throws SQLException {
+        CallTrace call = CREATE_ALL_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        try {
+            int res = insertAll(peliculas, batchSize, call);
+            call.success(res);
+            return res;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Inserta las peliculas por bloques para createAll().
+     */
+    private int insertAll(Collection<Pelicula> peliculas, int batchSize, CallTrace call) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("El tamaño del lote debe ser mayor que cero: " + batchSize);
+        }
+        int created = 0; // Cantidad total de peliculas creadas.
+        Iterator<Pelicula> iterator = peliculas.iterator();
+        List<Pelicula> chunk = new ArrayList<>(Math.min(batchSize, peliculas.size()));
+        while (iterator.hasNext()) {
+            // Toma el siguiente bloque de peliculas.
+            chunk.clear();
+            while (iterator.hasNext() && chunk.size() < batchSize) {
+                chunk.add(iterator.next());
+            }
+            // Cada bloque se inserta y confirma en una sola transacción (o en la del hilo, si ya hay una).
+            created += conn.inTransaction(() -> {
+                int inserted = insertBatch(chunk, call);
+                List<Pelicula> inserts = new ArrayList<>(chunk);
+                List<Pelicula> confirmed = new ArrayList<>(inserts.size());
+                for (Pelicula pelicula : inserts) {
+                    confirmed.add(new Pelicula(pelicula.getId(), pelicula.getTitulo(), pelicula.getDirector(), pelicula.getGenero()));
+                }
+                conn.afterCommit(() -> {
+                    SEARCH_CACHE.clear(); // Los resultados de búsqueda guardados ya no están completos.
+                    SEARCH_FLIGHTS.forgetAll(); // Ni los de las búsquedas en curso.
+                    // Las peliculas confirmadas (ya con su ID) se agregan al índice de titulos.
+                    for (Pelicula pelicula : confirmed) {
+                        titleIndex.put(pelicula);
+                    }
+                });
+                // Si se deshace, los IDs asignados no corresponden a ninguna fila.
+                conn.afterRollback(() -> inserts.forEach(pelicula -> pelicula.setId(0)));
+                return inserted;
+            });
+        }
+        return created;
+    }
+
+    /**
+     * Inserta un bloque de peliculas con una sola ejecución por lotes y asigna los IDs generados.
+     * Con rewriteBatchedStatements=true el conector de MySQL lo envía como un INSERT de varias filas.
+     */
+    private int insertBatch(List<Pelicula> chunk, CallTrace call) throws SQLException {
+        try {
+            // La sentencia de inserción (la misma de create()) se obtiene de la caché de la conexión.
+            PreparedStatement ps = conn.prepareStatement(INSERT_SQL, java.sql.Statement.RETURN_GENERATED_KEYS);
+            call.query(INSERT_SQL, chunk.size() + " filas");
+            call.acquired();
+            for (Pelicula pelicula : chunk) {
+                ps.setString(1, pelicula.getTitulo());   // Asignar el titulo de la pelicula.
+                ps.setString(2, pelicula.getDirector()); // Asignar el director de la pelicula.
+                ps.setString(3, pelicula.getGenero());   // Asignar el genero de la pelicula.
+                ps.addBatch();                           // Agregar la fila al lote.
+            }
+            ps.executeBatch(); // Enviar todo el lote al servidor.
+            call.executed();
+
+            // Las claves generadas llegan en el mismo orden en que se agregaron las filas.
+            int assigned = 0;
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                while (assigned < chunk.size() && generatedKeys.next()) {
+                    chunk.get(assigned++).setId(generatedKeys.getInt(1));
+                }
+            }
+            if (assigned != chunk.size()) {
+                throw new SQLException("Creating peliculas failed, only " + assigned + " of " + chunk.size() + " IDs obtained.");
+            }
+            return assigned;
+        } catch (SQLException ex) {
+            // Capturar cualquier excepción SQL que ocurra durante el proceso.
+            throw new SQLException("Error al crear las peliculas en lote: " + ex.getMessage(), ex);
+        } finally {
+            // Bloque finally para asegurar que los recursos se liberen.
+            conn.disconnect(); // Desconectar de la base de datos.
+        }
+    }
+
     /**
      * Actualiza la información de la pelicula existente en la base de datos.
      *
@@ -86,14 +296,16 @@ public class PeliculaDAO {
      * durante la actualización de la pelicula.
      */
     public boolean update(Pelicula pelicula) throws SQLException{
+        CallTrace call = UPDATE_METRICS.start(); // Mide la llamada (ver DaoMetrics).
         boolean res = false; // Variable para indicar si la actualización fue exitosa.
         try{
             // Preparar la sentencia SQL para actualizar la información de una pelicula.
-            ps = conn.connect().prepareStatement(
-                    "UPDATE Pelicula " +
-                            "SET titulo = ?, director = ?, genero = ? " +
-                            "WHERE id = ?"
-            );
+            String sql = "UPDATE Pelicula " +
+                    "SET titulo = ?, director = ?, genero = ? " +
+                    "WHERE id = ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, pelicula.getTitulo(), pelicula.getDirector(), pelicula.getGenero(), pelicula.getId());
+            call.acquired();
 
             // Establecer los valores de los parámetros en la sentencia preparada.
             ps.setString(1, pelicula.getTitulo());  // Asignar el nuevo nombre de la pelicula.
@@ -104,15 +316,22 @@ public class PeliculaDAO {
             // Ejecutar la sentencia de actualización y verificar si se afectó alguna fila.
             if(ps.executeUpdate() > 0){
                 res = true; // Si executeUpdate() retorna un valor mayor que 0, significa que la actualización fue exitosa.
+                Pelicula updated = new Pelicula(pelicula.getId(), pelicula.getTitulo(), pelicula.getDirector(), pelicula.getGenero());
+                // Hasta el commit los demás hilos siguen viendo (y pueden guardar) la versión anterior.
+                conn.afterCommit(() -> {
+                    forget(updated.getId());  // La copia en caché y las búsquedas guardadas ya no son válidas.
+                    titleIndex.put(updated); // Reemplazar el titulo en el índice.
+                });
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
+            call.executed();
+            call.success(res ? 1 : 0);
         }catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al modificar el Pelicula: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
             conn.disconnect(); // Desconectar de la base de datos.
+            call.end();
         }
 
         return res; // Retornar el resultado de la operación de actualización.
@@ -129,58 +348,146 @@ public class PeliculaDAO {
      * durante la eliminación del Pelicula.
      */
     public boolean delete(Pelicula pelicula) throws SQLException{
+        CallTrace call = DELETE_METRICS.start(); // Mide la llamada (ver DaoMetrics).
         boolean res = false; // Variable para indicar si la eliminación fue exitosa.
         try{
             // Preparar la sentencia SQL para eliminar un Pelicula por su ID.
-            ps = conn.connect().prepareStatement(
-                    "DELETE FROM Pelicula WHERE id = ?"
-            );
+            String sql = "DELETE FROM Pelicula WHERE id = ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, pelicula.getId());
+            call.acquired();
             // Establecer el valor del parámetro en la sentencia preparada (el ID del Pelicula a eliminar).
             ps.setInt(1, pelicula.getId());
 
             // Ejecutar la sentencia de eliminación y verificar si se afectó alguna fila.
             if(ps.executeUpdate() > 0){
                 res = true; // Si executeUpdate() retorna un valor mayor que 0, significa que la eliminación fue exitosa.
+                int id = pelicula.getId();
+                conn.afterCommit(() -> {
+                    forget(id);               // Quitar la pelicula de la caché y descartar las búsquedas guardadas.
+                    titleIndex.remove(id);    // Quitar la pelicula del índice.
+                });
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
+            call.executed();
+            call.success(res ? 1 : 0);
         }catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al eliminar el Pelicula: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
             conn.disconnect(); // Desconectar de la base de datos.
+            call.end();
         }
 
         return res; // Retornar el resultado de la operación de eliminación.
     }
 
+    /**
+     * Descarta lo guardado sobre una pelicula modificada o eliminada: su copia en la caché, las
+     * lecturas en curso de su ID y todas las búsquedas guardadas o en curso.
+     */
+    private static void forget(int id) {
+        CACHE.invalidate(id);
+        ID_FLIGHTS.forget(id); // Las lecturas siguientes no se unen a una iniciada antes del cambio.
+        SEARCH_CACHE.clear();
+        SEARCH_FLIGHTS.forgetAll();
+    }
+
     /**
      * Busca Peliculas en la base de datos cuyo nombre contenga la cadena de búsqueda proporcionada.
      * La búsqueda se realiza de forma parcial, es decir, si el nombre del Pelicula contiene
      * la cadena de búsqueda (ignorando mayúsculas y minúsculas), será incluido en los resultados.
+     * Si el índice de titulos ({@link PeliculaTitleIndex}) está construido, la búsqueda se responde
+     * desde memoria sin consultar la base de datos. En caso contrario se usa la caché de búsquedas
+     * ({@link #getSearchCache()}): al escribir "matrix" letra por letra, cada texto se responde filtrando
+     * el resultado del texto anterior. Si otro hilo ya está consultando el mismo titulo, se espera
+     * y se reutiliza su resultado ({@link #getSearchFlights()}).
      *
      * @param titulo La cadena de texto a buscar dentro de los nombres de los Peliculas.
-     * @return Un ArrayList de objetos de la Pelicula que coinciden con el criterio de búsqueda.
-     * Retorna una lista vacía si no se encuentran Peliculas con el nombre especificado.
+     * @return Un ArrayList de objetos de la Pelicula que coinciden con el criterio de búsqueda,
+     * ordenados por ID. Retorna una lista vacía si no se encuentran Peliculas con el nombre especificado.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos
      * durante la búsqueda de Peliculas.
      */
     public ArrayList<Pelicula> search(String titulo) throws SQLException{
+        return search(titulo, null);
+    }
+
+    /**
+     * Igual que {@link #search(String)} pero permitiendo cancelar la consulta desde otro hilo con
+     * {@link QueryHandle#cancel()}, por ejemplo cuando el usuario siguió escribiendo y el resultado
+     * ya no se va a mostrar. Una búsqueda con handle no se agrupa con otras: su consulta es propia, para
+     * que cancelarla no haga fallar a las demás.
+     *
+     * @param titulo La cadena de texto a buscar dentro de los titulos de las peliculas.
+     * @param handle Handle con el que se puede cancelar la consulta, o null.
+     * @return Las peliculas encontradas.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos o la consulta fue cancelada.
+     */
+    public ArrayList<Pelicula> search(String titulo, QueryHandle handle) throws SQLException{
+        CallTrace call = SEARCH_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        try {
+            ArrayList<Pelicula> res = searchCached(titulo, handle, call);
+            call.success(res.size());
+            return res;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Resuelve search() desde el índice, la caché de búsquedas o la base de datos.
+     */
+    private ArrayList<Pelicula> searchCached(String titulo, QueryHandle handle, CallTrace call) throws SQLException{
+        if (conn.isInTransaction()) {
+            // Dentro de una transacción se consulta siempre, para ver sus propios cambios sin confirmar.
+            return querySearch(titulo, handle, call);
+        }
+        // El LIKE con comodín inicial recorre toda la tabla; si el índice está listo se usa en su lugar.
+        if (titleIndex.canAnswer(titulo)) {
+            return titleIndex.search(titulo);
+        }
+        ArrayList<Pelicula> cached = SEARCH_CACHE.get(titulo); // Resultado exacto o refinado desde la caché.
+        if (cached != null) {
+            return cached;
+        }
+        if (handle == null) {
+            return SEARCH_FLIGHTS.run(titulo, () -> querySearch(titulo, null, call));
+        }
+        return querySearch(titulo, handle, call);
+    }
+
+    /**
+     * Consulta la base de datos para search() y guarda el resultado en la caché de búsquedas.
+     */
+    private ArrayList<Pelicula> querySearch(String titulo, QueryHandle handle, CallTrace call) throws SQLException{
+        long stamp = SEARCH_CACHE.stamp(); // Marca para no guardar resultados leídos antes de una escritura concurrente.
+        boolean cacheable = !conn.isInTransaction(); // Lo leído dentro de una transacción puede deshacerse.
         ArrayList<Pelicula> records  = new ArrayList<>(); // Lista para almacenar los Peliculas encontrados.
 
         try {
             // Preparar la sentencia SQL para buscar Peliculas por nombre (usando LIKE para búsqueda parcial).
-            ps = conn.connect().prepareStatement("SELECT id, titulo, director, genero " +
+            // Ordenadas por ID como el índice de titulos, para que searchPage() pueda recortar páginas
+            // del resultado guardado en la caché.
+            String sql = "SELECT id, titulo, director, genero " +
                     "FROM Pelicula " +
-                    "WHERE titulo LIKE ?");
+                    "WHERE titulo LIKE ? " +
+                    "ORDER BY id";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, "%" + titulo + "%");
+            call.acquired();
 
             // Establecer el valor del parámetro en la sentencia preparada.
             // El '%' al inicio y al final permiten la búsqueda de la cadena 'name' en cualquier parte del nombre del Pelicula.
             ps.setString(1, "%" + titulo + "%");
 
-            // Ejecutar la consulta SQL y obtener el resultado.
-            rs = ps.executeQuery();
+            // Ejecutar la consulta SQL y obtener el resultado. Mientras se ejecuta, la sentencia
+            // queda asociada al handle para poder cancelarla.
+            if (handle != null) {
+                handle.attach(ps);
+            }
+            ResultSet rs = ps.executeQuery();
+            call.executed();
 
             // Iterar a través de cada fila del resultado.
             while (rs.next()){
@@ -194,22 +501,203 @@ public class PeliculaDAO {
                 // Agregar el objeto de la Pelicula a la lista de resultados.
                 records.add(pelicula);
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
             rs.close(); // Cerrar el conjunto de resultados para liberar recursos.
+            call.mapped();
         } catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al buscar pelicula: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
-            rs = null;         // Establecer el conjunto de resultados a null.
+            if (handle != null) {
+                handle.detach(); // La sentencia vuelve a la caché: ya no debe poder cancelarse.
+            }
             conn.disconnect(); // Desconectar de la base de datos.
         }
+        if (cacheable) {
+            SEARCH_CACHE.put(titulo, records, stamp); // Guardar el resultado para las búsquedas siguientes.
+        }
         return records; // Retornar la lista de Peliculas encontrados.
     }
 
+    /**
+     * Busca peliculas por titulo devolviendo solo una página de resultados. La paginación es por
+     * conjunto de claves: se piden las peliculas con ID mayor que "afterId" ordenadas por ID, de modo
+     * que el costo de cada página no crece con la posición (a diferencia de LIMIT ... OFFSET).
+     * Como search(), si el índice de titulos está listo o la caché de búsquedas tiene el resultado,
+     * la página se recorta en memoria sin consultar la base de datos; y una primera página que
+     * contiene todo el resultado se guarda en la caché para las búsquedas siguientes.
+     *
+     * @param titulo La cadena de texto a buscar dentro de los titulos de las peliculas.
+     * @param afterId El cursor: 0 para la primera página o {@link Page#getNextCursor()} de la anterior.
+     * @param pageSize Cantidad máxima de peliculas de la página.
+     * @return La página con las peliculas encontradas y el cursor de la siguiente.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public Page<Pelicula> searchPage(String titulo, int afterId, int pageSize) throws SQLException{
+        return searchPage(titulo, afterId, pageSize, null);
+    }
+
+    /**
+     * Igual que {@link #searchPage(String, int, int)} pero permitiendo cancelar la consulta desde otro
+     * hilo con {@link QueryHandle#cancel()}.
+     *
+     * @param handle Handle con el que se puede cancelar la consulta, o null.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos o la consulta fue cancelada.
+     */
+    public Page<Pelicula> searchPage(String titulo, int afterId, int pageSize, QueryHandle handle) throws SQLException{
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero: " + pageSize);
+        }
+        CallTrace call = SEARCH_PAGE_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        try {
+            Page<Pelicula> page = cachedPage(titulo, afterId, pageSize);
+            if (page == null) {
+                page = queryPage(titulo, afterId, pageSize, handle, call);
+            }
+            call.success(page.getItems().size());
+            return page;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Recorta la página del resultado completo en el índice de titulos o en la caché de búsquedas, o
+     * retorna null si debe consultarse la base de datos.
+     */
+    private Page<Pelicula> cachedPage(String titulo, int afterId, int pageSize) {
+        if (conn.isInTransaction()) {
+            return null; // Dentro de una transacción se consulta siempre, como en search().
+        }
+        ArrayList<Pelicula> all = titleIndex.canAnswer(titulo) ? titleIndex.search(titulo) : SEARCH_CACHE.get(titulo);
+        return all == null ? null : Page.slice(all, Pelicula::getId, afterId, pageSize);
+    }
+
+    /**
+     * Consulta una página en la base de datos para searchPage().
+     */
+    private Page<Pelicula> queryPage(String titulo, int afterId, int pageSize, QueryHandle handle, CallTrace call) throws SQLException{
+        long stamp = SEARCH_CACHE.stamp(); // Marca para no guardar resultados leídos antes de una escritura concurrente.
+        ArrayList<Pelicula> records  = new ArrayList<>(); // Lista para almacenar las peliculas de la página.
+        boolean hasNext = false; // Indica si quedan más peliculas después de esta página.
+
+        try {
+            // Preparar la sentencia SQL: mismo filtro que search() más el cursor por ID.
+            String sql = "SELECT id, titulo, director, genero " +
+                    "FROM Pelicula " +
+                    "WHERE titulo LIKE ? AND id > ? " +
+                    "ORDER BY id " +
+                    "LIMIT ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, "%" + titulo + "%", afterId, pageSize + 1);
+            call.acquired();
+
+            ps.setString(1, "%" + titulo + "%");
+            ps.setInt(2, afterId);
+            // Se pide una fila extra solo para saber si existe una página siguiente.
+            ps.setInt(3, pageSize + 1);
+
+            // Ejecutar la consulta SQL y obtener el resultado (asociada al handle mientras se ejecuta).
+            if (handle != null) {
+                handle.attach(ps);
+            }
+            ResultSet rs = ps.executeQuery();
+            call.executed();
+
+            while (rs.next()){
+                if (records.size() == pageSize) {
+                    hasNext = true; // La fila extra confirma que hay más resultados.
+                    break;
+                }
+                Pelicula pelicula = new Pelicula();
+                pelicula.setId(rs.getInt(1));           // Obtener el ID de la pelicula.
+                pelicula.setTitulo(rs.getString(2));    // Obtener el titulo de la pelicula.
+                pelicula.setDirector(rs.getString(3));  // Obtener el director de la pelicula.
+                pelicula.setGenero(rs.getString(4));    // Obtener el genero de la pelicula.
+                records.add(pelicula);
+            }
+            rs.close(); // Cerrar el conjunto de resultados para liberar recursos.
+            call.mapped();
+        } catch (SQLException ex){
+            // Capturar cualquier excepción SQL que ocurra durante el proceso.
+            throw new SQLException("Error al buscar pelicula por pagina: " + ex.getMessage(), ex);
+        } finally {
+            // Bloque finally para asegurar que los recursos se liberen.
+            if (handle != null) {
+                handle.detach(); // La sentencia vuelve a la caché: ya no debe poder cancelarse.
+            }
+            conn.disconnect(); // Desconectar de la base de datos.
+        }
+        if (afterId == 0 && !hasNext && !conn.isInTransaction()) {
+            // La primera página tiene todo el resultado: es el mismo que daría search().
+            SEARCH_CACHE.put(titulo, records, stamp);
+        }
+        int nextCursor = records.isEmpty() ? afterId : records.get(records.size() - 1).getId();
+        return new Page<>(records, nextCursor, hasNext);
+    }
+
+    /**
+     * Recorre las peliculas cuyo titulo contenga la cadena de búsqueda sin construir una lista con todos
+     * los resultados: las filas se leen desde un cursor del servidor en bloques de
+     * "stream.fetchSize" filas (500 por defecto) a medida que se consume el Stream, por lo que la
+     * memoria usada no depende de la cantidad de filas. Útil para exportaciones y procesos en segundo plano.
+     *
+     * El Stream usa una conexión exclusiva del pool que se devuelve al cerrarlo, por lo que
+     * debe usarse con try-with-resources:
+     * {@code try (Stream<Pelicula> s = dao.streamSearch("x")) { s.forEach(...); }}
+     * Los errores de la base de datos durante el recorrido se lanzan como {@link UncheckedSQLException}.
+     *
+     * @param titulo La cadena de texto a buscar ("" recorre toda la tabla).
+     * @return Un Stream perezoso de las peliculas encontrados.
+     * @throws SQLException Si ocurre un error al abrir la consulta.
+     */
+    public Stream<Pelicula> streamSearch(String titulo) throws SQLException {
+        return streamSearch(titulo, PersistenceConfig.getInt("stream.fetchSize", 500));
+    }
+
+    /**
+     * Igual que {@link #streamSearch(String)} indicando cuántas filas se leen del servidor en cada bloque.
+     */
+    public Stream<Pelicula> streamSearch(String titulo, int fetchSize) throws SQLException {
+        // Conexión exclusiva: el cursor queda abierto mientras el Stream no se cierre.
+        ConnectionManager.Lease lease = conn.lease();
+        PreparedStatement statement = null;
+        try {
+            // Sentencia propia (no de la caché) de solo avance y solo lectura, requisito para leer por bloques.
+            statement = lease.getConnection().prepareStatement("SELECT id, titulo, director, genero " +
+                    "FROM Pelicula " +
+                    "WHERE titulo LIKE ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setString(1, "%" + titulo + "%");
+            ResultSet resultSet = statement.executeQuery();
+            // Cada fila se convierte en objeto solo cuando el consumidor la pide.
+            return ResultSetStream.of(lease, statement, resultSet, row -> {
+                Pelicula pelicula = new Pelicula();
+                pelicula.setId(row.getInt(1));           // Obtener el ID de la pelicula.
+                pelicula.setTitulo(row.getString(2));    // Obtener el titulo de la pelicula.
+                pelicula.setDirector(row.getString(3));  // Obtener el director de la pelicula.
+                pelicula.setGenero(row.getString(4));    // Obtener el genero de la pelicula.
+                return pelicula;
+            });
+        } catch (SQLException ex) {
+            // Si la consulta no pudo abrirse, la sentencia se cierra (no pertenece a la caché y la
+            // conexión vuelve al pool) y la conexión se devuelve de inmediato.
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException closeEx) {
+                    ex.addSuppressed(closeEx);
+                }
+            }
+            lease.close();
+            throw new SQLException("Error al recorrer peliculas: " + ex.getMessage(), ex);
+        }
+    }
+
     /**
      * Obtiene un Pelicula de la base de datos basado en su ID.
+     * Si la pelicula está en la caché ({@link #getCache()}) se retorna una copia sin consultar la base de datos.
+     * Si otro hilo ya está leyendo el mismo ID, se espera y se reutiliza su resultado ({@link #getIdFlights()}).
      *
      * @param id El ID del Pelicula que se desea obtener.
      * @return Un objeto de la Pelicula si se encuentra un Pelicula con el ID especificado,
@@ -218,19 +706,55 @@ public class PeliculaDAO {
      * durante la obtención del Pelicula.
      */
     public Pelicula getById(int id) throws SQLException{
+        CallTrace call = GET_BY_ID_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        try {
+            Pelicula res = getByIdCached(id, call);
+            call.success(res != null ? 1 : 0);
+            return res;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Resuelve getById() desde la caché o la base de datos.
+     */
+    private Pelicula getByIdCached(int id, CallTrace call) throws SQLException{
+        if (conn.isInTransaction()) {
+            // Dentro de una transacción se consulta siempre, para ver sus propios cambios sin confirmar.
+            return queryById(id, call);
+        }
+        Pelicula cached = CACHE.get(id); // Buscar primero en la caché.
+        if (cached != null) {
+            return cached;
+        }
+        // Las lecturas simultáneas del mismo ID comparten una sola consulta.
+        return ID_FLIGHTS.run(id, () -> queryById(id, call));
+    }
+
+    /**
+     * Consulta la base de datos para getById() y guarda la pelicula leída en la caché.
+     */
+    private Pelicula queryById(int id, CallTrace call) throws SQLException{
+        long stamp = CACHE.stamp(); // Marca para no guardar datos leídos antes de una modificación concurrente.
+        boolean cacheable = !conn.isInTransaction(); // Lo leído dentro de una transacción puede deshacerse.
         Pelicula pelicula  = new Pelicula(); // Inicializar un objeto de la Pelicula que se retornará.
 
         try {
             // Preparar la sentencia SQL para seleccionar un Pelicula por su ID.
-            ps = conn.connect().prepareStatement("SELECT id, titulo, director, genero " +
+            String sql = "SELECT id, titulo, director, genero " +
                     "FROM Pelicula " +
-                    "WHERE id = ?");
+                    "WHERE id = ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, id);
+            call.acquired();
 
             // Establecer el valor del parámetro en la sentencia preparada (el ID a buscar).
             ps.setInt(1, id);
 
             // Ejecutar la consulta SQL y obtener el resultado.
-            rs = ps.executeQuery();
+            ResultSet rs = ps.executeQuery();
+            call.executed();
 
             // Verificar si se encontró algún registro.
             if (rs.next()) {
@@ -243,17 +767,154 @@ public class PeliculaDAO {
                 // Si no se encontró ningún Pelicula con el ID especificado, establecer el objeto de la Pelicula a null.
                 pelicula = null;
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
             rs.close(); // Cerrar el conjunto de resultados para liberar recursos.
+            call.mapped();
         } catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al obtener la pelicula por id: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
-            rs = null;         // Establecer el conjunto de resultados a null.
             conn.disconnect(); // Desconectar de la base de datos.
         }
+        if (pelicula != null && cacheable) {
+            CACHE.put(id, pelicula, stamp); // Guardar la pelicula leída en la caché.
+        }
         return pelicula; // Retornar el objeto de la Pelicula encontrado o null si no existe.
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtiene varias peliculas por su ID con consultas {@code WHERE id IN (...)} de hasta
+     * "pelicula.idsChunkSize" IDs cada una (500 por defecto), en lugar de una consulta por ID.
+     * Las peliculas que están en la caché ({@link #getCache()}) no se consultan.
+     *
+     * @param ids Los IDs de las peliculas (los repetidos se consultan una sola vez).
+     * @return Un mapa del ID a la pelicula; los IDs que no existen no aparecen en el mapa.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public Map<Integer, Pelicula> getByIds(Collection<Integer> ids) throws SQLException {
+        return getByIds(ids, PersistenceConfig.getInt("pelicula.idsChunkSize", 500));
+    }
+
+    /**
+     * Igual que {@link #getByIds(Collection)} indicando la cantidad máxima de IDs por consulta.
+     */
+    public Map<Integer, Pelicula> getByIds(Collection<Integer> ids, int chunkSize) throws SQLException {
+        CallTrace call = GET_BY_IDS_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        try {
+            Map<Integer, Pelicula> res = loadByIds(ids, chunkSize, call);
+            call.success(res.size());
+            return res;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Resuelve getByIds() desde la caché y la base de datos.
+     */
+    private Map<Integer, Pelicula> loadByIds(Collection<Integer> ids, int chunkSize, CallTrace call) throws SQLException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("El tamaño del bloque debe ser mayor que cero: " + chunkSize);
+        }
+        Map<Integer, Pelicula> res = new HashMap<>(Math.max(16, ids.size() * 4 / 3 + 1));
+        List<Integer> missing = new ArrayList<>(); // IDs que no están en la caché.
+        boolean cacheable = !conn.isInTransaction(); // Dentro de una transacción se consulta todo y no se guarda.
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            Pelicula cached = cacheable ? CACHE.get(id) : null;
+            if (cached != null) {
+                res.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return res;
+        }
+        long stamp = CACHE.stamp(); // Marca para no guardar datos leídos antes de una modificación concurrente.
+        List<Pelicula> loaded = new ArrayList<>(missing.size());
+
+        try {
+            conn.connect(); // Todos los bloques usan la misma conexión.
+            for (int from = 0; from < missing.size(); from += chunkSize) {
+                List<Integer> chunk = missing.subList(from, Math.min(from + chunkSize, missing.size()));
+                int slots = IdChunks.slots(chunk.size(), chunkSize);
+                try {
+                    String sql = "SELECT id, titulo, director, genero " +
+                            "FROM Pelicula " +
+                            "WHERE id IN (" + IdChunks.placeholders(slots) + ")";
+                    PreparedStatement ps = conn.prepareStatement(sql);
+                    call.query(sql, missing.size() + " IDs");
+                    call.acquired();
+                    IdChunks.bind(ps, chunk, slots);
+                    ResultSet rs = ps.executeQuery();
+                    call.executed();
+                    while (rs.next()) {
+                        Pelicula pelicula = new Pelicula();
+                        pelicula.setId(rs.getInt(1));           // Obtener el ID de la pelicula.
+                        pelicula.setTitulo(rs.getString(2));    // Obtener el titulo de la pelicula.
+                        pelicula.setDirector(rs.getString(3));  // Obtener el director de la pelicula.
+                        pelicula.setGenero(rs.getString(4));    // Obtener el genero de la pelicula.
+                        loaded.add(pelicula);
+                    }
+                    rs.close(); // Cerrar el conjunto de resultados para liberar recursos.
+                    call.mapped();
+                } finally {
+                    conn.disconnect(); // Libera la llamada de prepareStatement (la conexión sigue tomada).
+                }
+            }
+        } catch (SQLException ex){
+            // Capturar cualquier excepción SQL que ocurra durante el proceso.
+            throw new SQLException("Error al obtener las peliculas por id: " + ex.getMessage(), ex);
+        } finally {
+            conn.disconnect(); // Desconectar de la base de datos.
+        }
+        for (Pelicula pelicula : loaded) {
+            if (cacheable) {
+                CACHE.put(pelicula.getId(), pelicula, stamp); // Guardar las peliculas leídas en la caché.
+            }
+            res.put(pelicula.getId(), pelicula);
+        }
+        return res;
+    }
+
+    // Versiones asíncronas: se ejecutan en segundo plano con DaoExecutor (concurrencia acotada,
+    // tiempo máximo y cancelación; las escrituras sin tiempo máximo ni interrupción) y retornan un
+    // CompletableFuture. El DAO no guarda estado por operación, por lo que la misma instancia
+    // atiende a todas a la vez.
+
+    /**
+     * Versión asíncrona de {@link #create(Pelicula)}.
+     */
+    public CompletableFuture<Pelicula> createAsync(Pelicula pelicula) {
+        return DaoExecutor.getInstance().submitWrite(handle -> create(pelicula));
+    }
+
+    /**
+     * Versión asíncrona de {@link #update(Pelicula)}.
+     */
+    public CompletableFuture<Boolean> updateAsync(Pelicula pelicula) {
+        return DaoExecutor.getInstance().submitWrite(handle -> update(pelicula));
+    }
+
+    /**
+     * Versión asíncrona de {@link #delete(Pelicula)}.
+     */
+    public CompletableFuture<Boolean> deleteAsync(Pelicula pelicula) {
+        return DaoExecutor.getInstance().submitWrite(handle -> delete(pelicula));
+    }
+
+    /**
+     * Versión asíncrona de {@link #search(String)}. Al cancelar el CompletableFuture (o al vencer
+     * su tiempo máximo) se cancela también la consulta en curso.
+     */
+    public CompletableFuture<ArrayList<Pelicula>> searchAsync(String titulo) {
+        return DaoExecutor.getInstance().submit(handle -> search(titulo, handle));
+    }
+
+    /**
+     * Versión asíncrona de {@link #getById(int)}.
+     */
+    public CompletableFuture<Pelicula> getByIdAsync(int id) {
+        return DaoExecutor.getInstance().submit(handle -> getById(id));
+    }
+}
@@ -0,0 +1,328 @@
+package esfe.persistencia;
+
+import java.sql.SQLException;  // Errores específicos de la base de datos.
+import java.util.ArrayList;    // Listas de resultados y operaciones pendientes.
+import java.util.Arrays;       // Copia de arreglos de IDs.
+import java.util.Comparator;   // Orden de resultados y de listas de IDs.
+import java.util.HashMap;      // Mapas internos del índice.
+import java.util.List;         // Interfaz de listas.
+import java.util.Map;          // Interfaz de mapas.
+import java.util.concurrent.CompletableFuture; // Resultado de la construcción en segundo plano.
+import java.util.concurrent.locks.ReentrantReadWriteLock; // Permite búsquedas concurrentes y escrituras exclusivas.
+import java.util.function.Consumer; // Operación de escritura aplicada sobre el estado del índice.
+import java.util.stream.Stream; // Recorrido de la tabla al construir el índice.
+
+import esfe.dominio.Pelicula; // Entidad indexada.
+
+/**
+ * Índice invertido en memoria de los titulos de las peliculas, basado en trigramas
+ * (subcadenas de 3 caracteres). Permite responder búsquedas de subcadena ("titulo LIKE '%x%'")
+ * sin consultar la base de datos: el comodín inicial del LIKE impide usar índices B-tree, por lo
+ * que en MySQL cada búsqueda recorre la tabla completa.
+ *
+ * - Cada trigrama del titulo apunta a una lista comprimida de IDs ({@link Postings}). Los titulos y
+ *   las búsquedas se pliegan con {@link Collation#fold(String)} (sin mayúsculas ni acentos), como
+ *   compara el LIKE de MySQL: "accion" encuentra "Acción".
+ * - Una búsqueda de 3 o más caracteres intersecta las listas de sus trigramas y verifica cada
+ *   candidato; las búsquedas más cortas recorren los titulos en memoria.
+ * - Se construye al iniciar con una lectura por cursor ({@link PeliculaDAO#streamSearch(String)})
+ *   y {@link PeliculaDAO} lo mantiene al día en create, createAll, update y delete.
+ *
+ * Se activa con "pelicula.index.enabled=true". Solo ve las escrituras hechas desde este proceso,
+ * por lo que no debe activarse si otras aplicaciones modifican la tabla Pelicula; en ese caso
+ * puede reconstruirse periódicamente con {@link #build(PeliculaDAO)}.
+ */
+public final class PeliculaTitleIndex {
+
+    private static final int GRAM = 3; // Longitud de las subcadenas indexadas.
+
+    private static final PeliculaTitleIndex INSTANCE = new PeliculaTitleIndex();
+
+    /**
+     * Titulos indexados e índice invertido. Se reemplaza completo al reconstruir.
+     */
+    private static final class State {
+        private final Map<Integer, Pelicula> rows = new HashMap<>();   // Copia de cada pelicula por ID.
+        private final Map<Integer, String> titles = new HashMap<>();   // Titulo en minúsculas por ID.
+        private final Map<Long, Postings> grams = new HashMap<>();     // IDs que contienen cada trigrama.
+
+        private void put(Pelicula pelicula) {
+            remove(pelicula.getId());
+            String title = normalize(pelicula.getTitulo());
+            rows.put(pelicula.getId(), pelicula);
+            titles.put(pelicula.getId(), title);
+            for (long gram : grams(title)) {
+                grams.computeIfAbsent(gram, g -> new Postings()).add(pelicula.getId());
+            }
+        }
+
+        private void remove(int id) {
+            String previous = titles.remove(id);
+            rows.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (long gram : grams(previous)) {
+                Postings postings = grams.get(gram);
+                if (postings != null) {
+                    postings.remove(id);
+                    if (postings.size() == 0) {
+                        grams.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    private volatile boolean ready;    // El índice está construido y puede responder búsquedas.
+    private boolean building;          // Hay una reconstrucción en curso.
+    private final List<Consumer<State>> pending = new ArrayList<>(); // Escrituras ocurridas durante la reconstrucción.
+
+    private PeliculaTitleIndex() {
+    }
+
+    public static PeliculaTitleIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Indica si el índice está activado por configuración ("pelicula.index.enabled").
+     */
+    public static boolean isEnabled() {
+        return PersistenceConfig.getBoolean("pelicula.index.enabled", false);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Construye (o reconstruye) el índice leyendo toda la tabla con un cursor. Las escrituras que
+     * ocurran mientras tanto se registran y se aplican al índice nuevo antes de activarlo.
+     *
+     * @param dao DAO con el que se recorre la tabla.
+     * @throws SQLException Si ocurre un error al leer la tabla.
+     */
+    public void build(PeliculaDAO dao) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            building = true;
+            pending.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State fresh = new State();
+        try (Stream<Pelicula> peliculas = dao.streamSearch("")) {
+            peliculas.forEach(fresh::put);
+        } catch (SQLException | RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                building = false;
+                pending.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            pending.forEach(op -> op.accept(fresh));
+            pending.clear();
+            state = fresh;
+            building = false;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Construye el índice en un hilo virtual sin bloquear a quien lo llama (por ejemplo al iniciar la aplicación).
+     * Mientras no esté listo, las búsquedas siguen consultando la base de datos.
+     *
+     * @return Un CompletableFuture que se completa al activarse el índice, o con el error de
+     * {@link #build(PeliculaDAO)} si no se pudo construir.
+     */
+    public CompletableFuture<Void> buildAsync(PeliculaDAO dao) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("esfe-pelicula-index").start(() -> {
+            try {
+                build(dao);
+                result.complete(null);
+            } catch (SQLException | RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Indica si la búsqueda puede responderse desde el índice. Las búsquedas con comodines de LIKE
+     * ('%', '_' o '\') se dejan a la base de datos para conservar su significado.
+     */
+    boolean canAnswer(String titulo) {
+        return ready && titulo != null && titulo.indexOf('%') < 0 && titulo.indexOf('_') < 0 && titulo.indexOf('\\') < 0;
+    }
+
+    /**
+     * Busca las peliculas cuyo titulo contenga el texto indicado, sin distinguir mayúsculas ni acentos.
+     *
+     * @param titulo Texto a buscar.
+     * @return Copias de las peliculas encontradas ordenadas por ID.
+     */
+    public ArrayList<Pelicula> search(String titulo) {
+        String query = normalize(titulo);
+        ArrayList<Pelicula> records = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (query.length() < GRAM) {
+                // Búsquedas muy cortas: no hay trigramas, se recorren los titulos en memoria.
+                for (Map.Entry<Integer, String> entry : state.titles.entrySet()) {
+                    if (entry.getValue().contains(query)) {
+                        records.add(copy(state.rows.get(entry.getKey())));
+                    }
+                }
+                records.sort(Comparator.comparingInt(Pelicula::getId));
+                return records;
+            }
+
+            // Se intersectan las listas de IDs de cada trigrama, empezando por la más corta.
+            List<Postings> lists = new ArrayList<>();
+            for (long gram : grams(query)) {
+                Postings postings = state.grams.get(gram);
+                if (postings == null) {
+                    return records; // Un trigrama sin peliculas: no hay coincidencias.
+                }
+                lists.add(postings);
+            }
+            lists.sort(Comparator.comparingInt(Postings::size));
+            int[] candidates = lists.get(0).toArray();
+            for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+                candidates = intersect(candidates, lists.get(i).toArray());
+            }
+
+            // Los trigramas pueden coincidir en otro orden: se verifica la subcadena completa.
+            for (int id : candidates) {
+                if (state.titles.get(id).contains(query)) {
+                    records.add(copy(state.rows.get(id)));
+                }
+            }
+            return records;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Agrega o reemplaza una pelicula en el índice (create / update).
+     */
+    void put(Pelicula pelicula) {
+        Pelicula copy = copy(pelicula);
+        apply(s -> s.put(copy));
+    }
+
+    /**
+     * Quita una pelicula del índice (delete).
+     */
+    void remove(int id) {
+        apply(s -> s.remove(id));
+    }
+
+    /**
+     * Desactiva y vacía el índice; las búsquedas vuelven a consultar la base de datos.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            state = new State();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cantidad de peliculas indexadas.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.rows.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes ocupados por las listas comprimidas de IDs (sin contar los titulos).
+     */
+    public long getPostingsBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Postings postings : state.grams.values()) {
+                bytes += postings.byteSize();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Consumer<State> op) {
+        lock.writeLock().lock();
+        try {
+            if (ready) {
+                op.accept(state);
+            }
+            if (building) {
+                pending.add(op);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String normalize(String text) {
+        return Collation.fold(text);
+    }
+
+    /**
+     * Trigramas distintos de un texto, cada uno empaquetado en un long (3 caracteres de 16 bits).
+     */
+    private static long[] grams(String text) {
+        if (text.length() < GRAM) {
+            return new long[0];
+        }
+        long[] result = new long[text.length() - GRAM + 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return Arrays.stream(result).distinct().toArray();
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static Pelicula copy(Pelicula pelicula) {
+        return new Pelicula(pelicula.getId(), pelicula.getTitulo(), pelicula.getDirector(), pelicula.getGenero());
+    }
+}
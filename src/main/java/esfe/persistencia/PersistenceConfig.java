@@ -0,0 +1,88 @@
+package esfe.persistencia;
+
+import java.io.IOException;  // Representa errores de lectura del archivo de configuración.
+import java.io.InputStream;  // Flujo de lectura del archivo de propiedades dentro del classpath.
+import java.util.Properties; // Colección clave/valor donde se guardan los parámetros leídos.
+
+/**
+ * Centraliza los parámetros configurables de la capa de persistencia.
+ * Los valores se leen, en orden de prioridad, desde:
+ * 1. Las propiedades del sistema con el prefijo "esfe." (por ejemplo -Desfe.pool.maxSize=20).
+ * 2. El archivo "persistencia.properties" ubicado en la raíz del classpath (opcional).
+ * 3. El valor por defecto indicado por quien consulta el parámetro.
+ */
+public final class PersistenceConfig {
+
+    /**
+     * Nombre del archivo de propiedades que se busca en el classpath.
+     */
+    private static final String FILE_NAME = "persistencia.properties";
+
+    /**
+     * Prefijo que deben llevar las propiedades del sistema para sobrescribir el archivo.
+     */
+    private static final String SYSTEM_PREFIX = "esfe.";
+
+    /**
+     * Propiedades leídas desde el archivo. Se cargan una única vez al iniciar la clase.
+     */
+    private static final Properties FILE_PROPERTIES = load();
+
+    private PersistenceConfig() {
+    }
+
+    /**
+     * Carga el archivo de propiedades del classpath. Si no existe se retorna un conjunto vacío,
+     * de modo que todos los parámetros toman su valor por defecto.
+     */
+    private static Properties load() {
+        Properties properties = new Properties();
+        try (InputStream in = PersistenceConfig.class.getClassLoader().getResourceAsStream(FILE_NAME)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Error al leer " + FILE_NAME + ": " + ex.getMessage(), ex);
+        }
+        return properties;
+    }
+
+    /**
+     * Obtiene un parámetro de texto.
+     *
+     * @param key Nombre del parámetro (sin el prefijo "esfe.").
+     * @param defaultValue Valor que se retorna si el parámetro no está definido.
+     * @return El valor configurado o el valor por defecto.
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(SYSTEM_PREFIX + key);
+        if (value == null) {
+            value = FILE_PROPERTIES.getProperty(key);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Obtiene un parámetro numérico entero.
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * Obtiene un parámetro numérico largo (útil para tiempos en milisegundos).
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    /**
+     * Obtiene un parámetro booleano ("true" o "false").
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
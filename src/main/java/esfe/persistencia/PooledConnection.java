@@ -0,0 +1,59 @@
+package esfe.persistencia;
+
+import java.sql.Connection;   // Conexión física a la base de datos que se reutiliza.
+import java.sql.SQLException; // Errores específicos de la base de datos.
+
+/**
+ * Envoltorio de una conexión física administrada por {@link ConnectionPool}.
+ * Guarda los tiempos necesarios para decidir si la conexión sigue siendo válida,
+ * si lleva demasiado tiempo inactiva o si ya superó su tiempo máximo de vida.
+ */
+class PooledConnection {
+    private final Connection connection; // Conexión física real.
+    private final StatementCache statementCache; // Sentencias preparadas reutilizables de esta conexión.
+    private final long createdAt;        // Momento (System.nanoTime) en que se abrió la conexión.
+    private volatile long lastUsedAt;    // Momento en que la conexión fue devuelta al pool por última vez.
+
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statementCache = new StatementCache(connection, statementCacheSize);
+        this.createdAt = System.nanoTime();
+        this.lastUsedAt = this.createdAt;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    /**
+     * Registra que la conexión acaba de ser utilizada.
+     */
+    void touch() {
+        this.lastUsedAt = System.nanoTime();
+    }
+
+    /**
+     * Cierra la conexión física ignorando cualquier error, ya que se invoca
+     * cuando la conexión se descarta y no hay nada más que hacer con ella.
+     */
+    void closeQuietly() {
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // La conexión se descarta de todas formas.
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package esfe.persistencia;
+
+import java.util.Arrays; // Copia y redimensionamiento de arreglos.
+
+/**
+ * Lista de IDs ordenados de forma ascendente, guardada comprimida: cada ID se almacena como la
+ * diferencia con el anterior codificada en bytes de longitud variable (7 bits por byte). Como los
+ * IDs autoincrementales de una misma lista suelen estar cerca, la mayoría ocupa 1 o 2 bytes en
+ * lugar de los 4 de un int.
+ *
+ * No es segura para hilos; {@link PeliculaTitleIndex} la protege con su propio bloqueo.
+ */
+final class Postings {
+    private byte[] data = new byte[4]; // Diferencias codificadas.
+    private int length;                // Bytes usados de 'data'.
+    private int size;                  // Cantidad de IDs.
+    private int last;                  // Último (mayor) ID de la lista.
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Agrega un ID. Si es mayor que el último (caso normal con IDs autoincrementales) se agrega al
+     * final sin decodificar la lista; en caso contrario la lista se reconstruye.
+     */
+    void add(int id) {
+        if (size > 0 && id <= last) {
+            int[] ids = toArray();
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos >= 0) {
+                return; // El ID ya estaba en la lista.
+            }
+            int insertAt = -pos - 1;
+            int[] updated = new int[ids.length + 1];
+            System.arraycopy(ids, 0, updated, 0, insertAt);
+            updated[insertAt] = id;
+            System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+            rebuild(updated, updated.length);
+            return;
+        }
+        append(id);
+    }
+
+    /**
+     * Quita un ID de la lista si existe.
+     */
+    void remove(int id) {
+        if (size == 0 || id > last) {
+            return;
+        }
+        int[] ids = toArray();
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) {
+            return;
+        }
+        System.arraycopy(ids, pos + 1, ids, pos, ids.length - pos - 1);
+        rebuild(ids, ids.length - 1);
+    }
+
+    /**
+     * Decodifica la lista completa.
+     */
+    int[] toArray() {
+        int[] ids = new int[size];
+        int value = 0;
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[offset++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            value += delta;
+            ids[i] = value;
+        }
+        return ids;
+    }
+
+    /**
+     * Bytes ocupados por la lista comprimida (para estadísticas de memoria).
+     */
+    int byteSize() {
+        return length;
+    }
+
+    private void rebuild(int[] ids, int count) {
+        data = new byte[Math.max(4, count * 2)];
+        length = 0;
+        size = 0;
+        last = 0;
+        for (int i = 0; i < count; i++) {
+            append(ids[i]);
+        }
+    }
+
+    private void append(int id) {
+        int delta = size == 0 ? id : id - last;
+        if (length + 5 > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        }
+        while ((delta & ~0x7F) != 0) {
+            data[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        data[length++] = (byte) delta;
+        last = id;
+        size++;
+    }
+}
@@ -0,0 +1,77 @@
+package esfe.persistencia;
+
+import java.sql.SQLException; // Errores específicos de la base de datos.
+import java.sql.Statement;    // Sentencia en ejecución que puede cancelarse.
+import java.util.concurrent.locks.ReentrantLock; // Evita cancelar una sentencia que ya se liberó.
+
+/**
+ * Permite cancelar desde otro hilo una consulta en curso, por ejemplo una búsqueda que quedó
+ * obsoleta porque el usuario siguió escribiendo. Quien llama crea un QueryHandle, lo pasa al método
+ * del DAO y, si necesita detener la consulta, llama a {@link #cancel()}: la sentencia en ejecución
+ * se cancela con {@link Statement#cancel()} y el DAO lanza una SQLException.
+ *
+ * Un QueryHandle cancelado no puede reutilizarse.
+ */
+public final class QueryHandle {
+
+    /**
+     * Protege la sentencia asociada: la cancelación solo se envía mientras la consulta está en
+     * ejecución, nunca a una sentencia que el DAO ya devolvió a la caché y que otra consulta podría
+     * estar usando.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private Statement statement;       // Sentencia en ejecución, o null.
+    private volatile boolean cancelled;
+
+    /**
+     * Cancela la consulta asociada (si está en ejecución) y las que se intenten ejecutar después.
+     * Puede tardar lo que demore el servidor en aceptar la cancelación, por lo que no debería
+     * llamarse desde el hilo de eventos de Swing.
+     */
+    public void cancel() {
+        cancelled = true;
+        lock.lock();
+        try {
+            if (statement != null) {
+                statement.cancel();
+            }
+        } catch (SQLException ex) {
+            // Si la consulta ya terminó no hay nada que cancelar.
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Asocia la sentencia que está por ejecutarse.
+     *
+     * @throws SQLException Si el handle ya fue cancelado.
+     */
+    void attach(Statement statement) throws SQLException {
+        lock.lock();
+        try {
+            if (cancelled) {
+                throw new SQLException("La consulta fue cancelada.");
+            }
+            this.statement = statement;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Quita la sentencia asociada una vez que la consulta terminó.
+     */
+    void detach() {
+        lock.lock();
+        try {
+            statement = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
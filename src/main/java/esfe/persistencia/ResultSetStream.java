@@ -0,0 +1,68 @@
+package esfe.persistencia;
+
+import java.sql.PreparedStatement; // Sentencia dueña del cursor.
+import java.sql.ResultSet;         // Cursor que se recorre fila por fila.
+import java.sql.SQLException;      // Errores específicos de la base de datos.
+import java.util.Spliterator;      // Recorrido perezoso que alimenta el Stream.
+import java.util.Spliterators;     // Implementación base de Spliterator.
+import java.util.function.Consumer; // Receptor de cada elemento del Stream.
+import java.util.stream.Stream;    // Flujo de resultados sin materializar.
+import java.util.stream.StreamSupport; // Construcción del Stream a partir del Spliterator.
+
+/**
+ * Convierte un {@link ResultSet} abierto en un {@link Stream} perezoso: cada fila se lee y se
+ * convierte en objeto solo cuando el consumidor la pide, por lo que la memoria no depende de la
+ * cantidad de filas. Al cerrar el Stream se cierran el cursor, la sentencia y se devuelve la
+ * conexión al pool.
+ */
+final class ResultSetStream {
+
+    /**
+     * Convierte la fila actual del cursor en un objeto del dominio.
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private ResultSetStream() {
+    }
+
+    /**
+     * @param lease Conexión exclusiva sobre la que está abierto el cursor.
+     * @param statement Sentencia que produjo el cursor.
+     * @param rs Cursor a recorrer.
+     * @param mapper Conversión de cada fila.
+     * @return Un Stream que debe cerrarse (por ejemplo con try-with-resources).
+     */
+    static <T> Stream<T> of(ConnectionManager.Lease lease, PreparedStatement statement, ResultSet rs, RowMapper<T> mapper) {
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException ex) {
+                    throw new UncheckedSQLException("Error al recorrer los resultados: " + ex.getMessage(), ex);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> close(lease, statement, rs));
+    }
+
+    private static void close(ConnectionManager.Lease lease, PreparedStatement statement, ResultSet rs) {
+        try {
+            rs.close();
+            statement.close();
+        } catch (SQLException ex) {
+            throw new UncheckedSQLException("Error al cerrar el cursor: " + ex.getMessage(), ex);
+        } finally {
+            // La conexión vuelve al pool aunque falle el cierre del cursor.
+            lease.close();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package esfe.persistencia;
+
+import java.util.ArrayList;     // Listas de resultados.
+import java.util.Iterator;      // Recorrido de las entradas para expulsar las menos recientes.
+import java.util.LinkedHashMap; // Mapa en orden de acceso (LRU).
+import java.util.List;          // Interfaz de listas.
+import java.util.concurrent.atomic.LongAdder;    // Contadores de estadísticas sin contención.
+import java.util.concurrent.locks.ReentrantLock; // Bloqueo que no fija el hilo portador de un hilo virtual.
+import java.util.function.Function;              // Extrae el texto sobre el que se busca.
+import java.util.function.ToIntFunction;         // Estima el tamaño en memoria de una entidad.
+import java.util.function.UnaryOperator;         // Función que copia una entidad.
+
+/**
+ * Caché de resultados de search() pensada para la búsqueda mientras se escribe: al teclear "matrix"
+ * los formularios buscan "m", "ma", "mat", etc., y cada resultado es un subconjunto del anterior.
+ *
+ * - Si el texto buscado ya está en la caché, se retornan copias de sus filas.
+ * - Si no, pero contiene a un texto que sí está (por ejemplo "matr" contiene a "mat"), el resultado
+ *   se obtiene filtrando en memoria las filas del resultado guardado más específico, sin consultar
+ *   la base de datos: toda fila cuyo campo contiene "matr" también contiene "mat".
+ * - La memoria usada se acota con "cache.&lt;nombre&gt;.maxBytes" (4 MB por defecto; 0 la desactiva),
+ *   expulsando primero los resultados menos recientes.
+ * - Cualquier escritura (create, update, delete) vacía la caché.
+ *
+ * Los textos se comparan plegados con {@link Collation#fold(String)} (sin mayúsculas ni acentos), como
+ * el LIKE de MySQL: el resultado de "acc" se refina a "accion" y conserva "Acción".
+ * Las búsquedas con comodines de LIKE ('%', '_' o '\') no se guardan ni se refinan.
+ *
+ * @param <T> Tipo de la entidad.
+ */
+public final class SearchCache<T> {
+
+    /**
+     * Resultado guardado junto con su tamaño estimado en bytes.
+     */
+    private static final class Entry<T> {
+        private final List<T> rows;
+        private final long bytes;
+
+        private Entry(List<T> rows, long bytes) {
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+    }
+
+    private final long maxBytes;                 // Memoria máxima estimada de los resultados guardados.
+    private final UnaryOperator<T> copier;       // Copia las entidades al guardarlas y al entregarlas.
+    private final Function<T, String> field;     // Campo sobre el que se busca (titulo, nombre, etc.).
+    private final ToIntFunction<T> weigher;      // Tamaño estimado en bytes de una entidad.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true); // Clave: texto plegado.
+    private long bytes;      // Memoria estimada usada.
+    private long generation; // Se incrementa en cada invalidación (ver EntityCache).
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder refinements = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Crea la caché leyendo su tamaño desde {@link PersistenceConfig} ("cache.&lt;nombre&gt;.maxBytes").
+     */
+    SearchCache(String name, UnaryOperator<T> copier, Function<T, String> field, ToIntFunction<T> weigher) {
+        this(PersistenceConfig.getLong("cache." + name + ".maxBytes", 4L * 1024 * 1024), copier, field, weigher);
+    }
+
+    SearchCache(long maxBytes, UnaryOperator<T> copier, Function<T, String> field, ToIntFunction<T> weigher) {
+        this.maxBytes = maxBytes;
+        this.copier = copier;
+        this.field = field;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Marca que debe obtenerse antes de consultar la base de datos y pasarse a {@link #put(String, List, long)}.
+     */
+    long stamp() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Obtiene el resultado de la búsqueda desde la caché, exacto o refinando uno más general.
+     *
+     * @param text Texto buscado.
+     * @return Copias de las filas encontradas, o null si debe consultarse la base de datos.
+     */
+    ArrayList<T> get(String text) {
+        if (maxBytes <= 0 || !isCacheable(text)) {
+            return null;
+        }
+        String key = normalize(text);
+        List<T> rows;
+        boolean exact;
+        long stamp;
+        lock.lock();
+        try {
+            stamp = generation;
+            Entry<T> entry = entries.get(key);
+            exact = entry != null;
+            if (entry == null) {
+                // Se busca el resultado guardado más específico cuyo texto esté contenido en el buscado.
+                String best = null;
+                for (String cached : entries.keySet()) {
+                    if (key.contains(cached) && (best == null || cached.length() > best.length())) {
+                        best = cached;
+                    }
+                }
+                entry = best == null ? null : entries.get(best);
+            }
+            rows = entry == null ? null : entry.rows;
+        } finally {
+            lock.unlock();
+        }
+        if (rows == null) {
+            misses.increment();
+            return null;
+        }
+
+        // Las listas guardadas no se modifican, por lo que pueden recorrerse fuera del bloqueo.
+        ArrayList<T> result = new ArrayList<>();
+        for (T row : rows) {
+            if (exact || contains(row, key)) {
+                result.add(copier.apply(row));
+            }
+        }
+        if (exact) {
+            hits.increment();
+        } else {
+            refinements.increment();
+            put(text, result, stamp); // El resultado refinado también se guarda.
+        }
+        return result;
+    }
+
+    /**
+     * Guarda el resultado de una búsqueda, salvo que haya habido una escritura desde que se obtuvo la marca.
+     *
+     * @param stamp Valor de {@link #stamp()} obtenido antes de la consulta.
+     */
+    void put(String text, List<T> rows, long stamp) {
+        if (maxBytes <= 0 || !isCacheable(text)) {
+            return;
+        }
+        List<T> copies = new ArrayList<>(rows.size());
+        long size = 64L + 2L * text.length();
+        for (T row : rows) {
+            copies.add(copier.apply(row));
+            size += weigher.applyAsInt(row);
+        }
+        if (size > maxBytes / 4) {
+            return; // Un solo resultado muy grande desplazaría a todos los demás.
+        }
+        lock.lock();
+        try {
+            if (stamp != generation) {
+                return;
+            }
+            Entry<T> previous = entries.put(normalize(text), new Entry<>(copies, size));
+            if (previous != null) {
+                bytes -= previous.bytes;
+            }
+            bytes += size;
+            // Expulsa los resultados menos recientes hasta volver al límite de memoria.
+            Iterator<Entry<T>> it = entries.values().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                bytes -= it.next().bytes;
+                it.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Vacía la caché. Se llama después de cada escritura sobre la tabla.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+            bytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Búsquedas respondidas con un resultado guardado para el mismo texto.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Búsquedas respondidas filtrando en memoria el resultado de un texto más general.
+     */
+    public long getRefinements() {
+        return refinements.sum();
+    }
+
+    /**
+     * Búsquedas que tuvieron que consultar la base de datos.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Memoria estimada (en bytes) de los resultados guardados.
+     */
+    public long getEstimatedBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tamaño estimado en bytes de una entidad con los campos de texto indicados, para los DAO.
+     */
+    static int estimateBytes(String... fields) {
+        int size = 48; // Encabezado del objeto y campos primitivos.
+        for (String value : fields) {
+            size += value == null ? 0 : 40 + 2 * value.length();
+        }
+        return size;
+    }
+
+    private boolean contains(T row, String key) {
+        String value = field.apply(row);
+        return value != null && normalize(value).contains(key);
+    }
+
+    private static boolean isCacheable(String text) {
+        return text != null && text.indexOf('%') < 0 && text.indexOf('_') < 0 && text.indexOf('\\') < 0;
+    }
+
+    private static String normalize(String text) {
+        return Collation.fold(text);
+    }
+}
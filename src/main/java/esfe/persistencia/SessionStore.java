@@ -0,0 +1,216 @@
+package esfe.persistencia;
+
+import esfe.dominio.User; // Usuario autenticado de cada sesión.
+
+import java.security.SecureRandom;                     // Generación de tokens impredecibles.
+import java.util.Base64;                               // Codificación de los tokens como texto.
+import java.util.Map;                                  // Entradas del mapa de sesiones.
+import java.util.concurrent.ConcurrentHashMap;         // Sesiones por token, sin bloqueos en la lectura.
+import java.util.concurrent.Executors;                 // Hilo del barrido de sesiones vencidas.
+import java.util.concurrent.ScheduledExecutorService;  // Barrido periódico.
+import java.util.concurrent.TimeUnit;                  // Conversión de los tiempos configurados.
+import java.util.concurrent.atomic.AtomicLong;         // Vencimiento de cada sesión.
+import java.util.concurrent.atomic.LongAdder;          // Contadores de estadísticas sin contención.
+
+/**
+ * Sesiones de los usuarios autenticados. Tras {@link UserDAO#authenticate(User)} se abre una sesión con
+ * {@link #open(User)}, que retorna un token opaco; cada verificación posterior con {@link #validate(String)}
+ * es una búsqueda en un mapa en lugar de una consulta a la base de datos.
+ *
+ * - Vencimiento deslizante: cada validación extiende la sesión "session.ttlMs" milisegundos
+ *   (30 minutos por defecto); una sesión sin uso durante ese tiempo vence.
+ * - Un hilo de mantenimiento elimina las sesiones vencidas cada "session.sweepIntervalMs"
+ *   milisegundos (60 segundos por defecto), sin bloquear a quienes validan.
+ * - UserDAO cierra las sesiones de un usuario al cambiar su contraseña, al pasarlo a INACTIVO y al
+ *   eliminarlo ({@link #invalidateUser(int)}).
+ *
+ * El vencimiento de cada sesión se guarda en un {@link AtomicLong}: validar lo extiende con CAS solo
+ * si la sesión sigue viva, y el barrido o la invalidación la marcan como cerrada con CAS antes de
+ * quitarla del mapa, de modo que una sesión recién extendida nunca se elimina por error.
+ */
+public final class SessionStore {
+
+    private static final SessionStore INSTANCE = new SessionStore(
+            PersistenceConfig.getLong("session.ttlMs", 30 * 60_000L),
+            PersistenceConfig.getLong("session.sweepIntervalMs", 60_000));
+
+    private static final long CLOSED = Long.MIN_VALUE; // Vencimiento de una sesión cerrada.
+    private static final int TOKEN_BYTES = 32;         // 256 bits aleatorios por token.
+
+    /**
+     * Sesión abierta: el usuario autenticado y el momento (System.nanoTime) en que vence.
+     */
+    private static final class Session {
+        private final User user;
+        private final AtomicLong expiresAt;
+
+        private Session(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = new AtomicLong(expiresAt);
+        }
+
+        /**
+         * Marca la sesión como cerrada. Retorna false si ya estaba cerrada.
+         */
+        private boolean close() {
+            return expiresAt.getAndSet(CLOSED) != CLOSED;
+        }
+    }
+
+    private final long ttlNanos;
+    private final long renewGranularityNanos; // Extensiones más pequeñas se omiten para no escribir en cada validación.
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService sweeper;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    SessionStore(long ttlMs, long sweepIntervalMs) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.renewGranularityNanos = Math.min(TimeUnit.SECONDS.toNanos(1), ttlNanos / 100);
+        // El hilo de mantenimiento es daemon para no impedir que la aplicación termine.
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "esfe-session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public static SessionStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Abre una sesión para un usuario ya autenticado.
+     *
+     * @param user Usuario retornado por {@link UserDAO#authenticate(User)}.
+     * @return Token opaco de la sesión.
+     */
+    public String open(User user) {
+        if (user == null || user.getId() <= 0) {
+            throw new IllegalArgumentException("Solo se puede abrir una sesión para un usuario autenticado.");
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(copy(user), System.nanoTime() + ttlNanos));
+        return token;
+    }
+
+    /**
+     * Verifica una sesión y extiende su vencimiento.
+     *
+     * @param token Token retornado por {@link #open(User)} (puede ser null).
+     * @return Una copia del usuario de la sesión, o null si el token no existe, venció o fue cerrado.
+     */
+    public User validate(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            misses.increment();
+            return null;
+        }
+        long now = System.nanoTime();
+        while (true) {
+            long expiresAt = session.expiresAt.get();
+            if (expiresAt == CLOSED || expiresAt - now < 0) {
+                // Vencida: se elimina aquí mismo en lugar de esperar al barrido.
+                if (expiresAt != CLOSED && session.close()) {
+                    expirations.increment();
+                }
+                sessions.remove(token, session);
+                misses.increment();
+                return null;
+            }
+            long renewed = now + ttlNanos;
+            if (renewed - expiresAt < renewGranularityNanos || session.expiresAt.compareAndSet(expiresAt, renewed)) {
+                hits.increment();
+                return copy(session.user);
+            }
+            // Otro hilo extendió o cerró la sesión al mismo tiempo: se vuelve a leer.
+        }
+    }
+
+    /**
+     * Cierra una sesión (por ejemplo al cambiar de usuario). No hace nada si ya no existe.
+     */
+    public void close(String token) {
+        if (token == null) {
+            return;
+        }
+        Session session = sessions.remove(token);
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    /**
+     * Cierra todas las sesiones de un usuario.
+     *
+     * @return Cantidad de sesiones cerradas.
+     */
+    public int invalidateUser(int userId) {
+        int closed = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            if (session.user.getId() == userId && session.close()) {
+                sessions.remove(entry.getKey(), session);
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Elimina las sesiones vencidas. Lo ejecuta periódicamente el hilo de mantenimiento.
+     *
+     * @return Cantidad de sesiones eliminadas.
+     */
+    int sweep() {
+        long now = System.nanoTime();
+        int removed = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            long expiresAt = session.expiresAt.get();
+            // El CAS falla si una validación extendió la sesión después de leerla: se conserva.
+            if (expiresAt != CLOSED && expiresAt - now < 0 && session.expiresAt.compareAndSet(expiresAt, CLOSED)) {
+                sessions.remove(entry.getKey(), session);
+                expirations.increment();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Detiene el hilo de mantenimiento.
+     */
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Cantidad de sesiones abiertas (incluye las vencidas que el barrido aún no eliminó).
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    private static User copy(User user) {
+        // La sesión no guarda la contraseña recibida al autenticar.
+        return new User(user.getId(), user.getName(), null, user.getEmail(), user.getStatus());
+    }
+}
@@ -0,0 +1,139 @@
+package esfe.persistencia;
+
+import java.sql.SQLException; // Errores específicos de la base de datos.
+import java.util.concurrent.CompletableFuture;     // Resultado compartido de la consulta en curso.
+import java.util.concurrent.ConcurrentHashMap;     // Consultas en curso por clave.
+import java.util.concurrent.ExecutionException;    // Error de la consulta compartida.
+import java.util.concurrent.atomic.LongAdder;      // Contadores de estadísticas sin contención.
+import java.util.function.UnaryOperator;           // Función que copia un resultado.
+
+/**
+ * Agrupa lecturas idénticas simultáneas ("single flight"): si varios hilos piden la misma clave
+ * (por ejemplo el mismo ID en getById) mientras su consulta está en curso, solo el primero consulta
+ * la base de datos y los demás esperan y reciben su resultado, en lugar de lanzar cada uno la misma
+ * consulta. Ocurre con ráfagas de refrescos o con varias ventanas mostrando la misma pelicula.
+ *
+ * - Cada llamador recibe su propia copia del resultado, así los cambios que haga uno no los ve otro.
+ * - Si la consulta falla, todos los que la esperaban reciben el error.
+ * - Las escrituras llaman a {@link #forget(Object)} o {@link #forgetAll()}: quien llega después de una
+ *   escritura no se une a una consulta iniciada antes de ella, por lo que no puede recibir datos viejos.
+ *
+ * @param <K> Tipo de la clave de la consulta.
+ * @param <V> Tipo del resultado.
+ */
+public final class SingleFlight<K, V> {
+
+    /**
+     * Consulta que se ejecuta una sola vez por grupo de llamadas simultáneas.
+     */
+    @FunctionalInterface
+    interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    private final UnaryOperator<V> copier; // Copia el resultado para cada llamador.
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * @param copier Función que retorna una copia independiente del resultado (no recibe null).
+     */
+    SingleFlight(UnaryOperator<V> copier) {
+        this.copier = copier;
+    }
+
+    /**
+     * Ejecuta la consulta de la clave, o espera la que ya está en curso para la misma clave.
+     *
+     * @param key Clave que identifica la consulta.
+     * @param loader Consulta a ejecutar si no hay una en curso.
+     * @return Una copia del resultado (o null si la consulta retornó null).
+     * @throws SQLException Si la consulta falla o la espera se interrumpe.
+     */
+    V run(K key, Loader<V> loader) throws SQLException {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            collapsed.increment();
+            return copy(await(existing));
+        }
+
+        executed.increment();
+        try {
+            V value = loader.load();
+            mine.complete(value);
+            // El resultado original queda para los que esperan; quien consultó también recibe una copia.
+            return copy(value);
+        } catch (SQLException | RuntimeException | Error ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine); // Las llamadas siguientes vuelven a consultar.
+        }
+    }
+
+    /**
+     * Hace que las llamadas siguientes para la clave no se unan a la consulta en curso.
+     * Se llama después de modificar la fila correspondiente.
+     */
+    void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * Igual que {@link #forget(Object)} para todas las claves (por ejemplo, al escribir en una tabla
+     * cuyas búsquedas en curso podrían verse afectadas).
+     */
+    void forgetAll() {
+        inFlight.clear();
+    }
+
+    private V copy(V value) {
+        return value == null ? null : copier.apply(value);
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) throws SQLException {
+        try {
+            return flight.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Espera de la consulta interrumpida.", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException sql) {
+                // Nueva excepción para que la traza corresponda al hilo que esperaba.
+                throw new SQLException(sql.getMessage(), sql.getSQLState(), sql.getErrorCode(), sql);
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * Cantidad de consultas ejecutadas.
+     */
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    /**
+     * Cantidad de llamadas que se unieron a una consulta en curso en lugar de ejecutar la suya.
+     */
+    public long getCollapsed() {
+        return collapsed.sum();
+    }
+
+    /**
+     * Cantidad de consultas en curso en este momento.
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+}
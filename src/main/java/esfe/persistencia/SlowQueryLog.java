@@ -0,0 +1,349 @@
+package esfe.persistencia;
+
+import java.io.BufferedOutputStream;   // Escritura con búfer del archivo.
+import java.io.IOException;            // Errores al escribir el archivo.
+import java.io.OutputStream;           // Archivo de registro abierto.
+import java.nio.charset.StandardCharsets; // Codificación de las líneas.
+import java.nio.file.Files;            // Creación, tamaño y rotación de archivos.
+import java.nio.file.Path;             // Ubicación del archivo.
+import java.nio.file.StandardCopyOption;  // Reemplazo de archivos al rotar.
+import java.nio.file.StandardOpenOption;  // Apertura en modo agregar.
+import java.time.Instant;              // Momento de cada entrada.
+import java.util.concurrent.ArrayBlockingQueue; // Cola acotada de entradas pendientes.
+import java.util.concurrent.BlockingQueue;      // Interfaz de la cola.
+import java.util.concurrent.TimeUnit;           // Conversión del umbral.
+import java.util.concurrent.atomic.LongAdder;   // Contadores sin contención.
+import java.util.concurrent.locks.ReentrantLock; // Arranque perezoso del hilo escritor.
+
+/**
+ * Registro de consultas lentas de la capa de persistencia. Cada llamada a un DAO que tarda al menos
+ * "slowlog.thresholdMs" milisegundos (500 por defecto) se escribe como una línea con el método, el
+ * SQL, los parámetros (los sensibles, como el hash de la contraseña, se reemplazan por "****"), el
+ * desglose del tiempo (obtención de la conexión, ejecución y lectura de filas) y la cantidad de filas.
+ *
+ * - La escritura es asíncrona: quien llama solo agrega la entrada a una cola acotada de
+ *   "slowlog.queueSize" entradas (1000 por defecto) y nunca espera. Si la cola está llena, la entrada
+ *   se descarta y se cuenta en {@link #getDropped()}.
+ * - Un hilo escritor (creado con la primera entrada) escribe en "slowlog.file"
+ *   ("logs/slow-queries.log" por defecto). Al superar "slowlog.maxBytes" (10 MB por defecto) el
+ *   archivo se rota a .1, .2, ... conservando "slowlog.maxFiles" archivos (5 por defecto).
+ * - "slowlog.enabled" (true por defecto) lo desactiva por completo.
+ */
+public final class SlowQueryLog {
+
+    private static final boolean ENABLED = PersistenceConfig.getBoolean("slowlog.enabled", true);
+    private static final int MAX_PARAM_CHARS = 200; // Los textos más largos se recortan.
+
+    private static volatile SlowQueryLog instance;
+    private static final ReentrantLock INSTANCE_LOCK = new ReentrantLock();
+
+    /**
+     * Llamada lenta registrada. El texto de la línea se arma en el hilo escritor, no en el de quien llama.
+     */
+    static final class Entry {
+        private final long timestamp;
+        private final String dao;
+        private final String method;
+        private final long totalNanos;
+        private final long acquireNanos;
+        private final long executeNanos;
+        private final long mapNanos;
+        private final String sql;
+        private final Object[] params;
+        private final long rows;
+        private final boolean failed;
+
+        Entry(long timestamp, String dao, String method, long totalNanos, long acquireNanos, long executeNanos,
+              long mapNanos, String sql, Object[] params, long rows, boolean failed) {
+            this.timestamp = timestamp;
+            this.dao = dao;
+            this.method = method;
+            this.totalNanos = totalNanos;
+            this.acquireNanos = acquireNanos;
+            this.executeNanos = executeNanos;
+            this.mapNanos = mapNanos;
+            this.sql = sql;
+            this.params = params;
+            this.rows = rows;
+            this.failed = failed;
+        }
+
+        /**
+         * Línea del registro, por ejemplo:
+         * {@code 2024-05-01T10:00:00Z PeliculaDAO.search total=812.4ms acquire=0.2ms execute=790.1ms
+         * map=22.1ms rows=1500 error=false sql="SELECT ..." params=["%mat%"]}
+         */
+        String format() {
+            StringBuilder line = new StringBuilder(256);
+            line.append(Instant.ofEpochMilli(timestamp)).append(' ').append(dao).append('.').append(method);
+            appendMillis(line, " total=", totalNanos);
+            appendMillis(line, " acquire=", acquireNanos);
+            appendMillis(line, " execute=", executeNanos);
+            appendMillis(line, " map=", mapNanos);
+            line.append(" rows=").append(rows).append(" error=").append(failed);
+            // Sin SQL: la llamada se respondió sin consultar (caché) o esperó la consulta de otro hilo.
+            line.append(" sql=").append(sql == null ? "-" : quote(sql.replaceAll("\\s+", " ")));
+            line.append(" params=[");
+            if (params != null) {
+                for (int i = 0; i < params.length; i++) {
+                    if (i > 0) {
+                        line.append(", ");
+                    }
+                    Object param = params[i];
+                    if (param instanceof String text) {
+                        line.append(quote(text.length() > MAX_PARAM_CHARS ? text.substring(0, MAX_PARAM_CHARS) + "..." : text));
+                    } else {
+                        line.append(param);
+                    }
+                }
+            }
+            return line.append(']').toString();
+        }
+
+        private static void appendMillis(StringBuilder line, String label, long nanos) {
+            line.append(label).append(String.format("%.1f", nanos / 1_000_000.0)).append("ms");
+        }
+
+        private static String quote(String text) {
+            return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+        }
+    }
+
+    private final long thresholdNanos;
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final BlockingQueue<Entry> queue;
+    private final LongAdder logged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile IOException lastError; // Último error al escribir el archivo, o null.
+
+    private final ReentrantLock startLock = new ReentrantLock();
+    private volatile Thread writer;   // Hilo escritor, creado con la primera entrada.
+    private OutputStream out;         // Archivo abierto (solo lo usa el hilo escritor).
+    private long size;                // Tamaño actual del archivo.
+    private int unflushed;            // Entradas escritas en el búfer que aún no llegan al archivo.
+
+    /**
+     * Crea un registro con los parámetros indicados.
+     *
+     * @param thresholdMs Duración mínima de las llamadas registradas.
+     * @param file Archivo de registro; los rotados se llaman igual con el sufijo .1, .2, ...
+     * @param maxBytes Tamaño a partir del cual se rota el archivo.
+     * @param maxFiles Cantidad de archivos que se conservan, contando el actual.
+     * @param queueSize Cantidad máxima de entradas pendientes de escribir.
+     */
+    SlowQueryLog(long thresholdMs, Path file, long maxBytes, int maxFiles, int queueSize) {
+        if (maxFiles < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("Parámetros inválidos del registro de consultas lentas.");
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    /**
+     * Registro compartido por los DAO, configurado con {@link PersistenceConfig}.
+     */
+    public static SlowQueryLog getInstance() {
+        SlowQueryLog current = instance;
+        if (current == null) {
+            INSTANCE_LOCK.lock();
+            try {
+                if (instance == null) {
+                    instance = new SlowQueryLog(PersistenceConfig.getLong("slowlog.thresholdMs", 500),
+                            Path.of(PersistenceConfig.getString("slowlog.file", "logs/slow-queries.log")),
+                            PersistenceConfig.getLong("slowlog.maxBytes", 10L * 1024 * 1024),
+                            PersistenceConfig.getInt("slowlog.maxFiles", 5),
+                            PersistenceConfig.getInt("slowlog.queueSize", 1000));
+                }
+                current = instance;
+            } finally {
+                INSTANCE_LOCK.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reemplaza el registro compartido (por ejemplo, para que las pruebas escriban en otro archivo
+     * con otro umbral).
+     */
+    static void install(SlowQueryLog log) {
+        INSTANCE_LOCK.lock();
+        try {
+            instance = log;
+        } finally {
+            INSTANCE_LOCK.unlock();
+        }
+    }
+
+    static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Indica si una llamada de la duración indicada debe registrarse.
+     */
+    boolean isSlow(long nanos) {
+        return ENABLED && nanos >= thresholdNanos;
+    }
+
+    /**
+     * Agrega una entrada a la cola sin esperar. Si la cola está llena la entrada se descarta.
+     */
+    void offer(Entry entry) {
+        if (writer == null) {
+            startWriter();
+        }
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Cantidad de entradas escritas en el archivo.
+     */
+    public long getLogged() {
+        return logged.sum();
+    }
+
+    /**
+     * Cantidad de entradas descartadas porque la cola estaba llena o no se pudo escribir el archivo.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Último error al escribir el archivo (las entradas afectadas se cuentan en {@link #getDropped()}),
+     * o null si no hubo ninguno.
+     */
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    private void startWriter() {
+        startLock.lock();
+        try {
+            if (writer == null) {
+                // Hilo demonio: no impide que la aplicación termine.
+                writer = Thread.ofPlatform().daemon().name("esfe-slowlog").start(this::run);
+            }
+        } finally {
+            startLock.unlock();
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: escribe las entradas a medida que llegan y vacía el búfer cuando la
+     * cola queda vacía.
+     */
+    private void run() {
+        try {
+            while (true) {
+                write(queue.take());
+                Entry next;
+                while ((next = queue.poll()) != null) {
+                    write(next);
+                }
+                flush();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Entry entry) {
+        byte[] line = (entry.format() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        try {
+            if (out == null) {
+                open();
+            }
+            if (size > 0 && size + line.length > maxBytes) {
+                roll();
+            }
+            out.write(line);
+            size += line.length;
+            unflushed++;
+        } catch (IOException ex) {
+            lastError = ex;
+            dropped.increment();
+            closeQuietly();
+        }
+    }
+
+    private void flush() {
+        if (out != null) {
+            try {
+                out.flush();
+                flushed();
+            } catch (IOException ex) {
+                lastError = ex;
+                closeQuietly();
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        size = Files.size(file);
+    }
+
+    /**
+     * Rota los archivos: el actual pasa a ser .1, el .1 pasa a .2, etc.; el más antiguo se descarta.
+     */
+    private void roll() throws IOException {
+        out.close();
+        flushed();
+        out = null;
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = i == 1 ? file : rotated(i - 1);
+            if (Files.exists(source)) {
+                Files.move(source, rotated(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles == 1) {
+            Files.delete(file);
+        }
+        open();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    /**
+     * Cuenta como registradas las entradas del búfer una vez que llegaron al archivo, de modo que
+     * {@link #getLogged()} nunca incluye líneas que aún no se pueden leer.
+     */
+    private void flushed() {
+        logged.add(unflushed);
+        unflushed = 0;
+    }
+
+    private void closeQuietly() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } catch (IOException ignored) {
+            // El archivo se vuelve a abrir con la siguiente entrada.
+        }
+        // Las entradas que seguían en el búfer se consideran perdidas.
+        dropped.add(unflushed);
+        unflushed = 0;
+        out = null;
+    }
+}
@@ -0,0 +1,99 @@
+package esfe.persistencia;
+
+import java.sql.Connection;        // Conexión física dueña de las sentencias en caché.
+import java.sql.PreparedStatement; // Sentencia preparada que se reutiliza entre llamadas.
+import java.sql.SQLException;      // Errores específicos de la base de datos.
+import java.sql.Statement;         // Constantes de claves generadas (RETURN_GENERATED_KEYS).
+import java.util.LinkedHashMap;    // Mapa con orden de acceso, base de la política LRU.
+import java.util.Map;              // Interfaz de mapas.
+import java.util.concurrent.atomic.LongAdder; // Contadores de aciertos y fallos con baja contención.
+
+/**
+ * Caché de sentencias preparadas asociada a una única conexión física del pool.
+ * La clave es el texto SQL (más el indicador de claves generadas), de modo que
+ * getById, search o authenticate reutilizan la misma sentencia ya preparada en el
+ * servidor en lugar de analizarla y planificarla en cada llamada.
+ *
+ * La caché no es segura para hilos: solo la usa el hilo que tiene la conexión prestada.
+ * Los contadores sí son globales y se comparten entre todas las conexiones.
+ */
+class StatementCache {
+
+    private static final LongAdder HITS = new LongAdder();      // Sentencias encontradas en caché.
+    private static final LongAdder MISSES = new LongAdder();    // Sentencias que tuvieron que prepararse.
+    private static final LongAdder EVICTIONS = new LongAdder(); // Sentencias cerradas por la política LRU.
+
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+
+    /**
+     * @param connection Conexión física sobre la que se preparan las sentencias.
+     * @param maxSize Cantidad máxima de sentencias abiertas; al superarla se cierra la menos usada.
+     */
+    StatementCache(Connection connection, int maxSize) {
+        this.connection = connection;
+        // LinkedHashMap con orden de acceso: el primer elemento es siempre el menos usado recientemente.
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > maxSize) {
+                    EVICTIONS.increment();
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Obtiene una sentencia preparada para el SQL indicado, reutilizándola si ya existe.
+     * Los parámetros de la sentencia reutilizada se limpian antes de entregarla.
+     *
+     * @param sql Texto SQL de la sentencia.
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} o {@link Statement#NO_GENERATED_KEYS}.
+     * @return La sentencia lista para asignar parámetros. No debe cerrarse: pertenece a la caché.
+     * @throws SQLException Si ocurre un error al preparar la sentencia.
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+        PreparedStatement ps = statements.get(key);
+        if (ps != null && !ps.isClosed()) {
+            HITS.increment();
+            ps.clearParameters();
+            return ps;
+        }
+        MISSES.increment();
+        ps = connection.prepareStatement(sql, autoGeneratedKeys);
+        statements.put(key, ps);
+        return ps;
+    }
+
+    /**
+     * Cierra todas las sentencias de la caché.
+     */
+    void clear() {
+        statements.values().forEach(StatementCache::closeQuietly);
+        statements.clear();
+    }
+
+    static long getHits() {
+        return HITS.sum();
+    }
+
+    static long getMisses() {
+        return MISSES.sum();
+    }
+
+    static long getEvictions() {
+        return EVICTIONS.sum();
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+            // La sentencia se descarta de todas formas.
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package esfe.persistencia;
+
+import java.sql.SQLException; // Representa errores específicos de la base de datos.
+
+/**
+ * Trabajo que se ejecuta dentro de una transacción de {@link ConnectionManager#inTransaction(TransactionWork)}.
+ * Todas las llamadas a los DAO que se hagan dentro de {@link #execute()} comparten la misma conexión
+ * y se confirman juntas al terminar.
+ *
+ * @param <T> Tipo del resultado del trabajo (puede ser {@link Void} y retornar null).
+ */
+@FunctionalInterface
+public interface TransactionWork<T> {
+    T execute() throws SQLException;
+}
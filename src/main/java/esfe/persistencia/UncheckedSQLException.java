@@ -0,0 +1,21 @@
+package esfe.persistencia;
+
+import java.sql.SQLException; // Error original de la base de datos.
+
+/**
+ * Envuelve una {@link SQLException} ocurrida donde no se pueden lanzar excepciones verificadas,
+ * por ejemplo mientras se recorre un {@link java.util.stream.Stream} de resultados.
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(String message, SQLException cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
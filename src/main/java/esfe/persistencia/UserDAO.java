@@ -4,19 +4,86 @@ import java.sql.PreparedStatement; // Clase para ejecutar consultas SQL preparad
 import java.sql.ResultSet;        // Interfaz para representar el resultado de una consulta SQL.
 import java.sql.SQLException;     // Clase para manejar errores relacionados con la base de datos SQL.
 import java.util.ArrayList;       // Clase para crear listas dinámicas de objetos.
+import java.util.Collection;      // IDs de getByIds.
+import java.util.HashMap;         // Resultado de getByIds por ID.
+import java.util.LinkedHashSet;   // IDs de getByIds sin repetidos.
+import java.util.List;            // Interfaz de listas.
+import java.util.Map;             // Interfaz de mapas.
+import java.util.concurrent.CompletableFuture; // Resultado de las versiones asíncronas.
+import java.util.stream.Stream;   // Flujo perezoso de resultados.
 
 import esfe.dominio.User;        // Clase que representa la entidad de usuario en el dominio de la aplicación.
 import esfe.utils.PasswordHasher; // Clase utilitaria para el manejo seguro de contraseñas (hash, verificación).
 
+/**
+ * Acceso a datos de los usuarios. No guarda estado por operación: las sentencias y resultados son
+ * variables locales y la conexión se asocia al hilo que llama ({@link ConnectionManager}), por lo que
+ * una misma instancia puede usarse desde varios hilos a la vez.
+ */
 public class UserDAO {
-    private ConnectionManager conn; // Objeto para gestionar la conexión con la base de datos.
-    private PreparedStatement ps;   // Objeto para ejecutar consultas SQL preparadas.
-    private ResultSet rs;           // Objeto para almacenar el resultado de una consulta SQL.
+    private final ConnectionManager conn; // Objeto para gestionar la conexión con la base de datos.
+    private final UserEmailFilter emailFilter = UserEmailFilter.getInstance(); // Correos existentes (si está construido).
+
+    private static final byte INACTIVO = 2; // Estado de un usuario desactivado (ver User.getStrEstatus()).
+
+    /**
+     * Caché de usuarios por ID compartida por todas las instancias del DAO (ver {@link EntityCache}).
+     * Guarda los mismos campos que retorna getById (sin el hash de la contraseña).
+     */
+    private static final EntityCache<User> CACHE = new EntityCache<>("user",
+            u -> new User(u.getId(), u.getName(), null, u.getEmail(), u.getStatus()));
+
+    /**
+     * Caché de resultados de search() por nombre (ver {@link SearchCache}), vaciada en cada escritura.
+     */
+    private static final SearchCache<User> SEARCH_CACHE = new SearchCache<>("user.search",
+            u -> new User(u.getId(), u.getName(), null, u.getEmail(), u.getStatus()),
+            User::getName,
+            u -> SearchCache.estimateBytes(u.getName(), u.getEmail()));
+
+    /**
+     * Agrupa las lecturas simultáneas del mismo ID en una sola consulta (ver {@link SingleFlight}).
+     */
+    private static final SingleFlight<Integer, User> ID_FLIGHTS = new SingleFlight<>(
+            u -> new User(u.getId(), u.getName(), null, u.getEmail(), u.getStatus()));
+
+    // Métricas de cada método (ver DaoMetrics): llamadas, errores, filas e histograma de latencias.
+    private static final MethodMetrics CREATE_METRICS = DaoMetrics.forMethod("UserDAO", "create");
+    private static final MethodMetrics UPDATE_METRICS = DaoMetrics.forMethod("UserDAO", "update");
+    private static final MethodMetrics DELETE_METRICS = DaoMetrics.forMethod("UserDAO", "delete");
+    private static final MethodMetrics SEARCH_METRICS = DaoMetrics.forMethod("UserDAO", "search");
+    private static final MethodMetrics SEARCH_PAGE_METRICS = DaoMetrics.forMethod("UserDAO", "searchPage");
+    private static final MethodMetrics GET_BY_ID_METRICS = DaoMetrics.forMethod("UserDAO", "getById");
+    private static final MethodMetrics GET_BY_IDS_METRICS = DaoMetrics.forMethod("UserDAO", "getByIds");
+    private static final MethodMetrics AUTHENTICATE_METRICS = DaoMetrics.forMethod("UserDAO", "authenticate");
+    private static final MethodMetrics UPDATE_PASSWORD_METRICS = DaoMetrics.forMethod("UserDAO", "updatePassword");
+    private static final MethodMetrics EMAIL_EXISTS_METRICS = DaoMetrics.forMethod("UserDAO", "emailExists");
 
     public UserDAO(){
         conn = ConnectionManager.getInstance();
     }
 
+    /**
+     * Caché de getById, para consultar sus estadísticas (aciertos, fallos, expulsiones).
+     */
+    public static EntityCache<User> getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Caché de search(), para consultar sus estadísticas (aciertos, refinamientos, fallos).
+     */
+    public static SearchCache<User> getSearchCache() {
+        return SEARCH_CACHE;
+    }
+
+    /**
+     * Agrupador de getById, para consultar cuántas lecturas se unieron a una consulta en curso.
+     */
+    public static SingleFlight<Integer, User> getIdFlights() {
+        return ID_FLIGHTS;
+    }
+
     /**
      * Crea un nuevo usuario en la base de datos.
      *
@@ -30,16 +97,17 @@ public class UserDAO {
      * durante la creación del usuario.
      */
     public User create(User user) throws SQLException {
+        CallTrace call = CREATE_METRICS.start(); // Mide la llamada (ver DaoMetrics).
         User res = null; // Variable para almacenar el usuario creado que se retornará.
         try{
             // Preparar la sentencia SQL para la inserción de un nuevo usuario.
             // Se especifica que se retornen las claves generadas automáticamente.
-            PreparedStatement ps = conn.connect().prepareStatement(
-                    "INSERT INTO " +
-                            "Users (name, passwordHash, email, status)" +
-                            "VALUES (?, ?, ?, ?)",
-                    java.sql.Statement.RETURN_GENERATED_KEYS
-            );
+            String sql = "INSERT INTO " +
+                    "Users (name, passwordHash, email, status)" +
+                    "VALUES (?, ?, ?, ?)";
+            PreparedStatement ps = conn.prepareStatement(sql, java.sql.Statement.RETURN_GENERATED_KEYS);
+            call.query(sql, user.getName(), CallTrace.REDACTED, user.getEmail(), user.getStatus());
+            call.acquired();
             // Establecer los valores de los parámetros en la sentencia preparada.
             ps.setString(1, user.getName()); // Asignar el nombre del usuario.
             ps.setString(2, PasswordHasher.hashPassword(user.getPasswordHash())); // Hashear la contraseña antes de guardarla.
@@ -48,6 +116,7 @@ public class UserDAO {
 
             // Ejecutar la sentencia de inserción y obtener el número de filas afectadas.
             int affectedRows = ps.executeUpdate();
+            call.executed();
 
             // Verificar si la inserción fue exitosa (al menos una fila afectada).
             if (affectedRows != 0) {
@@ -57,21 +126,30 @@ public class UserDAO {
                 if (generatedKeys.next()) {
                     // Obtener el ID generado. Generalmente la primera columna contiene la clave primaria.
                     int idGenerado= generatedKeys.getInt(1);
-                    // Recuperar el usuario completo utilizando el ID generado.
-                    res = getById(idGenerado);
+                    // Construir el usuario creado con el ID generado (con los mismos campos que retorna getById),
+                    // sin volver a leerlo de la base de datos, y guardarlo en la caché.
+                    res = new User(idGenerado, user.getName(), null, user.getEmail(), user.getStatus());
+                    User created = new User(idGenerado, user.getName(), null, user.getEmail(), user.getStatus());
+                    // Dentro de una transacción la fila no existe para los demás hasta el commit.
+                    conn.afterCommit(() -> {
+                        CACHE.put(idGenerado, created);
+                        emailFilter.add(created.getEmail()); // Mantener al día el filtro de correos.
+                        ID_FLIGHTS.forget(idGenerado);
+                        SEARCH_CACHE.clear(); // Los resultados de búsqueda guardados ya no están completos.
+                    });
                 } else {
                     // Lanzar una excepción si la creación del usuario falló y no se obtuvo un ID.
                     throw new SQLException("Creating user failed, no ID obtained.");
                 }
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
+            call.success(res != null ? 1 : 0);
         }catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al crear el usuario: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
             conn.disconnect(); // Desconectar de la base de datos.
+            call.end();
         }
         return res; // Retornar el usuario creado (con su ID asignado) o null si hubo un error.
     }
@@ -88,14 +166,16 @@ public class UserDAO {
      * durante la actualización del usuario.
      */
     public boolean update(User user) throws SQLException{
+        CallTrace call = UPDATE_METRICS.start(); // Mide la llamada (ver DaoMetrics).
         boolean res = false; // Variable para indicar si la actualización fue exitosa.
         try{
             // Preparar la sentencia SQL para actualizar la información de un usuario.
-            ps = conn.connect().prepareStatement(
-                    "UPDATE Users " +
-                            "SET name = ?, email = ?, status = ? " +
-                            "WHERE id = ?"
-            );
+            String sql = "UPDATE Users " +
+                    "SET name = ?, email = ?, status = ? " +
+                    "WHERE id = ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, user.getName(), user.getEmail(), user.getStatus(), user.getId());
+            call.acquired();
 
             // Establecer los valores de los parámetros en la sentencia preparada.
             ps.setString(1, user.getName());  // Asignar el nuevo nombre del usuario.
@@ -106,15 +186,32 @@ public class UserDAO {
             // Ejecutar la sentencia de actualización y verificar si se afectó alguna fila.
             if(ps.executeUpdate() > 0){
                 res = true; // Si executeUpdate() retorna un valor mayor que 0, significa que la actualización fue exitosa.
+                int id = user.getId();
+                String email = user.getEmail();
+                boolean inactive = user.getStatus() == INACTIVO;
+                if (inactive) {
+                    SessionStore.getInstance().invalidateUser(id); // Un usuario inactivo no conserva sus sesiones.
+                }
+                // Hasta el commit los demás hilos siguen viendo (y pueden guardar) la versión anterior.
+                conn.afterCommit(() -> {
+                    forget(id);             // El nombre o el estado pudieron cambiar.
+                    emailFilter.add(email); // El correo pudo cambiar (el anterior sigue en el filtro).
+                    if (inactive) {
+                        // Otra vez tras el commit: un authenticate concurrente que aún leía el estado
+                        // ACTIVO pudo abrir una sesión después del cierre anterior.
+                        SessionStore.getInstance().invalidateUser(id);
+                    }
+                });
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
+            call.executed();
+            call.success(res ? 1 : 0);
         }catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al modificar el usuario: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
             conn.disconnect(); // Desconectar de la base de datos.
+            call.end();
         }
 
         return res; // Retornar el resultado de la operación de actualización.
@@ -131,58 +228,107 @@ public class UserDAO {
      * durante la eliminación del usuario.
      */
     public boolean delete(User user) throws SQLException{
+        CallTrace call = DELETE_METRICS.start(); // Mide la llamada (ver DaoMetrics).
         boolean res = false; // Variable para indicar si la eliminación fue exitosa.
         try{
             // Preparar la sentencia SQL para eliminar un usuario por su ID.
-            ps = conn.connect().prepareStatement(
-                    "DELETE FROM Users WHERE id = ?"
-            );
+            String sql = "DELETE FROM Users WHERE id = ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, user.getId());
+            call.acquired();
             // Establecer el valor del parámetro en la sentencia preparada (el ID del usuario a eliminar).
             ps.setInt(1, user.getId());
 
             // Ejecutar la sentencia de eliminación y verificar si se afectó alguna fila.
             if(ps.executeUpdate() > 0){
                 res = true; // Si executeUpdate() retorna un valor mayor que 0, significa que la eliminación fue exitosa.
+                int id = user.getId();
+                SessionStore.getInstance().invalidateUser(id); // Se cierran sus sesiones.
+                conn.afterCommit(() -> {
+                    forget(id);                 // Quitar el usuario de la caché y descartar las búsquedas guardadas.
+                    emailFilter.deleted(this);  // Su correo queda en el filtro hasta reconstruirlo.
+                    SessionStore.getInstance().invalidateUser(id); // Y las sesiones abiertas antes del commit.
+                });
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
+            call.executed();
+            call.success(res ? 1 : 0);
         }catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al eliminar el usuario: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
             conn.disconnect(); // Desconectar de la base de datos.
+            call.end();
         }
 
         return res; // Retornar el resultado de la operación de eliminación.
     }
 
+    /**
+     * Descarta lo guardado sobre un usuario modificado o eliminado: su copia en la caché, las
+     * lecturas en curso de su ID y todas las búsquedas guardadas.
+     */
+    private static void forget(int id) {
+        CACHE.invalidate(id);
+        ID_FLIGHTS.forget(id); // Las lecturas siguientes no se unen a una iniciada antes del cambio.
+        SEARCH_CACHE.clear();
+    }
+
     /**
      * Busca usuarios en la base de datos cuyo nombre contenga la cadena de búsqueda proporcionada.
      * La búsqueda se realiza de forma parcial, es decir, si el nombre del usuario contiene
      * la cadena de búsqueda (ignorando mayúsculas y minúsculas), será incluido en los resultados.
+     * Si un texto más general ya fue buscado, el resultado se obtiene filtrando en memoria el guardado
+     * en la caché de búsquedas ({@link #getSearchCache()}).
      *
      * @param name La cadena de texto a buscar dentro de los nombres de los usuarios.
-     * @return Un ArrayList de objetos User que coinciden con el criterio de búsqueda.
+     * @return Un ArrayList de objetos User que coinciden con el criterio de búsqueda, ordenados por ID.
      * Retorna una lista vacía si no se encuentran usuarios con el nombre especificado.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos
      * durante la búsqueda de usuarios.
      */
     public ArrayList<User> search(String name) throws SQLException{
+        CallTrace call = SEARCH_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        try {
+            ArrayList<User> res = searchCached(name, call);
+            call.success(res.size());
+            return res;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Resuelve search() desde la caché de búsquedas o la base de datos.
+     */
+    private ArrayList<User> searchCached(String name, CallTrace call) throws SQLException{
+        // Dentro de una transacción se consulta siempre y no se guarda: puede ver cambios sin confirmar.
+        boolean cacheable = !conn.isInTransaction();
+        ArrayList<User> cached = cacheable ? SEARCH_CACHE.get(name) : null; // Resultado exacto o refinado desde la caché.
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = SEARCH_CACHE.stamp(); // Marca para no guardar resultados leídos antes de una escritura concurrente.
         ArrayList<User> records  = new ArrayList<>(); // Lista para almacenar los usuarios encontrados.
 
         try {
             // Preparar la sentencia SQL para buscar usuarios por nombre (usando LIKE para búsqueda parcial).
-            ps = conn.connect().prepareStatement("SELECT id, name, email, status " +
+            // Ordenados por ID para que searchPage() pueda recortar páginas del resultado guardado.
+            String sql = "SELECT id, name, email, status " +
                     "FROM Users " +
-                    "WHERE name LIKE ?");
+                    "WHERE name LIKE ? " +
+                    "ORDER BY id";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, "%" + name + "%");
+            call.acquired();
 
             // Establecer el valor del parámetro en la sentencia preparada.
             // El '%' al inicio y al final permiten la búsqueda de la cadena 'name' en cualquier parte del nombre del usuario.
             ps.setString(1, "%" + name + "%");
 
             // Ejecutar la consulta SQL y obtener el resultado.
-            rs = ps.executeQuery();
+            ResultSet rs = ps.executeQuery();
+            call.executed();
 
             // Iterar a través de cada fila del resultado.
             while (rs.next()){
@@ -196,22 +342,188 @@ public class UserDAO {
                 // Agregar el objeto User a la lista de resultados.
                 records.add(user);
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
             rs.close(); // Cerrar el conjunto de resultados para liberar recursos.
+            call.mapped();
         } catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al buscar usuarios: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
-            rs = null;         // Establecer el conjunto de resultados a null.
             conn.disconnect(); // Desconectar de la base de datos.
         }
+        if (cacheable) {
+            SEARCH_CACHE.put(name, records, stamp); // Guardar el resultado para las búsquedas siguientes.
+        }
         return records; // Retornar la lista de usuarios encontrados.
     }
 
+    /**
+     * Busca usuarios por nombre devolviendo solo una página de resultados. La paginación es por
+     * conjunto de claves: se piden los usuarios con ID mayor que "afterId" ordenados por ID, de modo
+     * que el costo de cada página no crece con la posición (a diferencia de LIMIT ... OFFSET).
+     * Si la caché de búsquedas tiene el resultado, la página se recorta en memoria sin consultar la
+     * base de datos; y una primera página que contiene todo el resultado se guarda en la caché.
+     *
+     * @param name La cadena de texto a buscar dentro de los nombres de los usuarios.
+     * @param afterId El cursor: 0 para la primera página o {@link Page#getNextCursor()} de la anterior.
+     * @param pageSize Cantidad máxima de usuarios de la página.
+     * @return La página con los usuarios encontrados y el cursor de la siguiente.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public Page<User> searchPage(String name, int afterId, int pageSize) throws SQLException{
+        return searchPage(name, afterId, pageSize, null);
+    }
+
+    /**
+     * Igual que {@link #searchPage(String, int, int)} pero permitiendo cancelar la consulta desde otro
+     * hilo con {@link QueryHandle#cancel()}.
+     *
+     * @param handle Handle con el que se puede cancelar la consulta, o null.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos o la consulta fue cancelada.
+     */
+    public Page<User> searchPage(String name, int afterId, int pageSize, QueryHandle handle) throws SQLException{
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero: " + pageSize);
+        }
+        CallTrace call = SEARCH_PAGE_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        try {
+            // Dentro de una transacción se consulta siempre, como en search().
+            boolean cacheable = !conn.isInTransaction();
+            ArrayList<User> all = cacheable ? SEARCH_CACHE.get(name) : null;
+            Page<User> page = all != null ? Page.slice(all, User::getId, afterId, pageSize)
+                    : queryPage(name, afterId, pageSize, handle, call);
+            call.success(page.getItems().size());
+            return page;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Consulta una página en la base de datos para searchPage().
+     */
+    private Page<User> queryPage(String name, int afterId, int pageSize, QueryHandle handle, CallTrace call) throws SQLException{
+        long stamp = SEARCH_CACHE.stamp(); // Marca para no guardar resultados leídos antes de una escritura concurrente.
+        ArrayList<User> records  = new ArrayList<>(); // Lista para almacenar los usuarios de la página.
+        boolean hasNext = false; // Indica si quedan más usuarios después de esta página.
+
+        try {
+            // Preparar la sentencia SQL: mismo filtro que search() más el cursor por ID.
+            String sql = "SELECT id, name, email, status " +
+                    "FROM Users " +
+                    "WHERE name LIKE ? AND id > ? " +
+                    "ORDER BY id " +
+                    "LIMIT ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, "%" + name + "%", afterId, pageSize + 1);
+            call.acquired();
+
+            ps.setString(1, "%" + name + "%");
+            ps.setInt(2, afterId);
+            // Se pide una fila extra solo para saber si existe una página siguiente.
+            ps.setInt(3, pageSize + 1);
+
+            // Ejecutar la consulta SQL y obtener el resultado (asociada al handle mientras se ejecuta).
+            if (handle != null) {
+                handle.attach(ps);
+            }
+            ResultSet rs = ps.executeQuery();
+            call.executed();
+
+            while (rs.next()){
+                if (records.size() == pageSize) {
+                    hasNext = true; // La fila extra confirma que hay más resultados.
+                    break;
+                }
+                User user = new User();
+                user.setId(rs.getInt(1));       // Obtener el ID del usuario.
+                user.setName(rs.getString(2));   // Obtener el nombre del usuario.
+                user.setEmail(rs.getString(3));  // Obtener el correo electrónico del usuario.
+                user.setStatus(rs.getByte(4));    // Obtener el estado del usuario.
+                records.add(user);
+            }
+            rs.close(); // Cerrar el conjunto de resultados para liberar recursos.
+            call.mapped();
+        } catch (SQLException ex){
+            // Capturar cualquier excepción SQL que ocurra durante el proceso.
+            throw new SQLException("Error al buscar usuarios por pagina: " + ex.getMessage(), ex);
+        } finally {
+            // Bloque finally para asegurar que los recursos se liberen.
+            if (handle != null) {
+                handle.detach(); // La sentencia vuelve a la caché: ya no debe poder cancelarse.
+            }
+            conn.disconnect(); // Desconectar de la base de datos.
+        }
+        if (afterId == 0 && !hasNext && !conn.isInTransaction()) {
+            // La primera página tiene todo el resultado: es el mismo que daría search().
+            SEARCH_CACHE.put(name, records, stamp);
+        }
+        int nextCursor = records.isEmpty() ? afterId : records.get(records.size() - 1).getId();
+        return new Page<>(records, nextCursor, hasNext);
+    }
+
+    /**
+     * Recorre los usuarios cuyo nombre contenga la cadena de búsqueda sin construir una lista con todos
+     * los resultados: las filas se leen desde un cursor del servidor en bloques de
+     * "stream.fetchSize" filas (500 por defecto) a medida que se consume el Stream, por lo que la
+     * memoria usada no depende de la cantidad de filas. Útil para exportaciones y procesos en segundo plano.
+     *
+     * El Stream usa una conexión exclusiva del pool que se devuelve al cerrarlo, por lo que
+     * debe usarse con try-with-resources:
+     * {@code try (Stream<User> s = dao.streamSearch("x")) { s.forEach(...); }}
+     * Los errores de la base de datos durante el recorrido se lanzan como {@link UncheckedSQLException}.
+     *
+     * @param name La cadena de texto a buscar ("" recorre toda la tabla).
+     * @return Un Stream perezoso de los usuarios encontrados.
+     * @throws SQLException Si ocurre un error al abrir la consulta.
+     */
+    public Stream<User> streamSearch(String name) throws SQLException {
+        return streamSearch(name, PersistenceConfig.getInt("stream.fetchSize", 500));
+    }
+
+    /**
+     * Igual que {@link #streamSearch(String)} indicando cuántas filas se leen del servidor en cada bloque.
+     */
+    public Stream<User> streamSearch(String name, int fetchSize) throws SQLException {
+        // Conexión exclusiva: el cursor queda abierto mientras el Stream no se cierre.
+        ConnectionManager.Lease lease = conn.lease();
+        PreparedStatement statement = null;
+        try {
+            // Sentencia propia (no de la caché) de solo avance y solo lectura, requisito para leer por bloques.
+            statement = lease.getConnection().prepareStatement("SELECT id, name, email, status " +
+                    "FROM Users " +
+                    "WHERE name LIKE ?", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statement.setString(1, "%" + name + "%");
+            ResultSet resultSet = statement.executeQuery();
+            // Cada fila se convierte en objeto solo cuando el consumidor la pide.
+            return ResultSetStream.of(lease, statement, resultSet, row -> {
+                User user = new User();
+                user.setId(row.getInt(1));       // Obtener el ID del usuario.
+                user.setName(row.getString(2));   // Obtener el nombre del usuario.
+                user.setEmail(row.getString(3));  // Obtener el correo electrónico del usuario.
+                user.setStatus(row.getByte(4));    // Obtener el estado del usuario.
+                return user;
+            });
+        } catch (SQLException ex) {
+            // Si la consulta no pudo abrirse, la sentencia se cierra (no pertenece a la caché y la
+            // conexión vuelve al pool) y la conexión se devuelve de inmediato.
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException closeEx) {
+                    ex.addSuppressed(closeEx);
+                }
+            }
+            lease.close();
+            throw new SQLException("Error al recorrer usuarios: " + ex.getMessage(), ex);
+        }
+    }
+
     /**
      * Obtiene un usuario de la base de datos basado en su ID.
+     * Si el usuario está en la caché ({@link #getCache()}) se retorna una copia sin consultar la base de datos.
+     * Si otro hilo ya está leyendo el mismo ID, se espera y se reutiliza su resultado ({@link #getIdFlights()}).
      *
      * @param id El ID del usuario que se desea obtener.
      * @return Un objeto User si se encuentra un usuario con el ID especificado,
@@ -220,19 +532,55 @@ public class UserDAO {
      * durante la obtención del usuario.
      */
     public User getById(int id) throws SQLException{
+        CallTrace call = GET_BY_ID_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        try {
+            User res = getByIdCached(id, call);
+            call.success(res != null ? 1 : 0);
+            return res;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Resuelve getById() desde la caché o la base de datos.
+     */
+    private User getByIdCached(int id, CallTrace call) throws SQLException{
+        if (conn.isInTransaction()) {
+            // Dentro de una transacción se consulta siempre, para ver sus propios cambios sin confirmar.
+            return queryById(id, call);
+        }
+        User cached = CACHE.get(id); // Buscar primero en la caché.
+        if (cached != null) {
+            return cached;
+        }
+        // Las lecturas simultáneas del mismo ID comparten una sola consulta.
+        return ID_FLIGHTS.run(id, () -> queryById(id, call));
+    }
+
+    /**
+     * Consulta la base de datos para getById() y guarda el usuario leído en la caché.
+     */
+    private User queryById(int id, CallTrace call) throws SQLException{
+        long stamp = CACHE.stamp(); // Marca para no guardar datos leídos antes de una modificación concurrente.
+        boolean cacheable = !conn.isInTransaction(); // Lo leído dentro de una transacción puede deshacerse.
         User user  = new User(); // Inicializar un objeto User que se retornará.
 
         try {
             // Preparar la sentencia SQL para seleccionar un usuario por su ID.
-            ps = conn.connect().prepareStatement("SELECT id, name, email, status " +
+            String sql = "SELECT id, name, email, status " +
                     "FROM Users " +
-                    "WHERE id = ?");
+                    "WHERE id = ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, id);
+            call.acquired();
 
             // Establecer el valor del parámetro en la sentencia preparada (el ID a buscar).
             ps.setInt(1, id);
 
             // Ejecutar la consulta SQL y obtener el resultado.
-            rs = ps.executeQuery();
+            ResultSet rs = ps.executeQuery();
+            call.executed();
 
             // Verificar si se encontró algún registro.
             if (rs.next()) {
@@ -245,17 +593,18 @@ public class UserDAO {
                 // Si no se encontró ningún usuario con el ID especificado, establecer el objeto User a null.
                 user = null;
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
             rs.close(); // Cerrar el conjunto de resultados para liberar recursos.
+            call.mapped();
         } catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al obtener un usuario por id: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
-            rs = null;         // Establecer el conjunto de resultados a null.
             conn.disconnect(); // Desconectar de la base de datos.
         }
+        if (user != null && cacheable) {
+            CACHE.put(id, user, stamp); // Guardar el usuario leído en la caché.
+        }
         return user; // Retornar el objeto User encontrado o null si no existe.
     }
 
@@ -270,24 +619,46 @@ public class UserDAO {
      * con las credenciales proporcionadas y su estado es activo), o null si la
      * autenticación falla. El objeto User retornado contendrá el ID, nombre,
      * correo electrónico y estado del usuario autenticado.
+     * @throws LoginThrottledException Si el correo o este equipo superaron el límite de
+     * intentos (ver LoginRateLimiter); en ese caso no se consulta la base de datos.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos
      * durante el proceso de autenticación.
      */
     public User authenticate(User user) throws SQLException{
+        return authenticate(user, LoginRateLimiter.LOCAL_SOURCE);
+    }
+
+    /**
+     * Igual que {@link #authenticate(User)}, indicando el origen del intento (por ejemplo, la
+     * dirección del cliente) para el límite de intentos por origen.
+     */
+    public User authenticate(User user, String source) throws SQLException{
+        // Los intentos que superan el límite se rechazan aquí, sin consulta ni cálculo del hash.
+        LoginRateLimiter.getInstance().check(user.getEmail(), source);
+        // Dentro de una transacción el usuario pudo crearse sin confirmar: el filtro aún no lo tiene.
+        if (!conn.isInTransaction() && !emailFilter.mightContain(user.getEmail())) {
+            return null; // El correo no existe (ver UserEmailFilter): no se consulta ni se calcula el hash.
+        }
+
+        CallTrace call = AUTHENTICATE_METRICS.start(); // Mide la llamada (ver DaoMetrics).
 
         User userAutenticate = new User(); // Inicializar un objeto User para almacenar el usuario autenticado.
 
         try {
             // Preparar la sentencia SQL para seleccionar un usuario por su correo electrónico,
             // contraseña hasheada y estado activo (status = 1).
-            ps = conn.connect().prepareStatement("SELECT id, name, email, status " +
+            String sql = "SELECT id, name, email, status " +
                     "FROM Users " +
-                    "WHERE email = ? AND passwordHash = ? AND status = 1");
+                    "WHERE email = ? AND passwordHash = ? AND status = 1";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, user.getEmail(), CallTrace.REDACTED);
+            call.acquired();
 
             // Establecer los valores de los parámetros en la sentencia preparada.
             ps.setString(1, user.getEmail()); // Asignar el correo electrónico del usuario a autenticar.
             ps.setString(2, PasswordHasher.hashPassword(user.getPasswordHash())); // Hashear la contraseña proporcionada para compararla con la almacenada.
-            rs = ps.executeQuery(); // Ejecutar la consulta SQL y obtener el resultado.
+            ResultSet rs = ps.executeQuery(); // Ejecutar la consulta SQL y obtener el resultado.
+            call.executed();
 
             // Verificar si se encontró un registro que coincida con las credenciales y el estado.
             if (rs.next()) {
@@ -300,16 +671,16 @@ public class UserDAO {
                 // Si no se encontraron coincidencias, la autenticación falla y se establece userAutenticate a null.
                 userAutenticate = null;
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
             rs.close(); // Cerrar el conjunto de resultados para liberar recursos.
+            call.mapped();
+            call.success(userAutenticate != null ? 1 : 0);
         } catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso de autenticación.
             throw new SQLException("Error al autenticar un usuario por id: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
-            rs = null;         // Establecer el conjunto de resultados a null.
             conn.disconnect(); // Desconectar de la base de datos.
+            call.end();
         }
         return userAutenticate; // Retornar el objeto User autenticado o null si la autenticación falló.
     }
@@ -328,14 +699,16 @@ public class UserDAO {
      * durante la actualización de la contraseña.
      */
     public boolean updatePassword(User user) throws SQLException{
+        CallTrace call = UPDATE_PASSWORD_METRICS.start(); // Mide la llamada (ver DaoMetrics).
         boolean res = false; // Variable para indicar si la actualización de la contraseña fue exitosa.
         try{
             // Preparar la sentencia SQL para actualizar solo la columna 'passwordHash' de un usuario.
-            ps = conn.connect().prepareStatement(
-                    "UPDATE Users " +
-                            "SET passwordHash = ? " +
-                            "WHERE id = ?"
-            );
+            String sql = "UPDATE Users " +
+                    "SET passwordHash = ? " +
+                    "WHERE id = ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, CallTrace.REDACTED, user.getId());
+            call.acquired();
             // Hashear la nueva contraseña proporcionada antes de establecerla en la consulta.
             ps.setString(1, PasswordHasher.hashPassword(user.getPasswordHash()));
             // Establecer el ID del usuario cuya contraseña se va a actualizar en la cláusula WHERE.
@@ -344,18 +717,212 @@ public class UserDAO {
             // Ejecutar la sentencia de actualización y verificar si se afectó alguna fila.
             if(ps.executeUpdate() > 0){
                 res = true; // Si executeUpdate() retorna un valor mayor que 0, la actualización fue exitosa.
+                int id = user.getId();
+                SessionStore.getInstance().invalidateUser(id); // Las sesiones abiertas con la contraseña anterior se cierran.
+                // Hasta el commit otro hilo aún puede autenticarse con la contraseña anterior y abrir
+                // una sesión: se vuelven a cerrar cuando el cambio queda confirmado.
+                conn.afterCommit(() -> SessionStore.getInstance().invalidateUser(id));
             }
-            ps.close(); // Cerrar la sentencia preparada para liberar recursos.
+            call.executed();
+            call.success(res ? 1 : 0);
         }catch (SQLException ex){
             // Capturar cualquier excepción SQL que ocurra durante el proceso.
             throw new SQLException("Error al modificar el password del usuario: " + ex.getMessage(), ex);
         } finally {
             // Bloque finally para asegurar que los recursos se liberen.
-            ps = null;         // Establecer la sentencia preparada a null.
             conn.disconnect(); // Desconectar de la base de datos.
+            call.end();
         }
 
         return res; // Retornar el resultado de la operación de actualización de la contraseña.
     }
-}
 
+    /**
+     * Verifica si ya existe un usuario con el correo indicado, por ejemplo antes de crear uno
+     * (la columna email es UNIQUE). Si el filtro de correos ({@link UserEmailFilter}) está construido
+     * y no contiene el correo, se retorna false sin consultar la base de datos.
+     *
+     * @param email Correo a verificar.
+     * @return true si el correo ya está registrado.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public boolean emailExists(String email) throws SQLException {
+        boolean filtered = !conn.isInTransaction(); // Dentro de una transacción el correo pudo agregarse sin confirmar.
+        if (filtered && !emailFilter.mightContain(email)) {
+            return false;
+        }
+        CallTrace call = EMAIL_EXISTS_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        boolean exists;
+        try {
+            String sql = "SELECT 1 FROM Users WHERE email = ?";
+            PreparedStatement ps = conn.prepareStatement(sql);
+            call.query(sql, email);
+            call.acquired();
+            ps.setString(1, email);
+            ResultSet rs = ps.executeQuery();
+            call.executed();
+            exists = rs.next();
+            rs.close();
+            call.mapped();
+            call.success(exists ? 1 : 0);
+        } catch (SQLException ex) {
+            throw new SQLException("Error al verificar el correo: " + ex.getMessage(), ex);
+        } finally {
+            conn.disconnect(); // Desconectar de la base de datos.
+            call.end();
+        }
+        if (!exists && filtered && emailFilter.isReady()) {
+            emailFilter.falsePositive(); // El filtro lo daba como posible y no existe.
+        }
+        return exists;
+    }
+
+    /**
+     * Obtiene varios usuarios por su ID con consultas {@code WHERE id IN (...)} de hasta
+     * "user.idsChunkSize" IDs cada una (500 por defecto), en lugar de una consulta por ID.
+     * Los usuarios que están en la caché ({@link #getCache()}) no se consultan.
+     *
+     * @param ids Los IDs de los usuarios (los repetidos se consultan una sola vez).
+     * @return Un mapa del ID al usuario (sin el hash de la contraseña); los IDs que no existen no aparecen.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     */
+    public Map<Integer, User> getByIds(Collection<Integer> ids) throws SQLException {
+        return getByIds(ids, PersistenceConfig.getInt("user.idsChunkSize", 500));
+    }
+
+    /**
+     * Igual que {@link #getByIds(Collection)} indicando la cantidad máxima de IDs por consulta.
+     */
+    public Map<Integer, User> getByIds(Collection<Integer> ids, int chunkSize) throws SQLException {
+        CallTrace call = GET_BY_IDS_METRICS.start(); // Mide la llamada (ver DaoMetrics).
+        try {
+            Map<Integer, User> res = loadByIds(ids, chunkSize, call);
+            call.success(res.size());
+            return res;
+        } finally {
+            call.end();
+        }
+    }
+
+    /**
+     * Resuelve getByIds() desde la caché y la base de datos.
+     */
+    private Map<Integer, User> loadByIds(Collection<Integer> ids, int chunkSize, CallTrace call) throws SQLException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("El tamaño del bloque debe ser mayor que cero: " + chunkSize);
+        }
+        Map<Integer, User> res = new HashMap<>(Math.max(16, ids.size() * 4 / 3 + 1));
+        List<Integer> missing = new ArrayList<>(); // IDs que no están en la caché.
+        boolean cacheable = !conn.isInTransaction(); // Dentro de una transacción se consulta todo y no se guarda.
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            User cached = cacheable ? CACHE.get(id) : null;
+            if (cached != null) {
+                res.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return res;
+        }
+        long stamp = CACHE.stamp(); // Marca para no guardar datos leídos antes de una modificación concurrente.
+        List<User> loaded = new ArrayList<>(missing.size());
+
+        try {
+            conn.connect(); // Todos los bloques usan la misma conexión.
+            for (int from = 0; from < missing.size(); from += chunkSize) {
+                List<Integer> chunk = missing.subList(from, Math.min(from + chunkSize, missing.size()));
+                int slots = IdChunks.slots(chunk.size(), chunkSize);
+                try {
+                    String sql = "SELECT id, name, email, status " +
+                            "FROM Users " +
+                            "WHERE id IN (" + IdChunks.placeholders(slots) + ")";
+                    PreparedStatement ps = conn.prepareStatement(sql);
+                    call.query(sql, missing.size() + " IDs");
+                    call.acquired();
+                    IdChunks.bind(ps, chunk, slots);
+                    ResultSet rs = ps.executeQuery();
+                    call.executed();
+                    while (rs.next()) {
+                        User user = new User();
+                        user.setId(rs.getInt(1));        // Obtener el ID del usuario.
+                        user.setName(rs.getString(2));   // Obtener el nombre del usuario.
+                        user.setEmail(rs.getString(3));  // Obtener el correo electrónico del usuario.
+                        user.setStatus(rs.getByte(4));   // Obtener el estado del usuario.
+                        loaded.add(user);
+                    }
+                    rs.close(); // Cerrar el conjunto de resultados para liberar recursos.
+                    call.mapped();
+                } finally {
+                    conn.disconnect(); // Libera la llamada de prepareStatement (la conexión sigue tomada).
+                }
+            }
+        } catch (SQLException ex){
+            // Capturar cualquier excepción SQL que ocurra durante el proceso.
+            throw new SQLException("Error al obtener los usuarios por id: " + ex.getMessage(), ex);
+        } finally {
+            conn.disconnect(); // Desconectar de la base de datos.
+        }
+        for (User user : loaded) {
+            if (cacheable) {
+                CACHE.put(user.getId(), user, stamp); // Guardar los usuarios leídos en la caché.
+            }
+            res.put(user.getId(), user);
+        }
+        return res;
+    }
+
+    // Versiones asíncronas: se ejecutan en segundo plano con DaoExecutor (concurrencia acotada,
+    // tiempo máximo y cancelación; las escrituras sin tiempo máximo ni interrupción) y retornan un
+    // CompletableFuture. El DAO no guarda estado por operación, por lo que la misma instancia
+    // atiende a todas a la vez.
+
+    /**
+     * Versión asíncrona de {@link #create(User)}.
+     */
+    public CompletableFuture<User> createAsync(User user) {
+        return DaoExecutor.getInstance().submitWrite(handle -> create(user));
+    }
+
+    /**
+     * Versión asíncrona de {@link #update(User)}.
+     */
+    public CompletableFuture<Boolean> updateAsync(User user) {
+        return DaoExecutor.getInstance().submitWrite(handle -> update(user));
+    }
+
+    /**
+     * Versión asíncrona de {@link #delete(User)}.
+     */
+    public CompletableFuture<Boolean> deleteAsync(User user) {
+        return DaoExecutor.getInstance().submitWrite(handle -> delete(user));
+    }
+
+    /**
+     * Versión asíncrona de {@link #search(String)}.
+     */
+    public CompletableFuture<ArrayList<User>> searchAsync(String name) {
+        return DaoExecutor.getInstance().submit(handle -> search(name));
+    }
+
+    /**
+     * Versión asíncrona de {@link #getById(int)}.
+     */
+    public CompletableFuture<User> getByIdAsync(int id) {
+        return DaoExecutor.getInstance().submit(handle -> getById(id));
+    }
+
+    /**
+     * Versión asíncrona de {@link #authenticate(User)}.
+     */
+    public CompletableFuture<User> authenticateAsync(User user) {
+        return DaoExecutor.getInstance().submit(handle -> authenticate(user));
+    }
+
+    /**
+     * Versión asíncrona de {@link #updatePassword(User)}.
+     */
+    public CompletableFuture<Boolean> updatePasswordAsync(User user) {
+        return DaoExecutor.getInstance().submitWrite(handle -> updatePassword(user));
+    }
+}
@@ -0,0 +1,483 @@
+package esfe.persistencia;
+
+import java.sql.SQLException;                        // Errores específicos de la base de datos.
+import java.util.Arrays;                             // Copia del arreglo de capas al crecer.
+import java.util.Iterator;                           // Recorrido de los correos al construir.
+import java.util.Locale;                             // Formato de las estadísticas.
+import java.util.concurrent.CompletableFuture;       // Resultado de la construcción en segundo plano.
+import java.util.concurrent.atomic.AtomicInteger;    // Correos agregados a cada capa.
+import java.util.concurrent.atomic.AtomicLongArray;  // Bits del filtro, marcados sin bloqueos.
+import java.util.concurrent.atomic.LongAdder;        // Contadores de estadísticas sin contención.
+import java.util.concurrent.locks.ReentrantLock;     // Creación de capas nuevas.
+import java.util.concurrent.locks.ReentrantReadWriteLock; // Agregados concurrentes y reemplazo exclusivo al reconstruir.
+import java.util.stream.Stream;                      // Recorrido de la tabla al construir el filtro.
+
+import esfe.dominio.User; // Filas recorridas al construir el filtro.
+
+/**
+ * Filtro de Bloom en memoria con los correos de la tabla Users. Si el filtro dice que un correo no
+ * existe, es seguro: {@link UserDAO#authenticate(User)} retorna null y {@link UserDAO#emailExists(String)}
+ * retorna false sin consultar la base de datos. Si dice que puede existir se consulta como siempre
+ * (una fracción pequeña de esas respuestas son falsos positivos).
+ *
+ * - Se construye al iniciar con una lectura por cursor ({@link UserDAO#streamSearch(String)}) y
+ *   {@link UserDAO} lo mantiene al día en create y update.
+ * - Crece por capas (filtro de Bloom escalable): cuando una capa alcanza su capacidad se agrega
+ *   otra del doble de tamaño con la mitad de la tasa de falsos positivos, de modo que la tasa total
+ *   se mantiene por debajo del doble de la configurada.
+ * - Un filtro de Bloom no permite quitar elementos: los correos eliminados o reemplazados siguen
+ *   dando "puede existir" (solo cuesta una consulta). Tras muchas eliminaciones el filtro se
+ *   reconstruye en segundo plano.
+ * - Los correos se comparan sin espacios en los extremos y plegados con {@link Collation#fold(String)}
+ *   (sin mayúsculas ni acentos, como la intercalación por defecto de MySQL): "José@Mail.com" y
+ *   "jose@mail.com" dan el mismo resultado, así el filtro no descarta un correo que la base de datos
+ *   sí encontraría.
+ *
+ * Se activa con "user.emailFilter.enabled=true"; la capacidad inicial es
+ * "user.emailFilter.expected" (10000) y la tasa de falsos positivos "user.emailFilter.fpp" (0.01).
+ * Como el índice de titulos, solo ve las escrituras hechas desde este proceso: no debe activarse si
+ * otras aplicaciones agregan usuarios, o debe reconstruirse periódicamente con {@link #build(UserDAO)}.
+ */
+public final class UserEmailFilter {
+
+    private static final UserEmailFilter INSTANCE = new UserEmailFilter(
+            PersistenceConfig.getInt("user.emailFilter.expected", 10_000),
+            Double.parseDouble(PersistenceConfig.getString("user.emailFilter.fpp", "0.01")));
+
+    private static final int MAX_HASHES = 16;
+
+    /**
+     * Capa del filtro: un arreglo de bits de tamaño potencia de 2 con k funciones hash.
+     */
+    private static final class Layer {
+        private final AtomicLongArray words;
+        private final int mask;
+        private final int hashes;
+        private final int capacity;
+        private final double fpp;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private Layer(int capacity, double fpp) {
+            // Bits óptimos: -n ln(p) / ln(2)^2, redondeados a potencia de 2 (mínimo 64).
+            long optimal = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            long bits = Math.max(Long.SIZE, Long.highestOneBit(Math.max(1, optimal - 1)) << 1);
+            if (bits > 1L << 31) {
+                throw new IllegalArgumentException("Capacidad demasiado grande para el filtro de correos: " + capacity);
+            }
+            this.words = new AtomicLongArray((int) (bits / Long.SIZE));
+            this.mask = (int) (bits - 1);
+            this.hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) bits / capacity * Math.log(2))));
+            this.capacity = capacity;
+            this.fpp = fpp;
+        }
+
+        private void add(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & mask;
+                long flag = 1L << bit;
+                int word = bit >>> 6;
+                // Se evita la escritura si el bit ya estaba marcado (el caso común al reconstruir).
+                if ((words.get(word) & flag) == 0) {
+                    words.getAndAccumulate(word, flag, (current, f) -> current | f);
+                }
+            }
+        }
+
+        private boolean mightContain(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & mask;
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Probabilidad de falso positivo según la fracción de bits marcados.
+         */
+        private double estimatedFpp() {
+            long set = 0;
+            for (int i = 0; i < words.length(); i++) {
+                set += Long.bitCount(words.get(i));
+            }
+            return Math.pow((double) set / (mask + 1L), hashes);
+        }
+
+        private long bytes() {
+            return (long) words.length() * Long.BYTES;
+        }
+    }
+
+    /**
+     * Capas del filtro. Se reemplaza completo al reconstruir.
+     */
+    private static final class State {
+        private final ReentrantLock growLock = new ReentrantLock();
+        private volatile Layer[] layers;
+
+        private State(int capacity, double fpp) {
+            this.layers = new Layer[] {new Layer(capacity, fpp)};
+        }
+
+        private void add(long hash) {
+            Layer[] current = layers;
+            for (Layer layer : current) {
+                if (layer.mightContain(hash)) {
+                    return; // Ya está (o es un falso positivo): no ocupa capacidad.
+                }
+            }
+            Layer last = current[current.length - 1];
+            if (last.count.incrementAndGet() > last.capacity) {
+                last = grow(current);
+                last.count.incrementAndGet();
+            }
+            last.add(hash);
+        }
+
+        private Layer grow(Layer[] seen) {
+            growLock.lock();
+            try {
+                Layer[] current = layers;
+                if (current == seen) {
+                    Layer last = current[current.length - 1];
+                    Layer next = new Layer((int) Math.min(Integer.MAX_VALUE / 2, last.capacity * 2L), last.fpp / 2);
+                    Layer[] grown = Arrays.copyOf(current, current.length + 1);
+                    grown[current.length] = next;
+                    layers = grown;
+                    return next;
+                }
+                return current[current.length - 1]; // Otro hilo ya agregó la capa.
+            } finally {
+                growLock.unlock();
+            }
+        }
+
+        private boolean mightContain(long hash) {
+            for (Layer layer : layers) {
+                if (layer.mightContain(hash)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final int expected;
+    private final double fpp;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile State state;
+    private volatile boolean ready;    // El filtro está construido y puede descartar correos.
+    private State building;            // Filtro en construcción; recibe también los agregados.
+    private final AtomicInteger deletedSinceBuild = new AtomicInteger();
+    private final LongAdder size = new LongAdder();           // Correos agregados desde la última construcción.
+    private final LongAdder checks = new LongAdder();         // Consultas al filtro ya construido.
+    private final LongAdder negatives = new LongAdder();      // Consultas a la base de datos evitadas.
+    private final LongAdder falsePositives = new LongAdder(); // "Puede existir" que la base de datos desmintió.
+    private final LongAdder failedRebuilds = new LongAdder(); // Reconstrucciones tras eliminaciones que fallaron.
+
+    UserEmailFilter(int expected, double fpp) {
+        if (expected < 1 || !(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("Parámetros inválidos del filtro de correos.");
+        }
+        this.expected = expected;
+        this.fpp = fpp;
+        this.state = new State(expected, fpp);
+    }
+
+    public static UserEmailFilter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Indica si el filtro está activado por configuración ("user.emailFilter.enabled").
+     */
+    public static boolean isEnabled() {
+        return PersistenceConfig.getBoolean("user.emailFilter.enabled", false);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Construye (o reconstruye) el filtro leyendo todos los correos con un cursor. Los correos
+     * agregados mientras tanto se marcan también en el filtro nuevo antes de activarlo.
+     *
+     * @param dao DAO con el que se recorre la tabla.
+     * @throws SQLException Si ocurre un error al leer la tabla.
+     */
+    public void build(UserDAO dao) throws SQLException {
+        // El filtro nuevo empieza a recibir los agregados antes de abrir el cursor: un correo creado
+        // después de que la consulta tomó su lectura queda marcado igual.
+        State fresh = begin();
+        if (fresh == null) {
+            return; // Ya hay una construcción en curso.
+        }
+        try (Stream<User> users = dao.streamSearch("")) {
+            finish(fresh, load(fresh, users.map(User::getEmail)));
+        } catch (SQLException | RuntimeException ex) {
+            abort(fresh);
+            throw ex;
+        }
+    }
+
+    /**
+     * Construye el filtro con los correos indicados; {@link #build(UserDAO)} los lee de la tabla.
+     */
+    void build(Stream<String> emails) {
+        State fresh = begin();
+        if (fresh == null) {
+            return;
+        }
+        try {
+            finish(fresh, load(fresh, emails));
+        } catch (RuntimeException ex) {
+            abort(fresh);
+            throw ex;
+        }
+    }
+
+    /**
+     * Registra un filtro en construcción, o retorna null si ya hay otro.
+     */
+    private State begin() {
+        State fresh = new State(expected, fpp);
+        lock.writeLock().lock();
+        try {
+            if (building != null) {
+                return null;
+            }
+            building = fresh;
+            return fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long load(State fresh, Stream<String> emails) {
+        long loaded = 0;
+        Iterator<String> iterator = emails.iterator();
+        while (iterator.hasNext()) {
+            fresh.add(hash(iterator.next()));
+            loaded++;
+        }
+        return loaded;
+    }
+
+    private void abort(State fresh) {
+        lock.writeLock().lock();
+        try {
+            if (building == fresh) {
+                building = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Activa el filtro construido.
+     */
+    private void finish(State fresh, long loaded) {
+        lock.writeLock().lock();
+        try {
+            state = fresh;
+            building = null;
+            size.reset();
+            size.add(loaded);
+            deletedSinceBuild.set(0);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Construye el filtro en un hilo virtual sin bloquear a quien lo llama (por ejemplo al iniciar la
+     * aplicación). Mientras no esté listo, authenticate y emailExists consultan la base de datos.
+     *
+     * @return Un CompletableFuture que se completa al activarse el filtro, o con el error de
+     * {@link #build(UserDAO)} si no se pudo construir.
+     */
+    public CompletableFuture<Void> buildAsync(UserDAO dao) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("esfe-email-filter").start(() -> {
+            try {
+                build(dao);
+                result.complete(null);
+            } catch (SQLException | RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Indica si el correo puede existir. false es definitivo: no hace falta consultar la base de datos.
+     * Antes de construirse el filtro siempre retorna true.
+     */
+    boolean mightContain(String email) {
+        if (!ready) {
+            return true;
+        }
+        checks.increment();
+        if (state.mightContain(hash(email))) {
+            return true;
+        }
+        negatives.increment();
+        return false;
+    }
+
+    /**
+     * Registra un correo nuevo (create / update).
+     */
+    void add(String email) {
+        long hash = hash(email);
+        lock.readLock().lock();
+        try {
+            state.add(hash);
+            if (building != null) {
+                building.add(hash);
+            }
+            size.increment();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registra la eliminación de un usuario. Su correo sigue en el filtro; cuando las eliminaciones
+     * superan la cuarta parte de los correos, el filtro se reconstruye en segundo plano. Si la
+     * reconstrucción falla, el filtro anterior sigue activo (sobra correos, no le faltan): se cuenta en
+     * {@link #getFailedRebuilds()} y se reintenta con la siguiente eliminación.
+     */
+    void deleted(UserDAO dao) {
+        int deleted = deletedSinceBuild.incrementAndGet();
+        if (ready && deleted > Math.max(1_024, size.sum() / 4)) {
+            deletedSinceBuild.set(0);
+            buildAsync(dao).exceptionally(ex -> {
+                failedRebuilds.increment();
+                deletedSinceBuild.addAndGet(deleted);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Registra que la base de datos no encontró un correo que el filtro daba como posible.
+     */
+    void falsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Desactiva y vacía el filtro; authenticate y emailExists vuelven a consultar siempre.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            state = new State(expected, fpp);
+            size.reset();
+            deletedSinceBuild.set(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Correos agregados desde la última construcción (incluye los repetidos de update).
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * Cantidad de capas; crece cuando se supera la capacidad inicial.
+     */
+    public int getLayers() {
+        return state.layers.length;
+    }
+
+    /**
+     * Bytes ocupados por los bits de todas las capas.
+     */
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Layer layer : state.layers) {
+            bytes += layer.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Tasa de falsos positivos estimada a partir de los bits marcados de cada capa.
+     */
+    public double getEstimatedFalsePositiveRate() {
+        double none = 1;
+        for (Layer layer : state.layers) {
+            none *= 1 - layer.estimatedFpp();
+        }
+        return 1 - none;
+    }
+
+    /**
+     * Fracción de los "puede existir" verificados con {@link UserDAO#emailExists(String)} que
+     * resultaron no existir.
+     */
+    public double getObservedFalsePositiveRate() {
+        long positives = checks.sum() - negatives.sum();
+        return positives == 0 ? 0 : (double) falsePositives.sum() / positives;
+    }
+
+    public long getChecks() {
+        return checks.sum();
+    }
+
+    /**
+     * Consultas a la base de datos evitadas porque el correo no estaba en el filtro.
+     */
+    public long getNegatives() {
+        return negatives.sum();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * Reconstrucciones automáticas (por eliminaciones) que no se pudieron completar.
+     */
+    public long getFailedRebuilds() {
+        return failedRebuilds.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Filtro de correos: %d correos, %d capas, %d bytes, falsos positivos estimados %.4f, observados %.4f, %d consultas evitadas",
+                size(), getLayers(), getMemoryBytes(), getEstimatedFalsePositiveRate(),
+                getObservedFalsePositiveRate(), getNegatives());
+    }
+
+    /**
+     * Hash de 64 bits del correo normalizado, con la mezcla final de MurmurHash3.
+     */
+    private static long hash(String email) {
+        String key = email == null ? "" : Collation.fold(email.strip());
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,44 @@
+package esfe.presentacion;
+
+import javax.swing.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Utilidades para usar los métodos *Async de los DAO desde los formularios: el resultado o el error
+ * de la operación se entregan en el hilo de eventos de Swing (EDT), que mientras tanto queda libre.
+ */
+final class AsyncUi {
+
+    private AsyncUi() {
+    }
+
+    /**
+     * Ejecuta 'onSuccess' o 'onError' en el EDT cuando termine la operación.
+     *
+     * @param future Operación en curso.
+     * @param onSuccess Recibe el resultado.
+     * @param onError Recibe la causa del error (sin el CompletionException que la envuelve).
+     */
+    static <T> void onEdt(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenComplete((result, ex) -> SwingUtilities.invokeLater(() -> {
+            if (ex == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+            }
+        }));
+    }
+
+    /**
+     * Mensaje para mostrar al usuario a partir del error de una operación.
+     */
+    static String message(Throwable ex) {
+        if (ex instanceof TimeoutException) {
+            return "La operación tardó demasiado. Intente de nuevo.";
+        }
+        return ex.getMessage();
+    }
+}
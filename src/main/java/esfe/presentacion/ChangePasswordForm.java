@@ -31,28 +31,36 @@ public class ChangePasswordForm extends JDialog {
 
     }
     private void changePassword() {
+        // Obtiene el usuario autenticado desde la ventana principal (MainForm).
+        User userAut = mainForm.getUserAutenticate();
+        if (userAut == null) {
+            // La sesión venció o se cerró mientras la ventana estaba abierta: se pide iniciar sesión de nuevo.
+            JOptionPane.showMessageDialog(null,
+                    "La sesión expiró. Inicie sesión nuevamente.",
+                    "Sesión", JOptionPane.WARNING_MESSAGE);
+            this.dispose();
+            new LoginForm(this.mainForm).setVisible(true);
+            return;
+        }
+        // Crea un nuevo objeto User para almacenar los datos de actualización.
+        User user = new User();
+        // Establece el ID del usuario en el nuevo objeto User, utilizando el ID del usuario autenticado.
+        user.setId(userAut.getId());
+        // Establece la nueva contraseña en el objeto User, convirtiendo el array de caracteres del campo de contraseña a un String.
+        user.setPasswordHash(new String(txtPassword.getPassword()));
 
-        try {
-            // Obtiene el usuario autenticado desde la ventana principal (MainForm).
-            User userAut = mainForm.getUserAutenticate();
-            // Crea un nuevo objeto User para almacenar los datos de actualización.
-            User user = new User();
-            // Establece el ID del usuario en el nuevo objeto User, utilizando el ID del usuario autenticado.
-            user.setId(userAut.getId());
-            // Establece la nueva contraseña en el objeto User, convirtiendo el array de caracteres del campo de contraseña a un String.
-            user.setPasswordHash(new String(txtPassword.getPassword()));
-
-            // Valida si la nueva contraseña está vacía.
-            if (user.getPasswordHash().trim().isEmpty()) {
-                JOptionPane.showMessageDialog(null,
-                        "La contraseña es obligatoria",
-                        "Validacion", JOptionPane.WARNING_MESSAGE);
-                return; // Sale del método si la contraseña está vacía.
-            }
-
-            // Intenta actualizar la contraseña del usuario en la base de datos a través del UserDAO.
-            boolean res = userDAO.updatePassword(user);
+        // Valida si la nueva contraseña está vacía.
+        if (user.getPasswordHash().trim().isEmpty()) {
+            JOptionPane.showMessageDialog(null,
+                    "La contraseña es obligatoria",
+                    "Validacion", JOptionPane.WARNING_MESSAGE);
+            return; // Sale del método si la contraseña está vacía.
+        }
 
+        btnChangePassword.setEnabled(false); // Evita repetir el cambio mientras está en curso.
+        // Actualiza la contraseña del usuario en la base de datos a través del UserDAO, en segundo plano.
+        AsyncUi.onEdt(userDAO.updatePasswordAsync(user), res -> {
+            btnChangePassword.setEnabled(true);
             // Verifica el resultado de la actualización.
             if (res) {
                 // Si la actualización es exitosa, cierra la ventana actual (ChangePasswordForm).
@@ -67,12 +75,12 @@ public class ChangePasswordForm extends JDialog {
                         "No se logro cambiar la contraseña",
                         "Cambiar contraseña", JOptionPane.WARNING_MESSAGE);
             }
-        } catch (Exception ex) {
-            // Captura cualquier excepción que ocurra durante el proceso.
+        }, ex -> {
+            btnChangePassword.setEnabled(true);
+            // Captura cualquier error que ocurra durante el proceso.
             JOptionPane.showMessageDialog(null,
-                    ex.getMessage(),
-                    "Sistema", JOptionPane.ERROR_MESSAGE); // Muestra un mensaje de error con la descripción de la excepción.
-        }
-
+                    AsyncUi.message(ex),
+                    "Sistema", JOptionPane.ERROR_MESSAGE); // Muestra un mensaje de error con la descripción del error.
+        });
     }
 }
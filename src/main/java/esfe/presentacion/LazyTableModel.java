@@ -0,0 +1,217 @@
+package esfe.presentacion;
+
+import esfe.persistencia.Page;
+import esfe.persistencia.PersistenceConfig;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Modelo de tabla que carga las filas por páginas a medida que la JTable las muestra, en lugar de
+ * copiar todos los resultados a un DefaultTableModel con un addRow y varios setValueAt (y sus
+ * eventos) por fila.
+ *
+ * - Las páginas se piden con la paginación por cursor de los DAO (searchPage) en un hilo virtual,
+ *   y se aplican en el hilo de eventos de Swing con un solo evento por página.
+ * - La cantidad de filas crece a medida que se descubren páginas: al mostrar la última página
+ *   conocida se pide la siguiente, como un desplazamiento infinito.
+ * - Solo se mantienen en memoria "ui.table.maxPages" páginas (10 por defecto) de "ui.table.pageSize"
+ *   filas (200 por defecto). De las páginas descartadas se conserva solo su cursor, por lo que al
+ *   volver a mostrarlas se recargan con una consulta directa.
+ *
+ * Mientras una página se está cargando, sus celdas se muestran vacías; si la carga falla, el error se
+ * entrega al formulario (como en {@link SearchDebouncer}) una sola vez y la página queda vacía hasta
+ * que se repita la búsqueda. Todos los métodos deben usarse desde el hilo de eventos de Swing.
+ *
+ * @param <T> Tipo de la entidad de cada fila.
+ */
+class LazyTableModel<T> extends AbstractTableModel {
+
+    // Los modelos de Swing no se serializan en esta aplicación: el estado de carga es transient.
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Carga una página de resultados a partir de un cursor.
+     */
+    @FunctionalInterface
+    interface PageLoader<T> {
+        Page<T> load(int afterId, int pageSize) throws Exception;
+    }
+
+    /**
+     * Obtiene el valor de una columna para una entidad.
+     */
+    @FunctionalInterface
+    interface CellValue<T> {
+        Object get(T item, int column);
+    }
+
+    // Un hilo virtual por carga de página: no se mantienen hilos del sistema entre cargas.
+    private static final ExecutorService LOADER = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("esfe-table-", 0).factory());
+
+    private final String[] columns;
+    private final transient CellValue<T> cell;
+    private final transient PageLoader<T> loader;
+    private final transient Consumer<Exception> onError; // Recibe los errores de carga de páginas (en el EDT).
+    private final int pageSize;
+    private final int maxPages;
+
+    private final transient List<Integer> cursors = new ArrayList<>(); // Cursor (afterId) de cada página conocida.
+    private final transient LinkedHashMap<Integer, List<T>> pages = new LinkedHashMap<>(16, 0.75f, true); // Páginas en memoria, la primera es la menos reciente.
+    private final transient Set<Integer> loading = new HashSet<>();    // Páginas que se están cargando.
+    private final transient Set<Integer> failed = new HashSet<>();     // Páginas cuya carga falló: no se vuelven a pedir.
+    private int discoveredPages; // Páginas cuyas filas ya se cuentan en rowCount.
+    private int rowCount;        // Filas conocidas.
+    private boolean closed;      // El modelo fue reemplazado: las cargas pendientes se descartan.
+
+    /**
+     * Crea el modelo con la primera página ya cargada (por ejemplo, por la búsqueda que lo originó).
+     *
+     * @param columns Nombres de las columnas.
+     * @param cell Función que obtiene el valor de cada columna.
+     * @param loader Carga las páginas siguientes; debe usar el tamaño de {@link #defaultPageSize()}.
+     * @param firstPage Primera página, obtenida con el cursor 0 y el tamaño de {@link #defaultPageSize()}.
+     * @param onError Recibe el error de una página que no se pudo cargar.
+     */
+    LazyTableModel(String[] columns, CellValue<T> cell, PageLoader<T> loader, Page<T> firstPage,
+                   Consumer<Exception> onError) {
+        this.columns = columns;
+        this.cell = cell;
+        this.loader = loader;
+        this.onError = onError;
+        this.pageSize = defaultPageSize();
+        this.maxPages = Math.max(2, PersistenceConfig.getInt("ui.table.maxPages", 10));
+        this.cursors.add(0);
+        addPage(0, firstPage);
+    }
+
+    /**
+     * Tamaño de página configurado ("ui.table.pageSize").
+     */
+    static int defaultPageSize() {
+        return PersistenceConfig.getInt("ui.table.pageSize", 200);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T item = getItemAt(rowIndex);
+        return item == null ? null : cell.get(item, columnIndex);
+    }
+
+    /**
+     * Obtiene la entidad de una fila, o null si su página aún no está cargada (en ese caso se pide).
+     */
+    T getItemAt(int rowIndex) {
+        int page = rowIndex / pageSize;
+        // Al mostrar la última página conocida se pide la siguiente, si existe.
+        if (page == discoveredPages - 1 && cursors.size() > discoveredPages) {
+            requestPage(discoveredPages);
+        }
+        List<T> items = pages.get(page);
+        if (items == null) {
+            requestPage(page);
+            return null;
+        }
+        int offset = rowIndex % pageSize;
+        // Una página recargada puede tener menos filas si se eliminaron registros mientras tanto.
+        return offset < items.size() ? items.get(offset) : null;
+    }
+
+    /**
+     * Descarta las cargas pendientes. Se llama al reemplazar el modelo de la tabla.
+     */
+    void close() {
+        closed = true;
+        pages.clear();
+    }
+
+    private void requestPage(int page) {
+        if (closed || page >= cursors.size() || failed.contains(page) || !loading.add(page)) {
+            return;
+        }
+        int afterId = cursors.get(page);
+        LOADER.execute(() -> {
+            try {
+                Page<T> result = loader.load(afterId, pageSize);
+                SwingUtilities.invokeLater(() -> {
+                    loading.remove(page);
+                    if (!closed) {
+                        addPage(page, result);
+                    }
+                });
+            } catch (Exception ex) {
+                SwingUtilities.invokeLater(() -> {
+                    loading.remove(page);
+                    failed.add(page); // Sin esto, cada repintado de la tabla repetiría la carga y el error.
+                    if (!closed) {
+                        onError.accept(ex); // El error de un modelo ya reemplazado no se muestra.
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Guarda una página cargada y notifica a la tabla con un solo evento.
+     */
+    private void addPage(int page, Page<T> result) {
+        List<T> items = result.getItems();
+        pages.put(page, items);
+        evictPages(page);
+
+        if (page == discoveredPages) {
+            // Página nueva: sus filas se agregan al final de la tabla.
+            discoveredPages++;
+            if (result.hasNext()) {
+                cursors.add(result.getNextCursor());
+            }
+            if (!items.isEmpty()) {
+                int first = rowCount;
+                rowCount += items.size();
+                fireTableRowsInserted(first, rowCount - 1);
+            }
+        } else if (!items.isEmpty()) {
+            // Página recargada después de haber sido descartada: sus filas ya estaban contadas.
+            int first = page * pageSize;
+            fireTableRowsUpdated(first, Math.min(rowCount - 1, first + pageSize - 1));
+        }
+    }
+
+    /**
+     * Descarta las páginas usadas hace más tiempo hasta volver al máximo (sin descartar la recién cargada).
+     */
+    private void evictPages(int keep) {
+        Iterator<Map.Entry<Integer, List<T>>> it = pages.entrySet().iterator();
+        while (pages.size() > maxPages && it.hasNext()) {
+            if (it.next().getKey() != keep) {
+                it.remove();
+            }
+        }
+    }
+}
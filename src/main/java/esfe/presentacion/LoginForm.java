@@ -6,6 +6,7 @@ import java.awt.event.WindowEvent; // Importa la clase WindowEvent desde el paqu
 
 import esfe.dominio.User; // Importa la clase User desde el paquete esfe.dominio. Esta clase  representa la entidad de usuario con sus atributos (id, nombre, email, contraseña, estado, etc.).
 import esfe.persistencia.UserDAO; // Importa la clase UserDAO desde el paquete esfe.persistencia. Esta clase se encarga de la interacción con la base de datos para la entidad User (crear, leer, actualizar, eliminar, autenticar usuarios).
+import esfe.persistencia.LoginThrottledException; // Intento rechazado por el límite de intentos de inicio de sesión.
 
 /**
  * La clase LoginForm representa la ventana de inicio de sesión de la aplicación.
@@ -43,13 +44,17 @@ public class LoginForm extends JDialog {
         });
     }
     private void login() {
-        try{
-            User user = new User(); // Crea una nueva instancia de la clase User para almacenar las credenciales del usuario.
-            user.setEmail(txtEmail.getText()); // Obtiene el texto ingresado en el campo de texto 'txtEmail'  y lo establece como el correo electrónico del objeto 'user'.
-            user.setPasswordHash(new String(txtPassword.getPassword())); // Obtiene la contraseña ingresada en el campo de contraseña 'txtPassword' (como un array de caracteres), la convierte a un String y la establece como la contraseña hasheada del objeto 'user'.
-
-            User userAut = userDAO.authenticate(user); // Llama al método 'authenticate' del objeto 'userDAO' para verificar las credenciales del usuario contra la base de datos. El resultado (un objeto User si la autenticación es exitosa, o null si falla) se almacena en 'userAut'.
+        User user = new User(); // Crea una nueva instancia de la clase User para almacenar las credenciales del usuario.
+        user.setEmail(txtEmail.getText()); // Obtiene el texto ingresado en el campo de texto 'txtEmail'  y lo establece como el correo electrónico del objeto 'user'.
+        user.setPasswordHash(new String(txtPassword.getPassword())); // Obtiene la contraseña ingresada en el campo de contraseña 'txtPassword' (como un array de caracteres), la convierte a un String y la establece como la contraseña hasheada del objeto 'user'.
 
+        btnLogin.setEnabled(false); // Evita enviar otra autenticación mientras la actual está en curso.
+        SubmitEvent event = SubmitEvent.begin("LoginForm", "LOGIN"); // Evento de JFR del envío.
+        // Llama al método 'authenticateAsync' del objeto 'userDAO', que verifica las credenciales contra la base de datos en segundo plano
+        // (sin bloquear la ventana). El resultado (un objeto User si la autenticación es exitosa, o null si falla) se recibe en 'userAut'.
+        AsyncUi.onEdt(userDAO.authenticateAsync(user), userAut -> {
+            btnLogin.setEnabled(true);
+            event.finish(userAut != null);
             // Verifica si la autenticación fue exitosa:
             // 1. 'userAut' no es null (se encontró un usuario).
             // 2. El ID del usuario autenticado es mayor que 0 (implica que es un usuario válido en la base de datos).
@@ -65,13 +70,19 @@ public class LoginForm extends JDialog {
                         "Login", // El título de la ventana de diálogo.
                         JOptionPane.WARNING_MESSAGE); // El tipo de icono que se muestra (advertencia).
             }
-        }
-        catch (Exception ex){
-            // Captura cualquier excepción que pueda ocurrir durante el proceso de inicio de sesión (por ejemplo, error de base de datos).
+        }, ex -> {
+            btnLogin.setEnabled(true);
+            event.finish(false);
+            if (ex instanceof LoginThrottledException) {
+                // Demasiados intentos: el mensaje indica cuánto esperar.
+                JOptionPane.showMessageDialog(null, ex.getMessage(), "Login", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            // Captura cualquier error que pueda ocurrir durante el proceso de inicio de sesión (por ejemplo, error de base de datos o tiempo agotado).
             JOptionPane.showMessageDialog(null,
-                    ex.getMessage(), // Muestra el mensaje de la excepción.
+                    AsyncUi.message(ex), // Muestra el mensaje del error.
                     "Sistem", // El título de la ventana de diálogo.
                     JOptionPane.ERROR_MESSAGE); // El tipo de icono que se muestra (error).
-        }
+        });
     }
 }
@@ -2,17 +2,41 @@ package esfe.presentacion;
 
 import javax.swing.*; // Importa el paquete javax.swing, que proporciona clases para crear interfaces gráficas de usuario (GUI) en Java Swing (como JFrame, JPanel, JButton, JLabel, JTextField, JPasswordField, JOptionPane, etc.).
 import esfe.dominio.User; // Importa la clase User desde el paquete esfe.dominio. Esta clase  representa la entidad de usuario con sus atributos (id, nombre, email, contraseña, estado, etc.).
+import esfe.persistencia.SessionStore; // Sesiones de los usuarios autenticados.
 
 public class MainForm extends JFrame {
 
-    private User userAutenticate; // Declaración de una variable de instancia llamada 'userAutenticate' de tipo User. Esta variable se utilizará para almacenar la información del usuario que ha sido autenticado en el sistema.
+    private String sessionToken; // Token de la sesión del usuario autenticado (ver SessionStore).
 
+    /**
+     * Usuario de la sesión actual, verificado contra {@link SessionStore} sin consultar la base de
+     * datos. Retorna null si la sesión venció o se cerró (por ejemplo, al cambiar la contraseña).
+     */
     public User getUserAutenticate() {
-        return userAutenticate;
+        return SessionStore.getInstance().validate(sessionToken);
     }
 
+    /**
+     * Abre la sesión del usuario recién autenticado y cierra la anterior, si había una.
+     */
     public void setUserAutenticate(User userAutenticate) {
-        this.userAutenticate = userAutenticate;
+        SessionStore.getInstance().close(sessionToken);
+        this.sessionToken = userAutenticate == null ? null : SessionStore.getInstance().open(userAutenticate);
+    }
+
+    /**
+     * Verifica que la sesión siga abierta antes de una acción; si no, pide iniciar sesión de nuevo.
+     */
+    private boolean requireSession() {
+        if (getUserAutenticate() != null) {
+            return true;
+        }
+        JOptionPane.showMessageDialog(null,
+                "La sesión expiró. Inicie sesión nuevamente.",
+                "Sesión", JOptionPane.WARNING_MESSAGE);
+        LoginForm loginForm = new LoginForm(this);
+        loginForm.setVisible(true);
+        return false;
     }
 
     public MainForm(){
@@ -34,6 +58,9 @@ public class MainForm extends JFrame {
         JMenuItem itemChangePassword = new JMenuItem("Cambiar contraseña"); // Crea un nuevo elemento de menú llamado "Cambiar contraseña".
         menuPerfil.add(itemChangePassword); // Agrega el elemento "Cambiar contraseña" al menú "Perfil".
         itemChangePassword.addActionListener(e -> { // Agrega un ActionListener al elemento "Cambiar contraseña".
+            if (!requireSession()) {
+                return;
+            }
             ChangePasswordForm changePassword = new ChangePasswordForm(this); // Cuando se hace clic, crea una nueva instancia de ChangePasswordForm, pasándole la instancia actual de MainForm como padre.
             changePassword.setVisible(true); // Hace visible la ventana de cambio de contraseña.
 
@@ -60,6 +87,9 @@ public class MainForm extends JFrame {
         JMenuItem itemUsers = new JMenuItem("Usuarios"); // Crea un nuevo elemento de menú llamado "Usuarios".
         menuMantenimiento.add(itemUsers); // Agrega el elemento "Usuarios" al menú "Mantenimientos".
         itemUsers.addActionListener(e -> { // Agrega un ActionListener al elemento "Usuarios".
+            if (!requireSession()) {
+                return;
+            }
             UserReadingForm userReadingForm=new UserReadingForm(this); // Cuando se hace clic, crea una nueva instancia de UserReadingForm (formulario para leer/listar usuarios), pasándole la instancia actual de MainForm como padre.
             userReadingForm.setVisible(true); // Hace visible el formulario de lectura de usuarios.
         });
@@ -70,6 +100,9 @@ public class MainForm extends JFrame {
         JMenuItem itemGestionPeliculas = new JMenuItem("Gestión de Películas");
         menuPeliculas.add(itemGestionPeliculas);
         itemGestionPeliculas.addActionListener(e -> {
+            if (!requireSession()) {
+                return;
+            }
             PeliculaReadingForm peliculaReadingForm = new PeliculaReadingForm(this);
             peliculaReadingForm.setVisible(true);
         });
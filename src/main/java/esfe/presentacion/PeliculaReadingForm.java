@@ -1,6 +1,7 @@
 package esfe.presentacion;
 
 import esfe.dominio.Pelicula;
+import esfe.persistencia.Page;
 import esfe.persistencia.PeliculaDAO;
 import esfe.utils.CUD;
 
@@ -8,7 +9,8 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 public class PeliculaReadingForm extends JDialog{
     private JPanel mainPanel;
@@ -20,6 +22,7 @@ public class PeliculaReadingForm extends JDialog{
 
     private PeliculaDAO peliculaDAO; // Instancia de PeliculaDAO para realizar operaciones de base de datos de Peliculas.
     private MainForm mainForm; // Referencia a la ventana principal de la aplicación.
+    private SearchDebouncer<LazyTableModel<Pelicula>> searcher; // Ejecuta las búsquedas fuera del hilo de eventos de Swing.
 
     // Constructor de la clase PeliculaReadingForm. Recibe una instancia de MainForm como parámetro.
     public PeliculaReadingForm(MainForm mainForm) {
@@ -32,6 +35,25 @@ public class PeliculaReadingForm extends JDialog{
         pack(); // Ajusta el tamaño de la ventana para que todos sus componentes se muestren correctamente.
         setLocationRelativeTo(mainForm); // Centra la ventana del diálogo relative a la ventana principal.
 
+        // Las búsquedas se lanzan cuando el usuario deja de escribir y se ejecutan en segundo plano;
+        // al llegar una búsqueda nueva se cancela la anterior y solo se muestra el resultado más reciente.
+        // La consulta obtiene la primera página de resultados; el resto se carga al desplazarse por la tabla.
+        searcher = new SearchDebouncer<>("PeliculaReadingForm",
+                (text, handle) -> createModel(text,
+                        peliculaDAO.searchPage(text, 0, LazyTableModel.defaultPageSize(), handle)),
+                this::createTable,
+                ex -> JOptionPane.showMessageDialog(null,
+                        ex.getMessage(),
+                        "ERROR", JOptionPane.ERROR_MESSAGE)); // Muestra un mensaje de error al usuario.
+
+        // Al cerrar el formulario se cancela la búsqueda en curso.
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                searcher.cancel();
+            }
+        });
+
         // Agrega un listener de teclado al campo de texto txtNombre.
         textTitulo.addKeyListener(new KeyAdapter() {
             // Sobrescribe el método keyReleased, que se llama cuando se suelta una tecla.
@@ -42,7 +64,9 @@ public class PeliculaReadingForm extends JDialog{
                     // Llama al método search para buscar Peliculas según el texto ingresado.
                     search(textTitulo.getText());
                 } else {
-                    // Si el campo de texto está vacío, crea un modelo de tabla vacío y lo asigna a la tabla de Peliculas para limpiarla.
+                    // Si el campo de texto está vacío, se descarta la búsqueda pendiente o en curso.
+                    searcher.cancel();
+                    // Crea un modelo de tabla vacío y lo asigna a la tabla de Peliculas para limpiarla.
                     DefaultTableModel emptyModel = new DefaultTableModel();
                     tablePelicula.setModel(emptyModel);
                 }
@@ -93,64 +117,40 @@ public class PeliculaReadingForm extends JDialog{
         });
     }
     private void search(String query) {
-        try {
-            // Llama al método 'search' del PeliculaDAO para buscar Peliculas cuya información
-            // coincida con la cadena de búsqueda 'query'. La implementación específica
-            ArrayList<Pelicula> peliculas = peliculaDAO.search(query);
-            // Llama al método 'createTable' para actualizar la tabla de Peliculas
-            // en la interfaz gráfica con los resultados de la búsqueda.
-            createTable(peliculas);
-        } catch (Exception ex) {
-            // Captura cualquier excepción que ocurra durante el proceso de búsqueda
-            // (por ejemplo, errores de base de datos).
-            JOptionPane.showMessageDialog(null,
-                    ex.getMessage(),
-                    "ERROR", JOptionPane.ERROR_MESSAGE); // Muestra un mensaje de error al pelicula.
-            return; // Sale del método 'search' después de mostrar el error.
-        }
+        // Programa la búsqueda de Peliculas cuya información coincida con la cadena 'query'.
+        // El PeliculaDAO se consulta en segundo plano y, si esta sigue siendo la búsqueda más reciente,
+        // 'createTable' actualiza la tabla en el hilo de eventos; los errores se muestran con un mensaje.
+        searcher.submit(query);
+    }
+    // Crea el modelo de la tabla a partir de la primera página de resultados. Las páginas siguientes
+    // se cargan en segundo plano a medida que la tabla las muestra (ver LazyTableModel).
+    // Las cargas comparten el PeliculaDAO del formulario: el DAO no guarda estado entre llamadas.
+    private LazyTableModel<Pelicula> createModel(String query, Page<Pelicula> firstPage) {
+        return new LazyTableModel<>(
+                // Nombres de las columnas; corresponden a los atributos que se muestran de cada Pelicula.
+                new String[]{"Id", "Titulo", "Director", "Genero"},
+                (pelicula, column) -> switch (column) {
+                    case 0 -> pelicula.getId();       // ID de la pelicula (columna oculta).
+                    case 1 -> pelicula.getTitulo();   // Titulo de la pelicula.
+                    case 2 -> pelicula.getDirector(); // Director de la pelicula.
+                    default -> pelicula.getGenero();  // Genero de la pelicula.
+                },
+                (afterId, pageSize) -> peliculaDAO.searchPage(query, afterId, pageSize),
+                firstPage,
+                ex -> JOptionPane.showMessageDialog(null,
+                        ex.getMessage(),
+                        "ERROR", JOptionPane.ERROR_MESSAGE)); // Muestra el error de carga de una página.
     }
-    public void createTable(ArrayList<Pelicula> peliculas) {
-
-        // Crea un nuevo modelo de tabla por defecto (DefaultTableModel).
-        // Se sobrescribe el método isCellEditable para hacer que todas las celdas de la tabla no sean editables.
-        DefaultTableModel model = new DefaultTableModel() {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Retorna false para indicar que ninguna celda debe ser editable.
-            }
-        };
 
-        // Define las columnas de la tabla. Los nombres de las columnas corresponden
-        // a los atributos que se mostrarán de cada objeto User.
-        model.addColumn("Id");
-        model.addColumn("Titulo");
-        model.addColumn("Director");
-        model.addColumn("Genero");
+    private void createTable(LazyTableModel<Pelicula> model) {
+        // Descarta las cargas pendientes del modelo anterior, si lo había.
+        if (this.tablePelicula.getModel() instanceof LazyTableModel<?> previous) {
+            previous.close();
+        }
 
-        // Establece el modelo de tabla creado como el modelo de datos para la
-        // JTable 'tableUsers' (la tabla que se muestra en la interfaz gráfica).
+        // Establece el modelo como el modelo de datos de la JTable 'tablePelicula'.
         this.tablePelicula.setModel(model);
 
-        // Declara un array de objetos 'row' que se utilizará temporalmente para agregar filas.
-        Object row[] = null;
-
-        // Itera a través de la lista de objetos User proporcionada.
-        for (int i = 0; i < peliculas.size(); i++) {
-            // Obtiene el objeto User actual de la lista.
-            Pelicula pelicula = peliculas.get(i);
-            // Agrega una nueva fila vacía al modelo de la tabla.
-            model.addRow(row);
-            // Establece el valor del ID del pelicula en la celda correspondiente de la fila actual (columna 0).
-            model.setValueAt(pelicula.getId(), i, 0);
-            // Establece el valor del nombre del pelicula en la celda correspondiente de la fila actual (columna 1).
-            model.setValueAt(pelicula.getTitulo(), i, 1);
-            // Establece el valor del email del pelicula en la celda correspondiente de la fila actual (columna 2).
-            model.setValueAt(pelicula.getDirector(), i, 2);
-            // Establece el valor del estatus del pelicula (probablemente obtenido a través de un método 'getStrEstatus()')
-            // en la celda correspondiente de la fila actual (columna 3).
-            model.setValueAt(pelicula.getGenero(), i, 3);
-        }
-
         // Llama al método 'hideCol' para ocultar la columna con índice 0 (la columna del ID).
         // Esto es común cuando el ID es necesario internamente pero no se quiere mostrar al pelicula.
         hideCol(0);
@@ -6,6 +6,7 @@ import esfe.utils.CBOption;
 import esfe.utils.CUD;
 
 import javax.swing.*;
+import java.util.concurrent.CompletableFuture;
 
 public class PeliculaWriteForm extends JDialog {
     private JPanel mainPanel;
@@ -137,68 +138,56 @@ public class PeliculaWriteForm extends JDialog {
     }
 
     private void ok() {
-        try {
-            // Obtener y validar los valores de los controles del formulario.
-            boolean res = getValuesControls();
-
-            // Si la validación de los controles fue exitosa.
-            if (res) {
-                boolean r = false; // Variable para almacenar el resultado de la operación de la base de datos.
-
-                // Realiza la operación de la base de datos según el tipo de operación actual (CREATE, UPDATE, DELETE).
-                switch (this.cud) {
-                    case CREATE:
-                        // Caso de creación de un nuevo usuario.
-                        // Llama al método 'create' de userDAO para persistir el nuevo usuario (this.en).
-                        Pelicula pelicula = peliculaDAO.create(this.en);
-                        // Verifica si la creación fue exitosa comprobando si el nuevo usuario tiene un ID asignado.
-                        if (pelicula.getId() > 0) {
-                            r = true; // Establece 'r' a true si la creación fue exitosa.
-                        }
-                        break;
-                    case UPDATE:
-                        // Caso de actualización de un usuario existente.
-                        // Llama al método 'update' de userDAO para guardar los cambios del usuario (this.en).
-                        r = peliculaDAO.update(this.en); // 'r' será true si la actualización fue exitosa, false en caso contrario.
-                        break;
-                    case DELETE:
-                        // Caso de eliminación de un usuario.
-                        // Llama al método 'delete' de userDAO para eliminar el usuario (this.en).
-                        r = peliculaDAO.delete(this.en); // 'r' será true si la eliminación fue exitosa, false en caso contrario.
-                        break;
-                }
-
-                // Si la operación de la base de datos (creación, actualización o eliminación) fue exitosa.
-                if (r) {
-                    // Muestra un mensaje de éxito al usuario.
-                    JOptionPane.showMessageDialog(null,
-                            "Transacción realizada exitosamente",
-                            "Información", JOptionPane.INFORMATION_MESSAGE);
-                    // Cierra la ventana actual (UserWriteForm).
-                    this.dispose();
-                } else {
-                    // Si la operación de la base de datos falló.
-                    JOptionPane.showMessageDialog(null,
-                            "No se logró realizar ninguna acción",
-                            "ERROR", JOptionPane.ERROR_MESSAGE);
-                    return; // Sale del método.
-                }
+        // Obtener y validar los valores de los controles del formulario.
+        boolean res = getValuesControls();
+        // Si la validación de los controles falló (algún campo obligatorio está vacío o inválido).
+        if (!res) {
+            JOptionPane.showMessageDialog(null,
+                    "Los campos con * son obligatorios",
+                    "Validación", JOptionPane.WARNING_MESSAGE);
+            return; // Sale del método.
+        }
+
+        SubmitEvent event = SubmitEvent.begin("PeliculaWriteForm", this.cud.name()); // Evento de JFR del envío.
+
+        // Realiza la operación de la base de datos según el tipo de operación actual (CREATE, UPDATE, DELETE),
+        // en segundo plano para no bloquear la ventana. El resultado indica si la operación fue exitosa.
+        CompletableFuture<Boolean> operation = switch (this.cud) {
+            // Caso de creación: la creación fue exitosa si la nueva pelicula tiene un ID asignado.
+            case CREATE -> peliculaDAO.createAsync(this.en).thenApply(pelicula -> pelicula != null && pelicula.getId() > 0);
+            // Caso de actualización: true si la actualización fue exitosa, false en caso contrario.
+            case UPDATE -> peliculaDAO.updateAsync(this.en);
+            // Caso de eliminación: true si la eliminación fue exitosa, false en caso contrario.
+            case DELETE -> peliculaDAO.deleteAsync(this.en);
+        };
+
+        btnOK.setEnabled(false); // Evita repetir la operación mientras está en curso.
+        AsyncUi.onEdt(operation, r -> {
+            btnOK.setEnabled(true);
+            event.finish(r);
+            // Si la operación de la base de datos (creación, actualización o eliminación) fue exitosa.
+            if (r) {
+                // Muestra un mensaje de éxito al usuario.
+                JOptionPane.showMessageDialog(null,
+                        "Transacción realizada exitosamente",
+                        "Información", JOptionPane.INFORMATION_MESSAGE);
+                // Cierra la ventana actual (PeliculaWriteForm).
+                this.dispose();
             } else {
-                // Si la validación de los controles falló (algún campo obligatorio está vacío o inválido).
+                // Si la operación de la base de datos falló.
                 JOptionPane.showMessageDialog(null,
-                        "Los campos con * son obligatorios",
-                        "Validación", JOptionPane.WARNING_MESSAGE);
-                return; // Sale del método.
+                        "No se logró realizar ninguna acción",
+                        "ERROR", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (Exception ex) {
-            // Captura cualquier excepción que ocurra durante el proceso (por ejemplo, errores de base de datos).
+        }, ex -> {
+            btnOK.setEnabled(true);
+            event.finish(false);
+            // Captura cualquier error que ocurra durante el proceso (por ejemplo, errores de base de datos).
             JOptionPane.showMessageDialog(null,
-                    ex.getMessage(),
+                    AsyncUi.message(ex),
                     "ERROR", JOptionPane.ERROR_MESSAGE);
-            return; // Sale del método.
-        }
+        });
     }
-
 }
 
 
@@ -0,0 +1,138 @@
+package esfe.presentacion;
+
+import esfe.persistencia.PersistenceConfig;
+import esfe.persistencia.QueryHandle;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Búsqueda mientras se escribe sin bloquear el hilo de eventos de Swing (EDT).
+ *
+ * - Agrupa las teclas: la consulta se lanza cuando pasan "ui.search.debounceMs" milisegundos
+ *   (250 por defecto) sin que el usuario escriba.
+ * - Ejecuta la consulta en un hilo virtual, fuera del EDT.
+ * - Al lanzar una consulta nueva cancela la anterior si sigue en ejecución ({@link QueryHandle}).
+ * - Solo aplica el resultado de la consulta más reciente; los resultados y errores de las
+ *   consultas obsoletas se descartan.
+ * - Cada consulta lanzada se registra como un {@link SearchEvent} de Java Flight Recorder.
+ *
+ * Todos sus métodos deben llamarse desde el EDT. Los resultados y errores también se
+ * entregan en el EDT.
+ *
+ * @param <T> Tipo del resultado de la búsqueda.
+ */
+class SearchDebouncer<T> {
+
+    /**
+     * Consulta a ejecutar en segundo plano para un texto.
+     */
+    @FunctionalInterface
+    interface Query<T> {
+        T run(String text, QueryHandle handle) throws Exception;
+    }
+
+    private final String name;             // Formulario que busca (para los eventos de JFR).
+    private final Query<T> query;          // Consulta que se ejecuta en segundo plano.
+    private final Consumer<T> onResult;     // Recibe el resultado de la consulta más reciente (en el EDT).
+    private final Consumer<Exception> onError; // Recibe el error de la consulta más reciente (en el EDT).
+    private final Timer timer;              // Espera a que el usuario deje de escribir.
+    // Un hilo virtual por consulta: no mantiene hilos del sistema mientras no hay búsquedas.
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("esfe-search-", 0).factory());
+
+    private String pendingText;     // Último texto recibido y aún no consultado.
+    private long generation;        // Se incrementa con cada consulta lanzada o cancelada (solo se usa en el EDT).
+    private QueryHandle inFlight;   // Handle de la consulta en ejecución.
+
+    SearchDebouncer(String name, Query<T> query, Consumer<T> onResult, Consumer<Exception> onError) {
+        this.name = name;
+        this.query = query;
+        this.onResult = onResult;
+        this.onError = onError;
+        this.timer = new Timer(PersistenceConfig.getInt("ui.search.debounceMs", 250), e -> fire());
+        this.timer.setRepeats(false);
+    }
+
+    /**
+     * Registra el texto escrito. La consulta se lanza cuando el usuario deja de escribir.
+     */
+    void submit(String text) {
+        pendingText = text;
+        timer.restart();
+    }
+
+    /**
+     * Descarta la consulta pendiente y cancela la que esté en ejecución (por ejemplo, al vaciar el campo).
+     */
+    void cancel() {
+        timer.stop();
+        pendingText = null;
+        generation++;
+        cancelInFlight();
+    }
+
+    private void fire() {
+        String text = pendingText;
+        if (text == null) {
+            return;
+        }
+        pendingText = null;
+        cancelInFlight();
+
+        long current = ++generation;
+        QueryHandle handle = new QueryHandle();
+        inFlight = handle;
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        executor.execute(() -> {
+            try {
+                T result = query.run(text, handle);
+                SwingUtilities.invokeLater(() -> {
+                    if (current == generation) {
+                        inFlight = null;
+                        onResult.accept(result);
+                        finish(event, text, "applied");
+                    } else {
+                        finish(event, text, "stale");
+                    }
+                });
+            } catch (Exception ex) {
+                SwingUtilities.invokeLater(() -> {
+                    // El error de una consulta cancelada u obsoleta no se muestra.
+                    if (current == generation && !handle.isCancelled()) {
+                        inFlight = null;
+                        onError.accept(ex);
+                        finish(event, text, "error");
+                    } else {
+                        finish(event, text, handle.isCancelled() ? "cancelled" : "stale");
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Termina el evento de JFR de una consulta. Los campos solo se completan si la grabación lo pide.
+     */
+    private void finish(SearchEvent event, String text, String outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.form = name;
+            event.textLength = text.length();
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    private void cancelInFlight() {
+        QueryHandle previous = inFlight;
+        inFlight = null;
+        if (previous != null) {
+            // Cancelar puede requerir un viaje al servidor: se hace fuera del EDT.
+            executor.execute(previous::cancel);
+        }
+    }
+}
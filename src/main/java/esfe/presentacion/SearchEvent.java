@@ -0,0 +1,30 @@
+package esfe.presentacion;
+
+import jdk.jfr.Category;    // Agrupación del evento en JDK Mission Control.
+import jdk.jfr.Description; // Descripción del evento y sus campos.
+import jdk.jfr.Event;       // Clase base de los eventos de Java Flight Recorder.
+import jdk.jfr.Label;       // Nombre legible del evento y sus campos.
+import jdk.jfr.Name;        // Nombre del evento en las grabaciones y configuraciones.
+
+/**
+ * Evento de Java Flight Recorder por cada búsqueda lanzada desde un formulario de lectura
+ * ({@link SearchDebouncer}). Dura desde que se lanza la consulta hasta que su resultado (o su error)
+ * se aplica en el EDT, o hasta que se descarta por una búsqueda más reciente. Los eventos
+ * "esfe.DaoCall" del hilo de la búsqueda muestran las consultas que la componen.
+ */
+@Name("esfe.ui.Search")
+@Label("UI Search")
+@Category({"esfe", "Presentacion"})
+@Description("Búsqueda mientras se escribe en un formulario de lectura")
+final class SearchEvent extends Event {
+
+    @Label("Form")
+    String form;
+
+    @Label("Text Length")
+    int textLength;
+
+    @Label("Outcome")
+    @Description("applied, error, stale (reemplazada por una búsqueda más reciente) o cancelled")
+    String outcome;
+}
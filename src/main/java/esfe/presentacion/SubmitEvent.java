@@ -0,0 +1,51 @@
+package esfe.presentacion;
+
+import jdk.jfr.Category;    // Agrupación del evento en JDK Mission Control.
+import jdk.jfr.Description; // Descripción del evento y sus campos.
+import jdk.jfr.Event;       // Clase base de los eventos de Java Flight Recorder.
+import jdk.jfr.Label;       // Nombre legible del evento y sus campos.
+import jdk.jfr.Name;        // Nombre del evento en las grabaciones y configuraciones.
+
+/**
+ * Evento de Java Flight Recorder por cada envío de un formulario (guardar, eliminar, iniciar sesión):
+ * dura desde el clic hasta que el resultado de la operación llega al EDT, antes de mostrar el mensaje
+ * al usuario.
+ */
+@Name("esfe.ui.Submit")
+@Label("UI Submit")
+@Category({"esfe", "Presentacion"})
+@Description("Envío de un formulario de escritura o de inicio de sesión")
+final class SubmitEvent extends Event {
+
+    @Label("Form")
+    String form;
+
+    @Label("Operation")
+    @Description("CREATE, UPDATE, DELETE o LOGIN")
+    String operation;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /**
+     * Comienza el evento de un envío.
+     */
+    static SubmitEvent begin(String form, String operation) {
+        SubmitEvent event = new SubmitEvent();
+        event.form = form;
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Termina el evento con el resultado de la operación y lo registra si la grabación lo pide.
+     */
+    void finish(boolean succeeded) {
+        end();
+        if (shouldCommit()) {
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
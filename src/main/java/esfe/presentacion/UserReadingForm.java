@@ -1,5 +1,6 @@
 package esfe.presentacion;
 
+import esfe.persistencia.Page; // Importa la clase Page, que representa una página de resultados de una búsqueda.
 import esfe.persistencia.UserDAO; // Importa la interfaz o clase UserDAO, que define las operaciones de acceso a datos para la entidad User.
 
 import javax.swing.*; // Importa el paquete Swing, que proporciona clases para crear interfaces gráficas de usuario.
@@ -9,7 +10,8 @@ import esfe.utils.CUD; // Importa el enum  CUD (Create, Update, Delete).
 
 import java.awt.event.KeyAdapter; // Importa la clase KeyAdapter, una clase adaptadora para recibir eventos de teclado.
 import java.awt.event.KeyEvent; // Importa la clase KeyEvent, que representa un evento de teclado.
-import java.util.ArrayList; // Importa la clase ArrayList, una implementación de la interfaz List que permite almacenar colecciones dinámicas de objetos.
+import java.awt.event.WindowAdapter; // Importa la clase WindowAdapter, para recibir el cierre de la ventana.
+import java.awt.event.WindowEvent; // Importa la clase WindowEvent, que representa un evento de la ventana.
 
 
 public class UserReadingForm extends JDialog {
@@ -22,6 +24,7 @@ public class UserReadingForm extends JDialog {
 
     private UserDAO userDAO; // Instancia de UserDAO para realizar operaciones de base de datos de usuarios.
     private MainForm mainForm; // Referencia a la ventana principal de la aplicación.
+    private SearchDebouncer<LazyTableModel<User>> searcher; // Ejecuta las búsquedas fuera del hilo de eventos de Swing.
 
     // Constructor de la clase UserReadingForm. Recibe una instancia de MainForm como parámetro.
     public UserReadingForm(MainForm mainForm) {
@@ -33,6 +36,25 @@ public class UserReadingForm extends JDialog {
         pack(); // Ajusta el tamaño de la ventana para que todos sus componentes se muestren correctamente.
         setLocationRelativeTo(mainForm); // Centra la ventana del diálogo relative a la ventana principal.
 
+        // Las búsquedas se lanzan cuando el usuario deja de escribir y se ejecutan en segundo plano,
+        // como en PeliculaReadingForm: la primera página se consulta fuera del hilo de eventos y el
+        // resto se carga al desplazarse por la tabla.
+        searcher = new SearchDebouncer<>("UserReadingForm",
+                (text, handle) -> createModel(text,
+                        userDAO.searchPage(text, 0, LazyTableModel.defaultPageSize(), handle)),
+                this::createTable,
+                ex -> JOptionPane.showMessageDialog(null,
+                        ex.getMessage(),
+                        "ERROR", JOptionPane.ERROR_MESSAGE)); // Muestra un mensaje de error al usuario.
+
+        // Al cerrar el formulario se cancela la búsqueda en curso.
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                searcher.cancel();
+            }
+        });
+
         // Agrega un listener de teclado al campo de texto txtNombre.
         txtName.addKeyListener(new KeyAdapter() {
             // Sobrescribe el método keyReleased, que se llama cuando se suelta una tecla.
@@ -43,7 +65,9 @@ public class UserReadingForm extends JDialog {
                     // Llama al método search para buscar usuarios según el texto ingresado.
                     search(txtName.getText());
                 } else {
-                    // Si el campo de texto está vacío, crea un modelo de tabla vacío y lo asigna a la tabla de usuarios para limpiarla.
+                    // Si el campo de texto está vacío, se descarta la búsqueda pendiente o en curso.
+                    searcher.cancel();
+                    // Crea un modelo de tabla vacío y lo asigna a la tabla de usuarios para limpiarla.
                     DefaultTableModel emptyModel = new DefaultTableModel();
                     tableUsers.setModel(emptyModel);
                 }
@@ -94,64 +118,40 @@ public class UserReadingForm extends JDialog {
         });
     }
     private void search(String query) {
-        try {
-            // Llama al método 'search' del UserDAO para buscar usuarios cuya información
-            // coincida con la cadena de búsqueda 'query'. La implementación específica
-            ArrayList<User> users = userDAO.search(query);
-            // Llama al método 'createTable' para actualizar la tabla de usuarios
-            // en la interfaz gráfica con los resultados de la búsqueda.
-            createTable(users);
-        } catch (Exception ex) {
-            // Captura cualquier excepción que ocurra durante el proceso de búsqueda
-            // (por ejemplo, errores de base de datos).
-            JOptionPane.showMessageDialog(null,
-                    ex.getMessage(),
-                    "ERROR", JOptionPane.ERROR_MESSAGE); // Muestra un mensaje de error al usuario.
-            return; // Sale del método 'search' después de mostrar el error.
-        }
+        // Programa la búsqueda de usuarios cuya información coincida con la cadena 'query'.
+        // El UserDAO se consulta en segundo plano y, si esta sigue siendo la búsqueda más reciente,
+        // 'createTable' actualiza la tabla en el hilo de eventos; los errores se muestran con un mensaje.
+        searcher.submit(query);
+    }
+    // Crea el modelo de la tabla a partir de la primera página de resultados. Las páginas siguientes
+    // se cargan en segundo plano a medida que la tabla las muestra (ver LazyTableModel).
+    // Las cargas comparten el UserDAO del formulario: el DAO no guarda estado entre llamadas.
+    private LazyTableModel<User> createModel(String query, Page<User> firstPage) {
+        return new LazyTableModel<>(
+                // Nombres de las columnas; corresponden a los atributos que se muestran de cada User.
+                new String[]{"Id", "Nombre", "Email", "Estatus"},
+                (user, column) -> switch (column) {
+                    case 0 -> user.getId();           // ID del usuario (columna oculta).
+                    case 1 -> user.getName();         // Nombre del usuario.
+                    case 2 -> user.getEmail();        // Email del usuario.
+                    default -> user.getStrEstatus();  // Estatus del usuario en texto.
+                },
+                (afterId, pageSize) -> userDAO.searchPage(query, afterId, pageSize),
+                firstPage,
+                ex -> JOptionPane.showMessageDialog(null,
+                        ex.getMessage(),
+                        "ERROR", JOptionPane.ERROR_MESSAGE)); // Muestra el error de carga de una página.
     }
-    public void createTable(ArrayList<User> users) {
-
-        // Crea un nuevo modelo de tabla por defecto (DefaultTableModel).
-        // Se sobrescribe el método isCellEditable para hacer que todas las celdas de la tabla no sean editables.
-        DefaultTableModel model = new DefaultTableModel() {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Retorna false para indicar que ninguna celda debe ser editable.
-            }
-        };
 
-        // Define las columnas de la tabla. Los nombres de las columnas corresponden
-        // a los atributos que se mostrarán de cada objeto User.
-        model.addColumn("Id");
-        model.addColumn("Nombre");
-        model.addColumn("Email");
-        model.addColumn("Estatus");
+    private void createTable(LazyTableModel<User> model) {
+        // Descarta las cargas pendientes del modelo anterior, si lo había.
+        if (this.tableUsers.getModel() instanceof LazyTableModel<?> previous) {
+            previous.close();
+        }
 
-        // Establece el modelo de tabla creado como el modelo de datos para la
-        // JTable 'tableUsers' (la tabla que se muestra en la interfaz gráfica).
+        // Establece el modelo como el modelo de datos de la JTable 'tableUsers'.
         this.tableUsers.setModel(model);
 
-        // Declara un array de objetos 'row' que se utilizará temporalmente para agregar filas.
-        Object row[] = null;
-
-        // Itera a través de la lista de objetos User proporcionada.
-        for (int i = 0; i < users.size(); i++) {
-            // Obtiene el objeto User actual de la lista.
-            User user = users.get(i);
-            // Agrega una nueva fila vacía al modelo de la tabla.
-            model.addRow(row);
-            // Establece el valor del ID del usuario en la celda correspondiente de la fila actual (columna 0).
-            model.setValueAt(user.getId(), i, 0);
-            // Establece el valor del nombre del usuario en la celda correspondiente de la fila actual (columna 1).
-            model.setValueAt(user.getName(), i, 1);
-            // Establece el valor del email del usuario en la celda correspondiente de la fila actual (columna 2).
-            model.setValueAt(user.getEmail(), i, 2);
-            // Establece el valor del estatus del usuario (probablemente obtenido a través de un método 'getStrEstatus()')
-            // en la celda correspondiente de la fila actual (columna 3).
-            model.setValueAt(user.getStrEstatus(), i, 3);
-        }
-
         // Llama al método 'hideCol' para ocultar la columna con índice 0 (la columna del ID).
         // Esto es común cuando el ID es necesario internamente pero no se quiere mostrar al usuario.
         hideCol(0);
@@ -1,6 +1,7 @@
 package esfe.presentacion;
 
 import esfe.persistencia.UserDAO; // Importa la interfaz o clase UserDAO, que define las operaciones de acceso a datos para la entidad User.
+import esfe.persistencia.UserEmailFilter; // Filtro de correos: indica si la verificación previa evita la consulta.
 import esfe.utils.CBOption; // Importa la clase CBOption, probablemente una clase utilitaria para manejar opciones de un ComboBox (por ejemplo, para asociar un valor con un texto).
 import esfe.utils.CUD; // Importa el enum CUD (Create, Update, Delete),  para indicar el tipo de operación que se está realizando (Crear, Actualizar, Eliminar).
 
@@ -189,7 +190,18 @@ public class UserWriteForm extends JDialog {
 
             // Si la validación de los controles fue exitosa.
             if (res) {
+                // El correo es único: con el filtro de correos listo se verifica antes de crear (casi
+                // siempre sin consulta). Sin filtro no se agrega un SELECT: el índice UNIQUE rechaza el
+                // duplicado al crear.
+                if (this.cud == CUD.CREATE && UserEmailFilter.getInstance().isReady()
+                        && userDAO.emailExists(this.en.getEmail())) {
+                    JOptionPane.showMessageDialog(null,
+                            "El correo ya está registrado",
+                            "Validación", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
                 boolean r = false; // Variable para almacenar el resultado de la operación de la base de datos.
+                SubmitEvent event = SubmitEvent.begin("UserWriteForm", this.cud.name()); // Evento de JFR del envío.
 
                 // Realiza la operación de la base de datos según el tipo de operación actual (CREATE, UPDATE, DELETE).
                 switch (this.cud) {
@@ -213,6 +225,7 @@ public class UserWriteForm extends JDialog {
                         r = userDAO.delete(this.en); // 'r' será true si la eliminación fue exitosa, false en caso contrario.
                         break;
                 }
+                event.finish(r); // Si la operación lanzó una excepción el evento no se registra.
 
                 // Si la operación de la base de datos (creación, actualización o eliminación) fue exitosa.
                 if (r) {
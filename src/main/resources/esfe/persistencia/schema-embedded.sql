@@ -0,0 +1,16 @@
+-- Esquema de la base de datos en proceso (db.mode=embedded).
+-- Replica las tablas de SecurityDB2025 usando la sintaxis compatible con MySQL de H2.
+CREATE TABLE IF NOT EXISTS Users (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    passwordHash VARCHAR(64) NOT NULL,
+    email VARCHAR(200) NOT NULL UNIQUE,
+    status TINYINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS Pelicula (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    titulo VARCHAR(200) NOT NULL,
+    director VARCHAR(100) NOT NULL,
+    genero VARCHAR(100) NOT NULL
+);
@@ -4,9 +4,13 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import esfe.dominio.Pelicula; // Entidad usada para verificar las transacciones.
+
 import java.sql.Connection; // Importa la clase Connection del paquete java.sql, que se utiliza para establecer una conexión con la base de datos.
 import java.sql.SQLException; // Importa la clase SQLException del paquete java.sql, que se utiliza para manejar excepciones relacionadas con operaciones de base de datos.
 
+import java.util.ArrayList; // Lista de resultados de búsqueda.
+
 import static org.junit.jupiter.api.Assertions.*; // Importa todos los métodos estáticos de la clase Assertions del paquete org.junit.jupiter.api. Esto proporciona métodos para realizar aserciones en las pruebas unitarias, como assertEquals, assertTrue, etc.
 
 class ConnectionManagerTest {
@@ -42,4 +46,146 @@ class ConnectionManagerTest {
             conn.close(); // Cierra la conexión después de la prueba.
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void disconnectDevuelveLaConexionAlPool() throws SQLException {
+        // Obtiene una conexión y la libera; la conexión debe regresar al pool sin cerrarse.
+        Connection first = connectionManager.connect();
+        connectionManager.disconnect();
+        assertFalse(first.isClosed(), "La conexion debe seguir abierta dentro del pool");
+
+        // Una nueva llamada a connect() en el mismo hilo debe reutilizar la conexión física.
+        Connection second = connectionManager.connect();
+        assertSame(first, second, "La conexion debe reutilizarse desde el pool");
+    }
+
+    @Test
+    void connectAnidadoComparteLaMismaConexion() throws SQLException {
+        // Las llamadas anidadas a connect() (por ejemplo create() que llama a getById()) comparten la conexión.
+        Connection outer = connectionManager.connect();
+        Connection inner = connectionManager.connect();
+        assertSame(outer, inner, "Las llamadas anidadas deben compartir la conexion");
+        connectionManager.disconnect();
+        // Tras liberar la llamada interna la conexión sigue asociada al hilo.
+        assertSame(outer, connectionManager.connect(), "La conexion externa debe seguir asociada al hilo");
+        connectionManager.disconnect();
+    }
+
+    @Test
+    void inTransactionConfirmaTodasLasOperacionesJuntas() throws SQLException {
+        PeliculaDAO peliculaDAO = new PeliculaDAO();
+        String titulo = "Tx Pelicula " + System.nanoTime();
+
+        // Las dos inserciones comparten la conexión del hilo y se confirman con un único commit.
+        Connection[] used = new Connection[1];
+        connectionManager.inTransaction(() -> {
+            used[0] = connectionManager.connect();
+            connectionManager.disconnect();
+            peliculaDAO.create(new Pelicula(0, titulo, "director", "genero"));
+            peliculaDAO.create(new Pelicula(0, titulo, "director", "genero"));
+            // Dentro del trabajo la conexión sigue siendo la misma y no confirma automáticamente.
+            assertSame(used[0], connectionManager.connect(), "Las operaciones deben compartir la conexion");
+            assertFalse(used[0].getAutoCommit(), "La conexion no debe confirmar automaticamente");
+            connectionManager.disconnect();
+            return null;
+        });
+
+        assertTrue(used[0].getAutoCommit(), "Al terminar debe restaurarse el autocommit");
+        ArrayList<Pelicula> peliculas = peliculaDAO.search(titulo);
+        assertEquals(2, peliculas.size(), "Ambas peliculas deben quedar confirmadas");
+        for (Pelicula pelicula : peliculas) {
+            peliculaDAO.delete(pelicula);
+        }
+    }
+
+    @Test
+    void inTransactionDeshaceLosCambiosSiFalla() throws SQLException {
+        PeliculaDAO peliculaDAO = new PeliculaDAO();
+        String titulo = "Rollback Pelicula " + System.nanoTime();
+
+        // Si el trabajo lanza una excepción, ninguna de las inserciones debe persistir.
+        assertThrows(SQLException.class, () -> connectionManager.inTransaction(() -> {
+            peliculaDAO.create(new Pelicula(0, titulo, "director", "genero"));
+            throw new SQLException("Fallo forzado");
+        }));
+
+        assertTrue(peliculaDAO.search(titulo).isEmpty(), "La insercion debe haberse deshecho");
+    }
+
+    @Test
+    void inTransactionDeshaceLosCambiosSiElTrabajoLanzaUnError() throws SQLException {
+        PeliculaDAO peliculaDAO = new PeliculaDAO();
+        String titulo = "Error Pelicula " + System.nanoTime();
+        ArrayList<Pelicula> lote = new ArrayList<>();
+        lote.add(new Pelicula(0, titulo + " lote", "director", "genero"));
+
+        // Un Error (no una excepción) también debe deshacer la transacción antes de restaurar el autocommit.
+        assertThrows(AssertionError.class, () -> connectionManager.inTransaction(() -> {
+            peliculaDAO.create(new Pelicula(0, titulo, "director", "genero"));
+            peliculaDAO.createAll(lote);
+            throw new AssertionError("Fallo forzado");
+        }));
+
+        assertTrue(peliculaDAO.search(titulo).isEmpty(), "Las inserciones deben haberse deshecho");
+        assertEquals(0, lote.get(0).getId(), "Los ids asignados por el lote deben reiniciarse");
+        assertTrue(connectionManager.connect().getAutoCommit(), "Al terminar debe restaurarse el autocommit");
+        connectionManager.disconnect();
+    }
+
+    @Test
+    void accionesQueFallanNoOcultanElCommitNiSaltanLasDemas() throws SQLException {
+        // Tras un commit exitoso, una acción que falla no se lanza y las siguientes se ejecutan.
+        boolean[] ejecutada = new boolean[1];
+        IllegalStateException fallo = new IllegalStateException("Accion forzada");
+        String resultado = connectionManager.inTransaction(() -> {
+            connectionManager.afterCommit(() -> {
+                throw fallo;
+            });
+            connectionManager.afterCommit(() -> ejecutada[0] = true);
+            return "confirmado";
+        });
+        assertEquals("confirmado", resultado);
+        assertTrue(ejecutada[0], "Las acciones siguientes deben ejecutarse");
+        assertSame(fallo, connectionManager.getLastActionError());
+
+        // Tras un rollback se conserva el error original y el de la acción queda como suprimido.
+        IllegalStateException falloRollback = new IllegalStateException("Rollback forzado");
+        SQLException ex = assertThrows(SQLException.class, () -> connectionManager.inTransaction(() -> {
+            connectionManager.afterRollback(() -> {
+                throw falloRollback;
+            });
+            throw new SQLException("Fallo forzado");
+        }));
+        assertEquals("Fallo forzado", ex.getMessage());
+        assertSame(falloRollback, ex.getSuppressed()[0]);
+    }
+
+    @Test
+    void inTransactionDeshechaNoDejaFilasEnCachesNiBusquedas() throws SQLException {
+        PeliculaDAO peliculaDAO = new PeliculaDAO();
+        String titulo = "Rollback Cache " + System.nanoTime();
+        int[] id = new int[1];
+        ArrayList<Pelicula> lote = new ArrayList<>();
+        lote.add(new Pelicula(0, titulo + " lote", "director", "genero"));
+
+        // Dentro de la transacción la fila se ve (consulta directa), pero no se publica en las caches,
+        // el índice de títulos ni las búsquedas guardadas hasta el commit.
+        assertThrows(SQLException.class, () -> connectionManager.inTransaction(() -> {
+            Pelicula creada = peliculaDAO.create(new Pelicula(0, titulo, "director", "genero"));
+            id[0] = creada.getId();
+            creada.setDirector("otro director");
+            peliculaDAO.update(creada);
+            peliculaDAO.createAll(lote);
+            assertEquals("otro director", peliculaDAO.getById(id[0]).getDirector(),
+                    "La transaccion debe ver sus propios cambios");
+            assertEquals(2, peliculaDAO.search(titulo).size(), "La transaccion debe ver sus propias filas");
+            throw new SQLException("Fallo forzado");
+        }));
+
+        // Tras el rollback no queda ninguna fila fantasma en la cache por id ni en las búsquedas.
+        assertNull(peliculaDAO.getById(id[0]), "La cache no debe conservar la fila deshecha");
+        assertTrue(peliculaDAO.search(titulo).isEmpty(), "La busqueda no debe devolver filas deshechas");
+        assertEquals(0, lote.get(0).getId(), "Los ids asignados por el lote deben reiniciarse");
+    }
+}
+
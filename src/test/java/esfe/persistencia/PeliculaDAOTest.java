@@ -8,6 +8,31 @@ import java.util.ArrayList;              // Clase para crear listas dinámicas d
 import java.util.Random;                 // Clase para generar números aleatorios, útil para crear datos de prueba.
 
 import java.sql.SQLException;             // Clase para manejar excepciones relacionadas con la base de datos, aunque no se espera que las pruebas unitarias interactúen directamente con ella (idealmente se mockean las dependencias).
+import java.time.Duration;                // Umbral de duración para los eventos de JFR.
+import java.util.Collections;             // Conjunto por identidad de objetos.
+import java.util.HashSet;                 // Conjunto para verificar que los IDs generados no se repitan.
+import java.util.IdentityHashMap;         // Compara los resultados por instancia.
+import java.util.List;                    // Interfaz de listas.
+import java.util.Map;                     // Resultado de getByIds.
+import java.util.Comparator;              // Orden por ID para comparar resultados.
+import java.util.Set;                     // Interfaz de conjuntos.
+import java.util.concurrent.CopyOnWriteArrayList; // Lista segura entre hilos para recolectar eventos.
+import java.util.concurrent.CountDownLatch;       // Retiene una consulta hasta que lleguen los demás hilos.
+import java.util.concurrent.ExecutorService;      // Ejecutor de tareas concurrentes.
+import java.util.concurrent.Executors;            // Fábrica del ejecutor de hilos virtuales.
+import java.util.concurrent.Future;               // Resultado de una tarea concurrente.
+import java.util.concurrent.atomic.AtomicInteger; // Contador de consultas exitosas entre hilos.
+import java.util.concurrent.CompletableFuture;    // Resultado de las operaciones asíncronas.
+import java.util.concurrent.ExecutionException;   // Error de una operación asíncrona.
+import java.util.concurrent.TimeUnit;             // Unidades de tiempo de espera.
+import java.util.concurrent.TimeoutException;     // Operación asíncrona que venció.
+
+import java.lang.management.ManagementFactory; // Servidor de MBeans de la plataforma.
+import javax.management.MBeanServer;           // Consulta de los MBeans publicados.
+import javax.management.ObjectName;            // Nombre JMX de las métricas.
+
+import jdk.jfr.consumer.RecordedEvent;    // Evento registrado por Java Flight Recorder.
+import jdk.jfr.consumer.RecordingStream;  // Grabación de JFR consumida en el mismo proceso.
 
 import static org.junit.jupiter.api.Assertions.*; // Importación estática de métodos de aserción de JUnit 5 para verificar el comportamiento esperado en las pruebas.
 
@@ -136,4 +161,598 @@ class PeliculaDAOTest {
         Pelicula res = peliculaDAO.create(pelicula);
         assertNotEquals(res,null);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getByIdReutilizaSentenciasPreparadas() throws SQLException {
+        // Crea una pelicula de prueba para consultarla repetidamente por su ID.
+        Pelicula pelicula = create(new Pelicula(0, "Cache Pelicula", "director", "genero"));
+        ConnectionManager connectionManager = ConnectionManager.getInstance();
+        int iterations = 1000;
+
+        long hitsBefore = connectionManager.getStatementCacheHits();
+        for (int i = 0; i < iterations; i++) {
+            // Se quita de la caché de entidades para que cada llamada consulte la base de datos.
+            PeliculaDAO.getCache().invalidate(pelicula.getId());
+            assertNotNull(peliculaDAO.getById(pelicula.getId()), "La pelicula debe encontrarse por ID.");
+        }
+        long hits = connectionManager.getStatementCacheHits() - hitsBefore;
+
+        // Todas las consultas (salvo, como mucho, la primera sobre una conexión nueva) deben reutilizar la sentencia.
+        assertTrue(hits >= iterations - 1, "La sentencia de getById debe reutilizarse desde la cache: " + hits);
+        peliculaDAO.delete(pelicula);
+    }
+
+    @Test
+    void getByIdDesdeHilosVirtualesNoFijaHilosPortadores() throws Exception {
+        Pelicula pelicula = create(new Pelicula(0, "Virtual Pelicula", "director", "genero"));
+        int threads = 10_000;
+        AtomicInteger found = new AtomicInteger();
+        List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+
+        // Registra con JFR cada vez que un hilo virtual se bloquea mientras está fijado a su hilo portador.
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < threads; i++) {
+                    executor.submit(() -> {
+                        // Todos los hilos comparten el mismo DAO.
+                        if (peliculaDAO.getById(pelicula.getId()) != null) {
+                            found.incrementAndGet();
+                        }
+                        return null;
+                    });
+                }
+            }
+            recording.stop();
+        }
+
+        assertEquals(threads, found.get(), "Todos los hilos virtuales deben obtener la pelicula.");
+        // La adquisición de conexiones no debe bloquear hilos virtuales fijados (synchronized/wait).
+        long pinnedInPool = pinned.stream()
+                .filter(event -> event.getStackTrace() != null && event.getStackTrace().getFrames().stream()
+                        .anyMatch(frame -> frame.getMethod().getType().getName().startsWith("esfe.persistencia.Connection")))
+                .count();
+        assertEquals(0, pinnedInPool, "La adquisicion de conexiones no debe fijar hilos portadores.");
+        peliculaDAO.delete(pelicula);
+    }
+
+    @Test
+    void daoCompartidoEntreHilosRetornaResultadosCorrectos() throws Exception {
+        // Muchos hilos usan la misma instancia del DAO a la vez, cada uno sobre sus propias peliculas.
+        int threads = 32;
+        int iterations = 25;
+        String marca = "Compartido" + System.nanoTime();
+        List<String> errores = new CopyOnWriteArrayList<>();
+        AtomicInteger completadas = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < threads; t++) {
+                int hilo = t;
+                executor.submit(() -> {
+                    try {
+                        for (int i = 0; i < iterations; i++) {
+                            String titulo = marca + " " + hilo + "-" + i + ";";
+                            Pelicula creada = peliculaDAO.create(new Pelicula(0, titulo, "director " + hilo, "genero " + i));
+                            int id = creada.getId();
+
+                            // Se quita de la caché para que la lectura use la sentencia de la base de datos.
+                            PeliculaDAO.getCache().invalidate(id);
+                            Pelicula leida = peliculaDAO.getById(id);
+                            if (leida == null || !titulo.equals(leida.getTitulo()) || !("director " + hilo).equals(leida.getDirector())) {
+                                errores.add("getById " + id + " retornó " + (leida == null ? null : leida.getTitulo()));
+                            }
+                            List<Pelicula> encontradas = peliculaDAO.search(titulo);
+                            if (encontradas.size() != 1 || encontradas.get(0).getId() != id) {
+                                errores.add("search '" + titulo + "' retornó " + ids(encontradas));
+                            }
+
+                            creada.setTitulo(titulo + " editada");
+                            if (!peliculaDAO.update(creada)) {
+                                errores.add("update " + id + " no afectó filas");
+                            }
+                            Page<Pelicula> page = peliculaDAO.searchPage(titulo + " editada", 0, 10);
+                            if (page.getItems().size() != 1 || page.getItems().get(0).getId() != id) {
+                                errores.add("searchPage '" + titulo + " editada' retornó " + ids(page.getItems()));
+                            }
+
+                            if (!peliculaDAO.delete(creada) || peliculaDAO.getById(id) != null) {
+                                errores.add("delete " + id + " no eliminó la pelicula");
+                            }
+                            completadas.incrementAndGet();
+                        }
+                    } catch (Exception ex) {
+                        errores.add("hilo " + hilo + ": " + ex);
+                    }
+                });
+            }
+        }
+
+        assertEquals(List.of(), errores, "El DAO compartido no debe mezclar sentencias ni resultados entre hilos.");
+        assertEquals(threads * iterations, completadas.get(), "Todas las iteraciones deben completarse.");
+        assertTrue(peliculaDAO.search(marca).isEmpty(), "Todas las peliculas de la prueba deben eliminarse.");
+    }
+
+    @Test
+    void lecturasSimultaneasDelMismoIdCompartenUnaConsulta() throws Exception {
+        Pelicula pelicula = create(new Pelicula(0, "Single Flight", "director", "genero"));
+        SingleFlight<Integer, Pelicula> flights = new SingleFlight<>(
+                p -> new Pelicula(p.getId(), p.getTitulo(), p.getDirector(), p.getGenero()));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger queries = new AtomicInteger();
+        int callers = 20;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Pelicula>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> flights.run(pelicula.getId(), () -> {
+                    // La consulta se retiene hasta que todos los llamadores se hayan unido a ella.
+                    queries.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        throw new SQLException("Interrumpida", ex);
+                    }
+                    PeliculaDAO.getCache().invalidate(pelicula.getId());
+                    return peliculaDAO.getById(pelicula.getId());
+                })));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (flights.getCollapsed() < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            Set<Pelicula> instancias = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<Pelicula> result : results) {
+                Pelicula leida = result.get(10, TimeUnit.SECONDS);
+                assertEquals("Single Flight", leida.getTitulo());
+                instancias.add(leida);
+            }
+            assertEquals(1, queries.get(), "Solo una de las lecturas simultáneas debe consultar la base de datos.");
+            assertEquals(callers - 1, flights.getCollapsed(), "Las demás lecturas deben unirse a la consulta en curso.");
+            assertEquals(callers, instancias.size(), "Cada llamador debe recibir su propia copia.");
+        }
+        assertEquals(0, flights.getInFlight(), "Al terminar no deben quedar consultas en curso.");
+
+        // Los errores se entregan a todos los que esperaban, y la clave queda libre para reintentar.
+        assertThrows(SQLException.class, () -> flights.run(pelicula.getId(), () -> {
+            throw new SQLException("fallo");
+        }));
+        assertNotNull(flights.run(pelicula.getId(), () -> peliculaDAO.getById(pelicula.getId())));
+        peliculaDAO.delete(pelicula);
+    }
+
+    @Test
+    void getByIdUsaLaCacheYSeInvalidaAlModificar() throws SQLException {
+        EntityCache<Pelicula> cache = PeliculaDAO.getCache();
+        // create deja la pelicula en la caché: la primera lectura ya es un acierto.
+        Pelicula pelicula = create(new Pelicula(0, "Cache Entidad", "director", "genero"));
+        long hitsBefore = cache.getHits();
+        long missesBefore = cache.getMisses();
+        Pelicula leida = peliculaDAO.getById(pelicula.getId());
+        assertEquals(hitsBefore + 1, cache.getHits(), "La lectura debe responderse desde la cache.");
+        assertEquals(missesBefore, cache.getMisses(), "La lectura no debe consultar la base de datos.");
+
+        // Modificar el objeto retornado no debe alterar la copia en caché.
+        leida.setTitulo("Modificada localmente");
+        assertEquals("Cache Entidad", peliculaDAO.getById(pelicula.getId()).getTitulo(), "La cache debe entregar copias.");
+
+        // update invalida la entrada: la siguiente lectura va a la base de datos y ve el cambio.
+        pelicula.setTitulo("Cache Entidad Actualizada");
+        assertTrue(peliculaDAO.update(pelicula));
+        long missesAfterUpdate = cache.getMisses();
+        assertEquals("Cache Entidad Actualizada", peliculaDAO.getById(pelicula.getId()).getTitulo());
+        assertEquals(missesAfterUpdate + 1, cache.getMisses(), "Tras update la lectura debe consultar la base de datos.");
+
+        // delete invalida la entrada: la pelicula ya no se encuentra.
+        assertTrue(peliculaDAO.delete(pelicula));
+        assertNull(peliculaDAO.getById(pelicula.getId()), "Tras delete la pelicula no debe encontrarse.");
+    }
+
+    @Test
+    void searchConHandleCanceladoNoEjecutaLaConsulta() throws SQLException {
+        // Sin caché de búsquedas, para que la consulta llegue a la base de datos.
+        PeliculaDAO.getSearchCache().clear();
+        QueryHandle handle = new QueryHandle();
+        handle.cancel();
+        assertTrue(handle.isCancelled());
+        assertThrows(SQLException.class, () -> peliculaDAO.search("Cancelada " + System.nanoTime(), handle),
+                "Una búsqueda con el handle cancelado debe fallar.");
+
+        // La sentencia de la caché sigue siendo utilizable por las búsquedas siguientes.
+        assertNotNull(peliculaDAO.search("Cancelada " + System.nanoTime(), new QueryHandle()));
+    }
+
+    @Test
+    void operacionesAsincronasRetornanLosMismosResultados() throws Exception {
+        Pelicula pelicula = peliculaDAO.createAsync(new Pelicula(0, "Async Pelicula " + System.nanoTime(), "director", "genero"))
+                .get(10, TimeUnit.SECONDS);
+        assertTrue(pelicula.getId() > 0, "La pelicula creada de forma asíncrona debe tener ID.");
+
+        // Ambas consultas se lanzan a la vez y se esperan juntas.
+        CompletableFuture<Pelicula> byId = peliculaDAO.getByIdAsync(pelicula.getId());
+        CompletableFuture<ArrayList<Pelicula>> byTitle = peliculaDAO.searchAsync(pelicula.getTitulo());
+        assertEquals(pelicula.getTitulo(), byId.get(10, TimeUnit.SECONDS).getTitulo());
+        assertEquals(1, byTitle.get(10, TimeUnit.SECONDS).size());
+
+        assertTrue(peliculaDAO.deleteAsync(pelicula).get(10, TimeUnit.SECONDS), "La eliminación asíncrona debe ser exitosa.");
+    }
+
+    @Test
+    void daoExecutorAcotaLaConcurrenciaYCancelaAlVencer() throws Exception {
+        // El ExecutorService se cierra al terminar: close() espera a que acaben sus hilos.
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            DaoExecutor executor = new DaoExecutor(threads, 2, 0);
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.submit(handle -> {
+                    int now = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(now, Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return now;
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).get(10, TimeUnit.SECONDS);
+            assertTrue(maxRunning.get() <= 2, "No deben ejecutarse más de 2 operaciones a la vez: " + maxRunning.get());
+
+            // Una operación que supera el tiempo máximo se completa con TimeoutException y se interrumpe.
+            CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+            CompletableFuture<Object> slow = executor.submit(handle -> {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException ex) {
+                    interrupted.complete(true);
+                }
+                return null;
+            }, 50);
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> slow.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(TimeoutException.class, ex.getCause(), "La operación debe vencer.");
+            assertTrue(interrupted.get(10, TimeUnit.SECONDS), "La operación vencida debe interrumpirse.");
+        }
+    }
+
+    @Test
+    void daoExecutorNoVenceNiInterrumpeLasEscrituras() throws Exception {
+        // El ExecutorService se cierra al terminar: close() espera a que acaben sus hilos.
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            DaoExecutor executor = new DaoExecutor(threads, 1, 50);
+
+            // Una escritura más lenta que el tiempo máximo termina normalmente, sin interrupción.
+            CompletableFuture<Boolean> slow = executor.submitWrite(handle -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                return true;
+            });
+            assertTrue(slow.get(10, TimeUnit.SECONDS), "La escritura no debe vencer ni interrumpirse.");
+
+            // Con el único permiso ocupado, una escritura cancelada antes de empezar no se ejecuta.
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> busy = executor.submitWrite(handle -> {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            });
+            AtomicInteger executed = new AtomicInteger();
+            CompletableFuture<Integer> waiting = executor.submitWrite(handle -> executed.incrementAndGet());
+            assertTrue(waiting.cancel(true));
+            release.countDown();
+            assertTrue(busy.get(10, TimeUnit.SECONDS));
+            // Una tercera escritura pasa después de la cancelada: al terminar, esta ya se descartó.
+            executor.submitWrite(handle -> 0).get(10, TimeUnit.SECONDS);
+            assertEquals(0, executed.get(), "La escritura cancelada antes de empezar no debe ejecutarse.");
+        }
+    }
+
+    @Test
+    void createAllAsignaLosIdsGenerados() throws SQLException {
+        // Prepara más peliculas que el tamaño del lote para forzar varios executeBatch().
+        List<Pelicula> peliculas = new ArrayList<>();
+        String titulo = "Lote Pelicula " + System.nanoTime();
+        for (int i = 0; i < 250; i++) {
+            peliculas.add(new Pelicula(0, titulo + " " + i, "director " + i, "genero"));
+        }
+
+        int created = peliculaDAO.createAll(peliculas, 100);
+
+        assertEquals(peliculas.size(), created, "Todas las peliculas deben crearse.");
+        Set<Integer> ids = new HashSet<>();
+        for (Pelicula pelicula : peliculas) {
+            assertTrue(pelicula.getId() > 0, "Cada pelicula debe recibir su ID generado.");
+            ids.add(pelicula.getId());
+        }
+        assertEquals(peliculas.size(), ids.size(), "Los IDs generados no deben repetirse.");
+
+        // El ID asignado a cada objeto debe corresponder a la fila insertada.
+        getById(peliculas.get(0));
+        getById(peliculas.get(peliculas.size() - 1));
+
+        for (Pelicula pelicula : peliculas) {
+            peliculaDAO.delete(pelicula);
+        }
+    }
+
+    @Test
+    void searchPageRecorreTodosLosResultadosPorCursor() throws SQLException {
+        // Crea 25 peliculas con un titulo único para recorrerlas en páginas de 10.
+        List<Pelicula> peliculas = new ArrayList<>();
+        String titulo = "Pagina Pelicula " + System.nanoTime();
+        for (int i = 0; i < 25; i++) {
+            peliculas.add(new Pelicula(0, titulo, "director", "genero"));
+        }
+        peliculaDAO.createAll(peliculas);
+
+        List<Integer> ids = new ArrayList<>();
+        int pages = 0;
+        int cursor = 0;
+        Page<Pelicula> page;
+        do {
+            page = peliculaDAO.searchPage(titulo, cursor, 10);
+            pages++;
+            assertTrue(page.getItems().size() <= 10, "La pagina no debe superar el tamaño solicitado.");
+            page.getItems().forEach(pelicula -> ids.add(pelicula.getId()));
+            cursor = page.getNextCursor();
+        } while (page.hasNext());
+
+        assertEquals(3, pages, "25 peliculas en paginas de 10 deben ocupar 3 paginas.");
+        assertEquals(25, ids.size(), "Todas las peliculas deben recorrerse.");
+        assertEquals(25, new HashSet<>(ids).size(), "Ninguna pelicula debe repetirse entre paginas.");
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i), "Las peliculas deben llegar ordenadas por ID.");
+        }
+
+        for (Pelicula pelicula : peliculas) {
+            peliculaDAO.delete(pelicula);
+        }
+    }
+
+    @Test
+    void searchPageUsaLaCacheDeBusquedasYElIndiceDeTitulos() throws SQLException {
+        List<Pelicula> peliculas = new ArrayList<>();
+        String titulo = "Pagina Cache " + System.nanoTime();
+        for (int i = 0; i < 25; i++) {
+            peliculas.add(new Pelicula(0, titulo, "director", "genero"));
+        }
+        peliculaDAO.createAll(peliculas);
+        List<Integer> esperados = ids(peliculas);
+        PeliculaTitleIndex index = PeliculaTitleIndex.getInstance();
+        try {
+            // Con el resultado de search() en la caché, las páginas se recortan sin consultar.
+            peliculaDAO.search(titulo);
+            long hits = PeliculaDAO.getSearchCache().getHits();
+            assertEquals(esperados, idsPorPaginas(titulo, 10));
+            assertEquals(hits + 3, PeliculaDAO.getSearchCache().getHits(), "Cada pagina debe salir de la cache.");
+
+            // Una primera página con todo el resultado queda en la caché para search().
+            PeliculaDAO.getSearchCache().clear();
+            assertFalse(peliculaDAO.searchPage(titulo, 0, 50).hasNext());
+            hits = PeliculaDAO.getSearchCache().getHits();
+            assertEquals(esperados, ids(peliculaDAO.search(titulo)));
+            assertEquals(hits + 1, PeliculaDAO.getSearchCache().getHits(), "search debe usar la pagina guardada.");
+
+            // Con el índice de titulos listo, las páginas salen del índice.
+            index.build(peliculaDAO);
+            PeliculaDAO.getSearchCache().clear();
+            long misses = PeliculaDAO.getSearchCache().getMisses();
+            assertEquals(esperados, idsPorPaginas(titulo, 10));
+            assertEquals(misses, PeliculaDAO.getSearchCache().getMisses(), "El indice debe responder sin la cache.");
+        } finally {
+            index.clear();
+            for (Pelicula pelicula : peliculas) {
+                peliculaDAO.delete(pelicula);
+            }
+        }
+    }
+
+    private List<Integer> idsPorPaginas(String titulo, int pageSize) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        int cursor = 0;
+        Page<Pelicula> page;
+        do {
+            page = peliculaDAO.searchPage(titulo, cursor, pageSize);
+            page.getItems().forEach(pelicula -> ids.add(pelicula.getId()));
+            cursor = page.getNextCursor();
+        } while (page.hasNext());
+        return ids;
+    }
+
+    @Test
+    void searchConIndiceDeTitulosCoincideConLike() throws SQLException {
+        // Crea 2000 peliculas con titulos combinados de varias palabras, algunas con acentos.
+        String[] palabras = {"Matrix", "Reloaded", "Star", "Wars", "Anillo", "Rey", "Noche", "Día", "Perro", "Acción"};
+        String marca = "Indice" + System.nanoTime();
+        Random random = new Random(42);
+        List<Pelicula> peliculas = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String titulo = palabras[random.nextInt(palabras.length)] + " " + palabras[random.nextInt(palabras.length)]
+                    + " " + marca + " " + i;
+            peliculas.add(new Pelicula(0, titulo, "director", "genero"));
+        }
+        peliculaDAO.createAll(peliculas);
+
+        // "accion" y "dia" deben encontrar "Acción" y "Día", como el LIKE de MySQL.
+        String[] consultas = {"matrix", "star w", "rey n", "o", "ga", "accion", "dia", "ACCIÓN r",
+                marca.toLowerCase(), marca + " 19", "zzzz"};
+        PeliculaTitleIndex index = PeliculaTitleIndex.getInstance();
+        try {
+            // Resultados de la búsqueda por LIKE (sin índice ni refinamientos de la caché de búsquedas).
+            index.clear();
+            List<List<Integer>> esperados = new ArrayList<>();
+            for (String consulta : consultas) {
+                PeliculaDAO.getSearchCache().clear();
+                esperados.add(ids(peliculaDAO.search(consulta)));
+            }
+            assertFalse(esperados.get(5).isEmpty(), "LIKE debe encontrar los titulos con acentos.");
+
+            index.build(peliculaDAO);
+            assertTrue(index.isReady(), "El indice debe quedar listo tras construirse.");
+            for (int i = 0; i < consultas.length; i++) {
+                assertEquals(esperados.get(i), ids(peliculaDAO.search(consultas[i])),
+                        "El indice debe retornar lo mismo que LIKE para: " + consultas[i]);
+            }
+
+            // Las escrituras mantienen el índice al día.
+            Pelicula nueva = create(new Pelicula(0, "Nueva " + marca, "director", "genero"));
+            assertEquals(List.of(nueva.getId()), ids(peliculaDAO.search("nueva " + marca)), "create debe indexar el titulo.");
+            nueva.setTitulo("Cambiada " + marca);
+            peliculaDAO.update(nueva);
+            assertTrue(peliculaDAO.search("nueva " + marca).isEmpty(), "update debe quitar el titulo anterior.");
+            assertEquals(List.of(nueva.getId()), ids(peliculaDAO.search("cambiada " + marca)), "update debe indexar el titulo nuevo.");
+            peliculaDAO.delete(nueva);
+            assertTrue(peliculaDAO.search("cambiada " + marca).isEmpty(), "delete debe quitar la pelicula del indice.");
+        } finally {
+            index.clear();
+            for (Pelicula pelicula : peliculas) {
+                peliculaDAO.delete(pelicula);
+            }
+        }
+    }
+
+    @Test
+    void getByIdsRetornaLoMismoQueGetByIdConMenosConsultas() throws SQLException {
+        // La comparación de tiempos con 100 mil filas está en PeliculaDAOBenchmark (getByIdsAll y getByIdAllLoop).
+        int cantidad = 1_000;
+        List<Pelicula> peliculas = new ArrayList<>(cantidad);
+        String titulo = "Ids Pelicula " + System.nanoTime();
+        for (int i = 0; i < cantidad; i++) {
+            peliculas.add(new Pelicula(0, titulo + " " + i, "director " + i, "genero"));
+        }
+        peliculaDAO.createAll(peliculas);
+        List<Integer> ids = new ArrayList<>(cantidad);
+        peliculas.forEach(pelicula -> ids.add(pelicula.getId()));
+
+        try {
+            // Consultas por bloques de IDs, sin caché.
+            PeliculaDAO.getCache().clear();
+            Map<Integer, Pelicula> encontradas = peliculaDAO.getByIds(ids);
+
+            assertEquals(cantidad, encontradas.size(), "Deben encontrarse todas las peliculas.");
+            for (Pelicula pelicula : peliculas) {
+                // Cada resultado del lote coincide con la consulta por ID, también sin caché.
+                PeliculaDAO.getCache().invalidate(pelicula.getId());
+                Pelicula porId = peliculaDAO.getById(pelicula.getId());
+                Pelicula encontrada = encontradas.get(pelicula.getId());
+                assertEquals(porId.getTitulo(), encontrada.getTitulo());
+                assertEquals(pelicula.getTitulo(), encontrada.getTitulo());
+                assertEquals(pelicula.getDirector(), encontrada.getDirector());
+            }
+        } finally {
+            // Se eliminan con el DAO en una sola transacción, para que las caches y el índice de
+            // títulos se actualicen junto con la tabla.
+            ConnectionManager.getInstance().inTransaction(() -> {
+                for (Pelicula pelicula : peliculas) {
+                    peliculaDAO.delete(pelicula);
+                }
+                return null;
+            });
+        }
+
+        // Los IDs repetidos o inexistentes no generan entradas de más, y un bloque incompleto
+        // (7 IDs en bloques de 4) se completa sin duplicar resultados.
+        Pelicula pelicula = create(new Pelicula(0, "Ids Sueltos", "director", "genero"));
+        Map<Integer, Pelicula> encontradas = peliculaDAO.getByIds(
+                List.of(pelicula.getId(), pelicula.getId(), -1, -2, -3, -4, -5), 4);
+        assertEquals(Set.of(pelicula.getId()), encontradas.keySet());
+        assertTrue(peliculaDAO.getByIds(List.of()).isEmpty());
+        peliculaDAO.delete(pelicula);
+    }
+
+    @Test
+    void metricasRegistranLlamadasErroresYFilasPorMetodo() throws Exception {
+        // El histograma acota el error relativo de los percentiles (64 sub-intervalos por potencia de dos).
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.02);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.02);
+        assertEquals(99_900_000, histogram.getValueAtPercentile(99.9), 99_900_000 * 0.02);
+        assertEquals(100_000_000, histogram.getMax());
+
+        Pelicula pelicula = create(new Pelicula(0, "Metricas " + System.nanoTime(), "director", "genero"));
+        MethodMetrics search = DaoMetrics.get("PeliculaDAO", "search");
+        MethodMetrics getById = DaoMetrics.get("PeliculaDAO", "getById");
+        search.reset();
+        getById.reset();
+
+        assertEquals(1, peliculaDAO.search(pelicula.getTitulo()).size());
+        peliculaDAO.getById(pelicula.getId());
+        peliculaDAO.getById(-1);
+        assertEquals(1, search.getCalls());
+        assertEquals(1, search.getRows(), "search debe contar las filas retornadas.");
+        assertEquals(2, getById.getCalls());
+        assertEquals(1, getById.getRows(), "Un ID inexistente no retorna filas.");
+        assertEquals(0, getById.getErrors());
+        assertTrue(search.getP99Micros() > 0, "La latencia de la llamada debe registrarse.");
+
+        // Una llamada que falla se cuenta como error.
+        MethodMetrics createAll = DaoMetrics.get("PeliculaDAO", "createAll");
+        long errores = createAll.getErrors();
+        assertThrows(SQLException.class, () -> peliculaDAO.createAll(List.of(new Pelicula(0, null, null, null))));
+        assertEquals(errores + 1, createAll.getErrors());
+
+        // Las mismas métricas se publican por JMX.
+        assertNull(DaoMetrics.getJmxError(), "Todas las metricas deben publicarse por JMX.");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("esfe.persistencia:type=DaoMetrics,dao=PeliculaDAO,method=getById");
+        assertEquals(2L, server.getAttribute(name, "Calls"));
+        assertTrue(DaoMetrics.get("ConnectionManager", "connect").getCalls() > 0, "La adquisición de conexiones debe medirse.");
+        peliculaDAO.delete(pelicula);
+    }
+
+    @Test
+    void eventosDeJfrRegistranCadaLlamadaConSuSql() throws Exception {
+        Pelicula pelicula = create(new Pelicula(0, "Jfr " + System.nanoTime(), "director", "genero"));
+        List<RecordedEvent> events = new CopyOnWriteArrayList<>();
+
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("esfe.DaoCall").withThreshold(Duration.ZERO);
+            recording.onEvent("esfe.DaoCall", events::add);
+            recording.startAsync();
+
+            assertEquals(1, peliculaDAO.search(pelicula.getTitulo()).size());
+            assertThrows(SQLException.class, () -> peliculaDAO.createAll(List.of(new Pelicula(0, null, null, null))));
+            recording.stop();
+        }
+
+        RecordedEvent search = events.stream()
+                .filter(event -> event.getString("method").equals("search"))
+                .findFirst().orElseThrow();
+        assertEquals("PeliculaDAO", search.getString("dao"));
+        assertTrue(search.getString("sql").contains("FROM Pelicula WHERE titulo LIKE ?"), search.getString("sql"));
+        assertEquals(Integer.toHexString(search.getString("sql").hashCode()), search.getString("sqlId"));
+        assertEquals(1, search.getLong("rows"));
+        assertFalse(search.getBoolean("failed"));
+        assertTrue(search.getDuration().toNanos() >= search.getDuration("executeTime").toNanos(),
+                "La ejecución es parte de la duración de la llamada.");
+
+        RecordedEvent createAll = events.stream()
+                .filter(event -> event.getString("method").equals("createAll"))
+                .findFirst().orElseThrow();
+        assertTrue(createAll.getBoolean("failed"), "Una llamada que falla se marca como fallida.");
+        // La obtención de la conexión también se registra.
+        assertTrue(events.stream().anyMatch(event -> event.getString("dao").equals("ConnectionManager")));
+        peliculaDAO.delete(pelicula);
+    }
+
+    private static List<Integer> ids(List<Pelicula> peliculas) {
+        // IDs ordenados, para comparar resultados sin depender del orden de la consulta.
+        return peliculas.stream().map(Pelicula::getId).sorted(Comparator.naturalOrder()).toList();
+    }
+}
@@ -3,10 +3,25 @@ package esfe.persistencia;
 import org.junit.jupiter.api.BeforeEach; // Anotación para indicar que el método se ejecuta antes de cada método de prueba.
 import org.junit.jupiter.api.Test;       // Anotación para indicar que el método es un caso de prueba.
 import esfe.dominio.User;                // Clase que representa la entidad de usuario utilizada en las pruebas.
+import esfe.utils.PasswordHasher;        // Hash de la contraseña que no debe aparecer en el registro.
 
 import java.util.ArrayList;              // Clase para crear listas dinámicas de objetos, utilizada en algunas pruebas.
 import java.util.Random;                 // Clase para generar números aleatorios, útil para crear datos de prueba.
 
+import java.util.List;                   // Interfaz de listas.
+import java.util.stream.Collectors;      // Recolección de los elementos del Stream.
+import java.util.stream.Stream;          // Flujo perezoso de resultados.
+import java.util.stream.IntStream;       // Correos generados para el filtro.
+import java.util.concurrent.TimeUnit;    // Espera del hilo escritor del registro.
+import java.util.concurrent.ExecutorService; // Validaciones concurrentes de una sesión.
+import java.util.concurrent.Executors;       // Hilos de las validaciones concurrentes.
+import java.util.concurrent.Future;          // Resultado de cada hilo.
+import java.util.concurrent.CountDownLatch;  // Arranque simultáneo de los hilos.
+
+import java.nio.file.Files;              // Lectura del registro de consultas lentas.
+import java.nio.file.Path;               // Ubicación del registro de consultas lentas.
+import org.junit.jupiter.api.io.TempDir; // Directorio temporal para el registro.
+
 import java.sql.SQLException;             // Clase para manejar excepciones relacionadas con la base de datos, aunque no se espera que las pruebas unitarias interactúen directamente con ella (idealmente se mockean las dependencias).
 
 import static org.junit.jupiter.api.Assertions.*; // Importación estática de métodos de aserción de JUnit 5 para verificar el comportamiento esperado en las pruebas.
@@ -185,4 +200,422 @@ class UserDAOTest {
         User res = userDAO.create(user);
         assertNotEquals(res,null);
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamSearchRecorreLosUsuariosYLiberaLaConexion() throws SQLException {
+        ConnectionManager connectionManager = ConnectionManager.getInstance();
+        String name = "Stream User " + System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            userDAO.create(new User(0, name, "password", "stream" + i + "_" + System.nanoTime() + "@example.com", (byte) 1));
+        }
+
+        // Recorre los usuarios en bloques de 7 filas; el Stream se cierra con try-with-resources.
+        List<User> users;
+        try (Stream<User> stream = userDAO.streamSearch(name, 7)) {
+            users = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(30, users.size(), "El Stream debe recorrer todos los usuarios encontrados.");
+        assertTrue(users.stream().allMatch(user -> user.getName().equals(name)), "Solo deben recorrerse usuarios que coincidan.");
+        // Al cerrar el Stream la conexión exclusiva vuelve al pool.
+        assertEquals(connectionManager.getTotalConnections(), connectionManager.getIdleConnections(),
+                "Todas las conexiones deben estar libres al cerrar el Stream.");
+
+        for (User user : users) {
+            userDAO.delete(user);
+        }
+    }
+
+    @Test
+    void searchRefinaResultadosGuardadosAlEscribir() throws SQLException {
+        SearchCache<User> cache = UserDAO.getSearchCache();
+        String marca = "Tecleo" + System.nanoTime();
+        List<User> creados = new ArrayList<>();
+        creados.add(userDAO.create(new User(0, marca + " Matrix", "password", "m1_" + marca + "@example.com", (byte) 1)));
+        creados.add(userDAO.create(new User(0, marca + " Mateo", "password", "m2_" + marca + "@example.com", (byte) 1)));
+        creados.add(userDAO.create(new User(0, marca + " Mario", "password", "m3_" + marca + "@example.com", (byte) 1)));
+
+        // Simula la búsqueda mientras se escribe "<marca> Matrix" letra por letra desde "<marca> M".
+        String texto = marca + " Matrix";
+        long missesBefore = cache.getMisses();
+        long refinementsBefore = cache.getRefinements();
+        ArrayList<User> ultimo = null;
+        for (int length = marca.length() + 2; length <= texto.length(); length++) {
+            ultimo = userDAO.search(texto.substring(0, length));
+        }
+        assertEquals(missesBefore + 1, cache.getMisses(), "Solo la primera búsqueda debe consultar la base de datos.");
+        assertEquals(refinementsBefore + 5, cache.getRefinements(), "Las demás deben refinarse en memoria.");
+        assertEquals(1, ultimo.size(), "Solo un usuario contiene el texto completo.");
+        assertEquals(creados.get(0).getId(), ultimo.get(0).getId());
+
+        // El refinamiento en memoria debe coincidir con la consulta a la base de datos.
+        ArrayList<User> refinado = userDAO.search(marca + " Ma");
+        cache.clear();
+        ArrayList<User> desdeBaseDeDatos = userDAO.search(marca + " Ma");
+        assertEquals(desdeBaseDeDatos.size(), refinado.size(), "El refinamiento debe coincidir con LIKE.");
+
+        // Una escritura vacía la caché: la siguiente búsqueda ve el usuario eliminado.
+        userDAO.delete(creados.get(0));
+        assertTrue(userDAO.search(texto).isEmpty(), "Tras delete la búsqueda no debe retornar el usuario.");
+
+        for (User user : creados.subList(1, creados.size())) {
+            userDAO.delete(user);
+        }
+    }
+
+    @Test
+    void searchCacheRefinaSinDistinguirAcentos() {
+        // Como el LIKE de MySQL, "accion" debe encontrar "Acción" al refinar el resultado de "acc".
+        SearchCache<User> cache = new SearchCache<>(1024 * 1024,
+                u -> new User(u.getId(), u.getName(), u.getPasswordHash(), u.getEmail(), u.getStatus()),
+                User::getName, u -> SearchCache.estimateBytes(u.getName(), u.getEmail()));
+        List<User> rows = List.of(new User(1, "Acción", "", "a@example.com", (byte) 1),
+                new User(2, "Accesorio", "", "b@example.com", (byte) 1));
+        cache.put("acc", rows, cache.stamp());
+
+        ArrayList<User> refinado = cache.get("ACCION");
+        assertNotNull(refinado, "El resultado debe refinarse desde la caché.");
+        assertEquals(List.of(1), refinado.stream().map(User::getId).toList());
+        assertEquals(2, cache.get("Acc").size(), "La clave guardada no debe distinguir mayúsculas.");
+        assertEquals(List.of(1), cache.get("acció").stream().map(User::getId).toList());
+    }
+
+    @Test
+    void registroDeConsultasLentasOcultaElHashYRota(@TempDir Path dir) throws Exception {
+        // Umbral 0: todas las llamadas se registran. Archivos de 4 KB para forzar la rotación.
+        Path file = dir.resolve("slow.log");
+        SlowQueryLog log = new SlowQueryLog(0, file, 4096, 3, 1000);
+        SlowQueryLog previous = SlowQueryLog.getInstance();
+        SlowQueryLog.install(log);
+        try {
+            String email = "slow_" + System.nanoTime() + "@example.com";
+            User user = userDAO.create(new User(0, "Slow User", "secreta123", email, (byte) 1));
+            assertNotNull(userDAO.authenticate(new User(0, null, "secreta123", email, (byte) 0)));
+            for (int i = 0; i < 20; i++) {
+                UserDAO.getSearchCache().clear(); // Cada página se consulta en la base de datos, sin la caché.
+                userDAO.searchPage("Slow User", 0, 10);
+            }
+            userDAO.delete(user);
+
+            // La escritura es asíncrona: se espera a que el hilo escritor procese las entradas.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (log.getLogged() + log.getDropped() < 23 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, log.getDropped(), "Ninguna entrada debe descartarse.");
+            assertNull(log.getLastError(), "La escritura del archivo no debe fallar.");
+            assertTrue(Files.exists(dir.resolve("slow.log.1")), "El archivo debe rotarse al superar el tamaño máximo.");
+            assertFalse(Files.exists(dir.resolve("slow.log.3")), "Solo deben conservarse 3 archivos.");
+
+            List<String> lineas = new ArrayList<>();
+            for (String nombre : new String[] {"slow.log.2", "slow.log.1", "slow.log"}) {
+                if (Files.exists(dir.resolve(nombre))) {
+                    lineas.addAll(Files.readAllLines(dir.resolve(nombre)));
+                }
+            }
+            assertEquals(23, lineas.size(), "Cada llamada debe quedar en una línea.");
+            String contenido = String.join("\n", lineas);
+            String hash = PasswordHasher.hashPassword("secreta123");
+            assertFalse(contenido.contains(hash), "El hash de la contraseña no debe quedar en el registro.");
+            assertFalse(contenido.contains("secreta123"), "La contraseña no debe quedar en el registro.");
+            String autenticacion = lineas.stream()
+                    .filter(line -> line.contains("UserDAO.authenticate"))
+                    .findFirst().orElseThrow();
+            assertTrue(autenticacion.contains("params=[\"" + email + "\", ****]"), autenticacion);
+            assertTrue(autenticacion.contains("rows=1"), autenticacion);
+            assertTrue(autenticacion.contains("sql=\"SELECT id, name, email, status FROM Users WHERE email = ?"), autenticacion);
+            assertTrue(contenido.contains("UserDAO.searchPage"), "Las búsquedas también deben registrarse.");
+        } finally {
+            SlowQueryLog.install(previous);
+        }
+    }
+
+    @Test
+    void sesionesSeValidanSinConsultarYSeCierranAlCambiarCredenciales() throws Exception {
+        SessionStore sessions = SessionStore.getInstance();
+        String email = "sesion" + System.nanoTime() + "@example.com";
+        User user = userDAO.create(new User(0, "Sesion", "password", email, (byte) 1));
+        User autenticado = userDAO.authenticate(new User(0, null, "password", email, (byte) 0));
+
+        // Validar la sesión retorna el usuario sin la contraseña y no toca la base de datos.
+        String token = sessions.open(autenticado);
+        long consultasAntes = DaoMetrics.forMethod("UserDAO", "getById").getCalls();
+        User enSesion = sessions.validate(token);
+        assertNotNull(enSesion, "La sesión recién abierta debe ser válida.");
+        assertEquals(user.getId(), enSesion.getId());
+        assertNull(enSesion.getPasswordHash(), "La sesión no debe guardar la contraseña.");
+        assertEquals(consultasAntes, DaoMetrics.forMethod("UserDAO", "getById").getCalls());
+        assertNull(sessions.validate("token-inexistente"));
+        assertNull(sessions.validate(null));
+
+        // Cambiar la contraseña cierra todas las sesiones del usuario.
+        String otroToken = sessions.open(autenticado);
+        user.setPasswordHash("nueva");
+        assertTrue(userDAO.updatePassword(user));
+        assertNull(sessions.validate(token), "updatePassword debe cerrar la sesión.");
+        assertNull(sessions.validate(otroToken), "updatePassword debe cerrar todas las sesiones del usuario.");
+
+        // Pasar el usuario a INACTIVO también las cierra; otros cambios no.
+        token = sessions.open(autenticado);
+        user.setName("Sesion renombrada");
+        assertTrue(userDAO.update(user));
+        assertNotNull(sessions.validate(token), "Un cambio de nombre no cierra la sesión.");
+        user.setStatus((byte) 2);
+        assertTrue(userDAO.update(user));
+        assertNull(sessions.validate(token), "Un usuario INACTIVO no conserva sus sesiones.");
+
+        userDAO.delete(user);
+    }
+
+    @Test
+    void sesionesAbiertasAntesDelCommitSeCierranAlConfirmar() throws Exception {
+        SessionStore sessions = SessionStore.getInstance();
+        String email = "sesiontx" + System.nanoTime() + "@example.com";
+        User user = userDAO.create(new User(0, "Sesion", "password", email, (byte) 1));
+        User autenticado = userDAO.authenticate(new User(0, null, "password", email, (byte) 0));
+        String[] tokens = new String[2];
+        try {
+            // Una sesión abierta entre el UPDATE y el commit (por un authenticate que aún veía los datos
+            // confirmados anteriores) no debe sobrevivir al cambio.
+            ConnectionManager.getInstance().inTransaction(() -> {
+                user.setPasswordHash("nueva");
+                assertTrue(userDAO.updatePassword(user));
+                tokens[0] = sessions.open(autenticado);
+                return null;
+            });
+            assertNull(sessions.validate(tokens[0]), "updatePassword debe cerrar las sesiones al confirmar.");
+
+            ConnectionManager.getInstance().inTransaction(() -> {
+                user.setStatus((byte) 2);
+                assertTrue(userDAO.update(user));
+                tokens[1] = sessions.open(autenticado);
+                return null;
+            });
+            assertNull(sessions.validate(tokens[1]), "Pasar a INACTIVO debe cerrar las sesiones al confirmar.");
+        } finally {
+            userDAO.delete(user);
+        }
+    }
+
+    @Test
+    void sesionesVencenSinUsoYSeExtiendenAlValidar() throws Exception {
+        // Vencimiento de 200 ms; el barrido automático no interviene (se invoca a mano).
+        SessionStore sessions = new SessionStore(200, 60_000);
+        try {
+            User user = new User(7, "Sesion", null, "ttl@example.com", (byte) 1);
+            String activa = sessions.open(user);
+            String inactiva = sessions.open(user);
+
+            // Validar cada 50 ms mantiene viva la sesión más allá de su vencimiento inicial.
+            for (int i = 0; i < 8; i++) {
+                Thread.sleep(50);
+                assertNotNull(sessions.validate(activa), "Validar debe extender el vencimiento.");
+            }
+            assertEquals(1, sessions.sweep(), "El barrido elimina solo la sesión sin uso.");
+            assertNull(sessions.validate(inactiva));
+            assertEquals(1, sessions.size());
+
+            // Sin validaciones la sesión vence y la validación la elimina.
+            Thread.sleep(250);
+            assertNull(sessions.validate(activa), "La sesión sin uso debe vencer.");
+            assertEquals(0, sessions.size());
+            assertEquals(2, sessions.getExpirations());
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    @Test
+    void sesionesSeValidanConcurrentementeMientrasSeBarren() throws Exception {
+        SessionStore sessions = new SessionStore(60_000, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            String token = sessions.open(new User(9, "Concurrente", null, "concurrente@example.com", (byte) 1));
+            List<Future<Integer>> resultados = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                resultados.add(executor.submit(() -> {
+                    int validas = 0;
+                    for (int i = 0; i < 20_000; i++) {
+                        if (sessions.validate(token) != null) {
+                            validas++;
+                        }
+                    }
+                    return validas;
+                }));
+            }
+            // El barrido corre cada milisegundo y nunca debe quitar una sesión viva.
+            for (Future<Integer> resultado : resultados) {
+                assertEquals(20_000, resultado.get(30, TimeUnit.SECONDS));
+            }
+            assertEquals(160_000, sessions.getHits());
+            assertEquals(0, sessions.getExpirations());
+        } finally {
+            executor.shutdownNow();
+            sessions.shutdown();
+        }
+    }
+
+    @Test
+    void intentosQueSuperanElLimiteNoConsultanLaBaseDeDatos() throws SQLException {
+        LoginRateLimiter previous = LoginRateLimiter.getInstance();
+        // 3 intentos por correo y 5 por origen, sin recarga durante la prueba.
+        LoginRateLimiter limiter = new LoginRateLimiter(4, 1024, 3, 3_600_000, 5, 3_600_000);
+        LoginRateLimiter.install(limiter);
+        String email = "limite" + System.nanoTime() + "@example.com";
+        User user = userDAO.create(new User(0, "Limite", "password", email, (byte) 1));
+        try {
+            MethodMetrics metrics = DaoMetrics.forMethod("UserDAO", "authenticate");
+            for (int i = 0; i < 3; i++) {
+                assertNull(userDAO.authenticate(new User(0, null, "incorrecta", email, (byte) 0), "10.0.0.1"));
+            }
+            long consultas = metrics.getCalls();
+            // El cuarto intento se rechaza aunque la contraseña sea correcta, y sin consultar.
+            LoginThrottledException ex = assertThrows(LoginThrottledException.class,
+                    () -> userDAO.authenticate(new User(0, null, "password", email.toUpperCase(), (byte) 0), "10.0.0.2"));
+            assertTrue(ex.getRetryAfterMillis() > 0);
+            assertEquals(consultas, metrics.getCalls(), "Un intento rechazado no debe llegar a la base de datos.");
+            assertEquals(1, limiter.getRejectedByEmail());
+
+            // Límite por origen: el mismo origen con otros correos se rechaza al sexto intento.
+            for (int i = 0; i < 2; i++) {
+                assertNull(userDAO.authenticate(new User(0, null, "password", "otro" + i + email, (byte) 0), "10.0.0.1"));
+            }
+            assertThrows(LoginThrottledException.class,
+                    () -> userDAO.authenticate(new User(0, null, "password", "otro9" + email, (byte) 0), "10.0.0.1"));
+            assertEquals(1, limiter.getRejectedBySource());
+            assertEquals(5, limiter.getAllowed());
+        } finally {
+            LoginRateLimiter.install(previous);
+            userDAO.delete(user);
+        }
+    }
+
+    @Test
+    void origenRechazadoNoConsumeLosIntentosDelCorreo() {
+        // 2 intentos por correo y 1 por origen, sin recarga durante la prueba.
+        LoginRateLimiter limiter = new LoginRateLimiter(4, 1024, 2, 3_600_000, 1, 3_600_000);
+        String email = "victima@example.com";
+        assertEquals(0, limiter.tryAcquire(email, "10.0.0.1"));
+        // El origen ya agotó su límite: sus intentos se rechazan sin descontar del correo.
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(email, "10.0.0.1") > 0);
+        }
+        assertEquals(5, limiter.getRejectedBySource());
+        assertEquals(0, limiter.getRejectedByEmail());
+
+        // Al correo le queda su segundo intento desde otro origen.
+        assertEquals(0, limiter.tryAcquire(email, "10.0.0.2"));
+        assertTrue(limiter.tryAcquire(email, "10.0.0.3") > 0);
+        assertEquals(1, limiter.getRejectedByEmail());
+        assertEquals(2, limiter.getAllowed());
+    }
+
+    @Test
+    void limiteDeIntentosCon64HilosNoExcedeElBurst() throws Exception {
+        int hilos = 64;
+        int intentos = 20_000;
+        // Sin límite efectivo por origen ni recarga: solo cuenta el burst de cada correo.
+        LoginRateLimiter limiter = new LoginRateLimiter(4, 4096, 1_000, 3_600_000, Integer.MAX_VALUE, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            // Todos los hilos sobre el mismo correo: el CAS de cada celda no deja pasar más que el burst.
+            List<Future<Integer>> aceptados = new ArrayList<>();
+            CountDownLatch inicio = new CountDownLatch(1);
+            for (int t = 0; t < hilos; t++) {
+                aceptados.add(executor.submit(() -> {
+                    inicio.await();
+                    int n = 0;
+                    for (int i = 0; i < intentos; i++) {
+                        if (limiter.tryAcquire("caliente@example.com", "origen") == 0) {
+                            n++;
+                        }
+                    }
+                    return n;
+                }));
+            }
+            inicio.countDown();
+            int total = 0;
+            for (Future<Integer> future : aceptados) {
+                total += future.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(1_000, total, "Solo el burst del correo debe aceptarse.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void filtroDeCorreosDescartaCorreosDesconocidosSinConsultar() throws SQLException {
+        UserEmailFilter filter = UserEmailFilter.getInstance();
+        String marca = "filtro" + System.nanoTime();
+        User user = userDAO.create(new User(0, "Filtro", "password", marca + "@example.com", (byte) 1));
+        try {
+            filter.build(userDAO);
+            assertTrue(filter.isReady(), "El filtro debe quedar listo tras construirse.");
+
+            // Correo desconocido: ni authenticate ni emailExists consultan la base de datos.
+            MethodMetrics authenticate = DaoMetrics.forMethod("UserDAO", "authenticate");
+            MethodMetrics exists = DaoMetrics.forMethod("UserDAO", "emailExists");
+            long consultas = authenticate.getCalls() + exists.getCalls();
+            assertNull(userDAO.authenticate(new User(0, null, "password", "nadie_" + marca + "@example.com", (byte) 0), "filtro"));
+            assertFalse(userDAO.emailExists("nadie_" + marca + "@example.com"));
+            assertEquals(consultas, authenticate.getCalls() + exists.getCalls(), "Un correo descartado no debe consultarse.");
+
+            // Correo existente (sin distinguir mayúsculas ni espacios): se consulta como siempre.
+            assertTrue(userDAO.emailExists(user.getEmail()));
+            assertTrue(filter.mightContain(" " + user.getEmail().toUpperCase() + " "));
+            assertNotNull(userDAO.authenticate(new User(0, null, "password", user.getEmail(), (byte) 0), "filtro"));
+
+            // create y update mantienen el filtro al día.
+            User nuevo = userDAO.create(new User(0, "Filtro", "password", "nuevo_" + marca + "@example.com", (byte) 1));
+            assertTrue(userDAO.emailExists(nuevo.getEmail()), "create debe agregar el correo al filtro.");
+            nuevo.setEmail("cambiado_" + marca + "@example.com");
+            assertTrue(userDAO.update(nuevo));
+            assertNotNull(userDAO.authenticate(new User(0, null, "password", nuevo.getEmail(), (byte) 0), "filtro"),
+                    "update debe agregar el correo nuevo al filtro.");
+            userDAO.delete(nuevo);
+        } finally {
+            filter.clear();
+            userDAO.delete(user);
+        }
+    }
+
+    @Test
+    void filtroDeCorreosNoDistingueAcentosNiMayusculas() {
+        // La intercalación por defecto de MySQL encuentra "jose@..." al buscar "José@...": el filtro
+        // tampoco debe descartarlo.
+        UserEmailFilter filter = new UserEmailFilter(1_000, 0.01);
+        filter.build(Stream.of("José.Núñez@example.com", "strasse@example.com"));
+        assertTrue(filter.mightContain("jose.nunez@example.com"));
+        assertTrue(filter.mightContain(" JOSÉ.NÚÑEZ@EXAMPLE.COM "));
+        assertTrue(filter.mightContain("straße@example.com"));
+        filter.add("ÅSA@example.com");
+        assertTrue(filter.mightContain("asa@example.com"));
+    }
+
+    @Test
+    void filtroDeCorreosCreceSinFalsosNegativos() {
+        // Capacidad inicial de 1000 correos: agregar 20 mil obliga a agregar capas.
+        UserEmailFilter filter = new UserEmailFilter(1_000, 0.01);
+        int correos = 20_000;
+        filter.build(IntStream.range(0, correos / 2).mapToObj(i -> "usuario" + i + "@example.com"));
+        // La otra mitad llega después de construido, como con create.
+        for (int i = correos / 2; i < correos; i++) {
+            filter.add("usuario" + i + "@example.com");
+        }
+        for (int i = 0; i < correos; i++) {
+            assertTrue(filter.mightContain("usuario" + i + "@example.com"), "Un filtro de Bloom no tiene falsos negativos.");
+        }
+        int falsosPositivos = 0;
+        int desconocidos = 100_000;
+        for (int i = 0; i < desconocidos; i++) {
+            if (filter.mightContain("desconocido" + i + "@example.com")) {
+                falsosPositivos++;
+            }
+        }
+        double tasa = (double) falsosPositivos / desconocidos;
+        assertTrue(filter.getLayers() > 1, "El filtro debe crecer por capas.");
+        assertTrue(tasa < 0.02, "La tasa de falsos positivos debe mantenerse por debajo del doble de la configurada: " + tasa);
+        assertTrue(filter.getEstimatedFalsePositiveRate() < 0.02);
+    }
+}